@@ -0,0 +1,32 @@
+package com.miu.flowops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Read-only view of the task counters maintained by the release-service.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "release_progress")
+public class ReleaseProgressDTO {
+
+    @Id
+    private String releaseId;
+
+    private int todo;
+
+    private int inProcess;
+
+    private int completed;
+
+    private Integer nextOrderIndex;
+
+    public int getTotal() {
+        return todo + inProcess + completed;
+    }
+}
@@ -0,0 +1,28 @@
+package com.miu.flowops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * Tasks of a release stored in buckets by the release-service, in which case the release document has no tasks.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "release_tasks")
+public class ReleaseTaskBucketDTO {
+
+    @Id
+    private String id;
+
+    private String releaseId;
+
+    private int bucketNo;
+
+    private List<ReleaseContextDTO.EmbeddedTask> tasks;
+}
@@ -0,0 +1,14 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.dto.ReleaseTaskBucketDTO;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReleaseTaskBucketRepository extends MongoRepository<ReleaseTaskBucketDTO, String> {
+
+    List<ReleaseTaskBucketDTO> findByReleaseIdInOrderByBucketNoAsc(Collection<String> releaseIds);
+}
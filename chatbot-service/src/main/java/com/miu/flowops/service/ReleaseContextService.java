@@ -1,15 +1,22 @@
 package com.miu.flowops.service;
 
 import com.miu.flowops.dto.ReleaseContextDTO;
+import com.miu.flowops.dto.ReleaseProgressDTO;
+import com.miu.flowops.dto.ReleaseTaskBucketDTO;
 import com.miu.flowops.dto.TaskContextDTO;
 import com.miu.flowops.repository.ReleaseContextRepository;
+import com.miu.flowops.repository.ReleaseProgressRepository;
+import com.miu.flowops.repository.ReleaseTaskBucketRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -18,6 +25,8 @@ import java.util.stream.Collectors;
 public class ReleaseContextService {
     
     private final ReleaseContextRepository releaseRepository;
+    private final ReleaseProgressRepository releaseProgressRepository;
+    private final ReleaseTaskBucketRepository releaseTaskBucketRepository;
     
     public String buildContextForUser(String userId) {
         StringBuilder context = new StringBuilder();
@@ -27,6 +36,7 @@ public class ReleaseContextService {
         log.info("Found {} total releases in database", allReleases.size());
         
         List<TaskContextDTO> userTasks = new ArrayList<>();
+        loadBucketedTasks(allReleases);
         
         for (ReleaseContextDTO release : allReleases) {
             log.debug("Processing release: {} with {} tasks", release.getTitle(), 
@@ -59,10 +69,23 @@ public class ReleaseContextService {
         List<ReleaseContextDTO> activeReleases = releaseRepository.findByIsCompletedFalse();
         if (!activeReleases.isEmpty()) {
             context.append("Active releases:\n");
+            // Counters maintained by the release-service, no need to count the tasks of every release
+            Map<String, ReleaseProgressDTO> progressById = releaseProgressRepository.findAllById(
+                    activeReleases.stream().map(ReleaseContextDTO::getId).toList())
+                    .stream()
+                    .collect(Collectors.toMap(ReleaseProgressDTO::getReleaseId, Function.identity()));
             for (ReleaseContextDTO release : activeReleases) {
-                int totalTasks = release.getTasks() != null ? release.getTasks().size() : 0;
-                long completedTasks = release.getTasks() != null ? 
-                    release.getTasks().stream().filter(t -> "COMPLETED".equals(t.getStatus())).count() : 0;
+                ReleaseProgressDTO progress = progressById.get(release.getId());
+                int totalTasks;
+                long completedTasks;
+                if (progress != null) {
+                    totalTasks = progress.getTotal();
+                    completedTasks = progress.getCompleted();
+                } else {
+                    totalTasks = release.getTasks() != null ? release.getTasks().size() : 0;
+                    completedTasks = release.getTasks() != null ?
+                        release.getTasks().stream().filter(t -> "COMPLETED".equals(t.getStatus())).count() : 0;
+                }
                 context.append(String.format("- %s (%d/%d tasks completed)\n", 
                     release.getTitle(), completedTasks, totalTasks));
             }
@@ -89,6 +112,7 @@ public class ReleaseContextService {
         
         StringBuilder context = new StringBuilder();
         ReleaseContextDTO releaseDTO = release.get();
+        loadBucketedTasks(List.of(releaseDTO));
         
         context.append(String.format("Release: %s\n", releaseDTO.getTitle()));
         context.append(String.format("Completed: %s\n", releaseDTO.isCompleted() ? "Yes" : "No"));
@@ -96,12 +120,39 @@ public class ReleaseContextService {
         // Get tasks for this release
         if (releaseDTO.getTasks() != null && !releaseDTO.getTasks().isEmpty()) {
             context.append(String.format("\nTasks (%d total):\n", releaseDTO.getTasks().size()));
-            releaseDTO.getTasks().forEach(task -> 
-                context.append(String.format("%d. %s - %s (Assigned to: %s)\n", 
-                    task.getOrderIndex(), task.getTitle(), task.getStatus(), 
-                    task.getDeveloperId() != null ? task.getDeveloperId() : "Unassigned")));
+            // Tasks are stored in execution order, orderIndex values are sparse keys so number them by position
+            int position = 1;
+            for (ReleaseContextDTO.EmbeddedTask task : releaseDTO.getTasks()) {
+                context.append(String.format("%d. %s - %s (Assigned to: %s)\n",
+                    position++, task.getTitle(), task.getStatus(),
+                    task.getDeveloperId() != null ? task.getDeveloperId() : "Unassigned"));
+            }
         }
         
         return context.toString();
     }
+
+    // Large releases keep their tasks in the release_tasks buckets instead of the release document,
+    // the buckets of all of them are read with one query
+    private void loadBucketedTasks(List<ReleaseContextDTO> releases) {
+        List<String> bucketedIds = releases.stream()
+                .filter(release -> release.getTasks() == null)
+                .map(ReleaseContextDTO::getId)
+                .toList();
+        if (bucketedIds.isEmpty()) {
+            return;
+        }
+        Map<String, List<ReleaseContextDTO.EmbeddedTask>> tasksByRelease = new HashMap<>();
+        for (ReleaseTaskBucketDTO bucket : releaseTaskBucketRepository.findByReleaseIdInOrderByBucketNoAsc(bucketedIds)) {
+            List<ReleaseContextDTO.EmbeddedTask> tasks = tasksByRelease.computeIfAbsent(bucket.getReleaseId(), id -> new ArrayList<>());
+            if (bucket.getTasks() != null) {
+                tasks.addAll(bucket.getTasks());
+            }
+        }
+        for (ReleaseContextDTO release : releases) {
+            if (release.getTasks() == null) {
+                release.setTasks(tasksByRelease.getOrDefault(release.getId(), new ArrayList<>()));
+            }
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package com.miu.flowops.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Calls the API gateway and records the latency of every call under its endpoint template.
+ */
+public class ApiClient {
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String gatewayUrl;
+    private final EndpointStats stats;
+
+    public ApiClient(String gatewayUrl, EndpointStats stats) {
+        this.gatewayUrl = gatewayUrl;
+        this.stats = stats;
+    }
+
+    public record Response(int status, JsonNode body) {
+        public boolean isSuccess() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    /**
+     * @param endpoint route template the latency is recorded under, e.g. {@code POST /releases/{id}/complete}
+     * @param token    bearer token, or null for the public auth endpoints
+     */
+    public Response call(String endpoint, String method, String path, Object body, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(gatewayUrl + "/api/v1" + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json");
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        try {
+            request.method(method, body != null
+                    ? HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body))
+                    : HttpRequest.BodyPublishers.noBody());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize the body of " + endpoint, e);
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            stats.record(endpoint, System.nanoTime() - start, false);
+            return new Response(0, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Response(0, null);
+        }
+        Response result = new Response(response.statusCode(), parse(response.body()));
+        stats.record(endpoint, System.nanoTime() - start, result.isSuccess());
+        return result;
+    }
+
+    // Some endpoints answer with plain text
+    private JsonNode parse(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return objectMapper.getNodeFactory().textNode(new String(body));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.miu.flowops.loadgen;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and error count of every endpoint, keyed by its route template.
+ * Values are recorded in microseconds, up to one minute with three significant digits.
+ */
+public class EndpointStats {
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private volatile boolean recording;
+
+    public void startRecording() {
+        recording = true;
+    }
+
+    public void record(String endpoint, long nanos, boolean success) {
+        if (!recording) {
+            return;
+        }
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, name -> new Endpoint());
+        stats.latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_MICROS));
+        if (!success) {
+            stats.errors.increment();
+        }
+    }
+
+    // Sorted by endpoint, for a stable report
+    public Map<String, Endpoint> snapshot() {
+        return new TreeMap<>(endpoints);
+    }
+
+    public static class Endpoint {
+        private final Histogram latency = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+
+        public Histogram latency() {
+            return latency;
+        }
+
+        public long errors() {
+            return errors.sum();
+        }
+    }
+}
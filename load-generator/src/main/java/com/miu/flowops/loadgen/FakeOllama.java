@@ -0,0 +1,54 @@
+package com.miu.flowops.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Answers {@code POST /api/generate} like a non-streaming Ollama after a fixed generation delay,
+ * so the chatbot latency measured is the one of the service and not of the model.
+ */
+public class FakeOllama implements AutoCloseable {
+
+    private final HttpServer server;
+
+    public FakeOllama(int port, Duration generationDelay) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/generate", exchange -> {
+            try (exchange) {
+                Map<?, ?> request = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+                Thread.sleep(generationDelay);
+                byte[] body = objectMapper.writeValueAsBytes(Map.of(
+                        "model", String.valueOf(request.get("model")),
+                        "response", "You have no blocking tasks, keep going with the next one in your release.",
+                        "done", true));
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                byte[] body = "Ollama is running".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+        });
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
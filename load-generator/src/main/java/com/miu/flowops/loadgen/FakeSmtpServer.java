@@ -0,0 +1,96 @@
+package com.miu.flowops.loadgen;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plain SMTP server that accepts any login and any message and drops it, counting the messages received.
+ */
+public class FakeSmtpServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final AtomicLong messages = new AtomicLong();
+
+    public FakeSmtpServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port);
+        Thread.ofVirtual().name("fake-smtp").start(this::accept);
+    }
+
+    public long messages() {
+        return messages.get();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().start(() -> converse(socket));
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void converse(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            reply(out, "220 fake-smtp ready");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-fake-smtp\r\n250-AUTH PLAIN LOGIN\r\n250 8BITMIME");
+                    case "HELO", "MAIL", "RCPT", "RSET", "NOOP" -> reply(out, "250 OK");
+                    case "AUTH" -> authenticate(line, in, out);
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // Message content is dropped
+                        }
+                        messages.incrementAndGet();
+                        reply(out, "250 OK queued");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    // Any credentials are accepted, the challenges are only read
+    private static void authenticate(String line, BufferedReader in, PrintWriter out) throws IOException {
+        String[] parts = line.split(" ");
+        if (parts.length > 1 && parts[1].equalsIgnoreCase("LOGIN")) {
+            reply(out, "334 VXNlcm5hbWU6");
+            in.readLine();
+            reply(out, "334 UGFzc3dvcmQ6");
+            in.readLine();
+        } else if (parts.length == 2) {
+            reply(out, "334 ");
+            in.readLine();
+        }
+        reply(out, "235 Authentication successful");
+    }
+
+    private static void reply(PrintWriter out, String reply) {
+        out.print(reply + "\r\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,85 @@
+package com.miu.flowops.loadgen;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives the workflows through the API gateway at a fixed arrival rate (open model): iterations are started
+ * on schedule whether or not the previous ones finished, so a slow system shows up as latency instead of
+ * silently lowering the load. Each iteration runs on its own virtual thread.
+ *
+ * <pre>
+ * stand-ins                      runs Kafka, MongoDB, Ollama and SMTP stand-ins until stopped
+ * run [--gateway=url] [--rate=5] [--duration=60] [--warmup=10] [--developers=20] [--tasks=5] [--output=dir]
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    static final String WORKFLOW = "workflow (scheduled start to end)";
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        switch (options.command()) {
+            case "stand-ins" -> runStandIns();
+            case "run" -> run(options);
+            default -> throw new IllegalArgumentException("Unknown command " + options.command() + ", expected stand-ins or run");
+        }
+    }
+
+    private static void runStandIns() throws Exception {
+        StandIns standIns = new StandIns(Duration.ofMillis(200));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Mails received by the fake SMTP server: " + standIns.mailsReceived());
+            try {
+                standIns.close();
+            } catch (Exception e) {
+                System.err.println("Failed to stop the stand-ins: " + e.getMessage());
+            }
+        }));
+        System.out.println(standIns.describe());
+        Thread.currentThread().join();
+    }
+
+    private static void run(LoadOptions options) throws Exception {
+        EndpointStats stats = new EndpointStats();
+        WorkflowScenario scenario = new WorkflowScenario(new ApiClient(options.gatewayUrl(), stats), options);
+        scenario.setUp();
+
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate());
+        long start = System.nanoTime();
+        AtomicLong scheduled = new AtomicLong();
+        ExecutorService iterations = Executors.newVirtualThreadPerTaskExecutor();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleAtFixedRate(() -> {
+            // Measured from when the iteration should have started, a late scheduler does not hide the delay
+            long intendedStart = start + scheduled.getAndIncrement() * periodNanos;
+            iterations.execute(() -> {
+                boolean success = scenario.runIteration();
+                stats.record(WORKFLOW, System.nanoTime() - intendedStart, success);
+            });
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+        scheduler.schedule(stats::startRecording, options.warmup().toNanos(), TimeUnit.NANOSECONDS);
+
+        System.out.printf("Running %.1f workflows/s against %s for %ds after a %ds warmup%n",
+                options.rate(), options.gatewayUrl(), options.duration().toSeconds(), options.warmup().toSeconds());
+        Thread.sleep(options.warmup().plus(options.duration()));
+        scheduler.shutdownNow();
+        iterations.shutdown();
+        if (!iterations.awaitTermination(2, TimeUnit.MINUTES)) {
+            System.err.println("Some iterations were still running after 2 minutes");
+        }
+
+        Report.print(stats, options.duration(), System.out);
+        System.out.printf("Iterations started: %d, failed: %d, skipped for lack of a free developer: %d%n",
+                scheduled.get(), scenario.failed(), scenario.skipped());
+        Report.write(stats, options.output());
+        System.out.println("Histograms written to " + options.output().toAbsolutePath());
+    }
+}
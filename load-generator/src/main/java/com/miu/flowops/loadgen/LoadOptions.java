@@ -0,0 +1,45 @@
+package com.miu.flowops.loadgen;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line of the load generator, options are given as {@code --name=value}.
+ *
+ * @param command     {@code stand-ins} to only run the infrastructure stand-ins, {@code run} to drive the workflows
+ * @param gatewayUrl  base url of the API gateway
+ * @param rate        workflow iterations started per second, independently of the ones still running
+ * @param duration    how long new iterations are started
+ * @param warmup      calls made during the warmup are not recorded
+ * @param developers  developer accounts the tasks are spread over
+ * @param tasks       tasks of each release created by a workflow iteration
+ * @param output      directory receiving the histograms
+ */
+public record LoadOptions(String command, String gatewayUrl, double rate, Duration duration, Duration warmup,
+                          int developers, int tasks, Path output) {
+
+    public static LoadOptions parse(String[] args) {
+        String command = "run";
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int separator = arg.indexOf('=');
+                options.put(separator > 0 ? arg.substring(2, separator) : arg.substring(2),
+                        separator > 0 ? arg.substring(separator + 1) : "true");
+            } else {
+                command = arg;
+            }
+        }
+        return new LoadOptions(
+                command,
+                options.getOrDefault("gateway", "http://localhost:8085"),
+                Double.parseDouble(options.getOrDefault("rate", "5")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60"))),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10"))),
+                Integer.parseInt(options.getOrDefault("developers", "20")),
+                Integer.parseInt(options.getOrDefault("tasks", "5")),
+                Path.of(options.getOrDefault("output", "target/loadgen")));
+    }
+}
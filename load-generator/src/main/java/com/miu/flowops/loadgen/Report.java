@@ -0,0 +1,60 @@
+package com.miu.flowops.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Prints the latency percentiles of every endpoint and writes their full distribution as .hgrm files,
+ * which the HdrHistogram plotter can compare between runs.
+ */
+public final class Report {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private Report() {
+    }
+
+    public static void print(EndpointStats stats, Duration measured, PrintStream out) {
+        out.printf("%-75s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        double seconds = measured.toMillis() / 1000.0;
+        for (Map.Entry<String, EndpointStats.Endpoint> entry : stats.snapshot().entrySet()) {
+            Histogram latency = entry.getValue().latency();
+            out.printf("%-75s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(),
+                    latency.getTotalCount(),
+                    entry.getValue().errors(),
+                    latency.getTotalCount() / seconds,
+                    millis(latency, 50.0),
+                    millis(latency, 90.0),
+                    millis(latency, 99.0),
+                    millis(latency, 99.9),
+                    latency.getMaxValue() / MICROS_PER_MILLI);
+        }
+    }
+
+    public static void write(EndpointStats stats, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<String, EndpointStats.Endpoint> entry : stats.snapshot().entrySet()) {
+            Path file = directory.resolve(fileNameOf(entry.getKey()) + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                entry.getValue().latency().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+    }
+
+    private static double millis(Histogram latency, double percentile) {
+        return latency.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    // POST /releases/{releaseId}/complete -> POST_releases_releaseId_complete
+    private static String fileNameOf(String endpoint) {
+        return endpoint.replaceAll("[{}]", "").replaceAll("[^A-Za-z0-9]+", "_").replaceAll("_$", "");
+    }
+}
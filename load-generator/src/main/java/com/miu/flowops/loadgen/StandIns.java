@@ -0,0 +1,71 @@
+package com.miu.flowops.loadgen;
+
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import de.flapdoodle.reverse.transitions.Start;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * In-process replacements of the infrastructure the services depend on, on the ports the services use by default:
+ * a single node Kafka, a local mongod, a fake Ollama and a fake SMTP server.
+ * The services themselves run as usual, pointed at these with the overrides printed by {@link #describe()}.
+ */
+public class StandIns implements AutoCloseable {
+
+    public static final int KAFKA_PORT = 9094;
+    public static final int MONGO_PORT = 27017;
+    public static final int OLLAMA_PORT = 11434;
+    public static final int SMTP_PORT = 2525;
+
+    private final EmbeddedKafkaKraftBroker kafka;
+    private final TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private final FakeOllama ollama;
+    private final FakeSmtpServer smtp;
+
+    public StandIns(Duration ollamaDelay) throws IOException {
+        kafka = new EmbeddedKafkaKraftBroker(1, 6).kafkaPorts(KAFKA_PORT);
+        kafka.afterPropertiesSet();
+        // Downloads the mongod binary on the first run
+        mongod = Mongod.instance()
+                .withNet(Start.to(Net.class).initializedWith(Net.of("127.0.0.1", MONGO_PORT, false)))
+                .start(Version.Main.V7_0);
+        ollama = new FakeOllama(OLLAMA_PORT, ollamaDelay);
+        smtp = new FakeSmtpServer(SMTP_PORT);
+    }
+
+    public long mailsReceived() {
+        return smtp.messages();
+    }
+
+    public String describe() {
+        String mongoUri = "mongodb://127.0.0.1:" + MONGO_PORT + "/flow_ops";
+        String kafka = "localhost:" + KAFKA_PORT;
+        return String.join(System.lineSeparator(),
+                "Stand-ins running: Kafka " + kafka + ", MongoDB " + mongoUri + ", Ollama http://localhost:" + OLLAMA_PORT
+                        + ", SMTP localhost:" + SMTP_PORT,
+                "Start the services with:",
+                "  auth-service:         SPRING_DATA_MONGODB_URI=" + mongoUri,
+                "  release-service:      SPRING_DATA_MONGODB_URI=" + mongoUri + " SPRING_KAFKA_BOOTSTRAP_SERVERS=" + kafka,
+                "  discussion-service:   SPRING_DATA_MONGODB_URI=" + mongoUri + " KAFKA_BOOTSTRAP_SERVERS=" + kafka,
+                "  chatbot-service:      SPRING_DATA_MONGODB_URI=" + mongoUri + " OLLAMA_BASE_URL=http://localhost:" + OLLAMA_PORT,
+                "  notification-service: --server.port=8083 --spring.mongodb.uri=" + mongoUri
+                        + " --spring.kafka.bootstrap-servers=" + kafka
+                        + " --spring.mail.host=localhost --spring.mail.port=" + SMTP_PORT + " --spring.mail.protocol=smtp"
+                        + " --spring.mail.properties.mail.smtp.starttls.enable=false",
+                "  api-gateway:          (defaults)");
+    }
+
+    @Override
+    public void close() throws IOException {
+        smtp.close();
+        ollama.close();
+        mongod.close();
+        kafka.destroy();
+    }
+}
@@ -0,0 +1,169 @@
+package com.miu.flowops.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One release lifecycle as the UI drives it: the admin logs in, creates a release and assigns its tasks,
+ * a developer logs in, starts and completes every task, opens a discussion with a comment and asks the chatbot.
+ * An iteration stops at the first failed call, the calls after it depend on its result.
+ */
+public class WorkflowScenario {
+
+    private static final String PASSWORD = "loadgen-password";
+    private static final String ADMIN = "loadgen-admin";
+
+    private final ApiClient api;
+    private final LoadOptions options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // A developer can only have one task in process, so each running iteration borrows its own
+    private final BlockingQueue<String> freeDevelopers = new LinkedBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public WorkflowScenario(ApiClient api, LoadOptions options) {
+        this.api = api;
+        this.options = options;
+    }
+
+    /**
+     * Registers the admin and the developers, existing accounts are reused.
+     */
+    public void setUp() {
+        register(ADMIN, "ADMIN");
+        for (int i = 0; i < options.developers(); i++) {
+            String developer = "loadgen-dev-" + i;
+            register(developer, "DEVELOPER");
+            freeDevelopers.add(developer);
+        }
+    }
+
+    /**
+     * @return false if the iteration failed or was skipped
+     */
+    public boolean runIteration() {
+        String developer = freeDevelopers.poll();
+        if (developer == null) {
+            // Waiting here would hold back the arrival rate, the iteration is counted as skipped instead
+            skipped.incrementAndGet();
+            return false;
+        }
+        try {
+            if (!iterate(developer)) {
+                failed.incrementAndGet();
+                return false;
+            }
+            return true;
+        } finally {
+            freeDevelopers.add(developer);
+        }
+    }
+
+    public int skipped() {
+        return skipped.get();
+    }
+
+    public int failed() {
+        return failed.get();
+    }
+
+    private boolean iterate(String developer) {
+        long n = sequence.incrementAndGet();
+        String adminToken = login(ADMIN);
+        if (adminToken == null) {
+            return false;
+        }
+        List<Map<String, Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < options.tasks(); i++) {
+            tasks.add(Map.of("title", "Task " + i, "description", "Load test task " + i + " of release " + n));
+        }
+        ApiClient.Response release = api.call("POST /releases", "POST", "/releases",
+                Map.of("title", "Load test release " + n, "tasks", tasks), adminToken);
+        if (!release.isSuccess()) {
+            return false;
+        }
+        String releaseId = release.body().path("id").asText();
+
+        String developerToken = login(developer);
+        if (developerToken == null) {
+            return false;
+        }
+        String developerId = userIdOf(developerToken);
+        List<String> taskIds = new ArrayList<>();
+        release.body().path("tasks").forEach(task -> taskIds.add(task.path("id").asText()));
+        for (String taskId : taskIds) {
+            if (!api.call("POST /releases/{releaseId}/tasks/{taskId}/assign/{developerId}", "POST",
+                    "/releases/" + releaseId + "/tasks/" + taskId + "/assign/" + developerId, null, adminToken).isSuccess()) {
+                return false;
+            }
+        }
+        for (String taskId : taskIds) {
+            String tasksPath = "/releases/tasks/" + releaseId + "/devs/" + developerId;
+            if (!api.call("POST /releases/tasks/{releaseId}/devs/{developerId}/start/{taskId}", "POST",
+                    tasksPath + "/start/" + taskId, null, developerToken).isSuccess()
+                    || !api.call("POST /releases/tasks/{releaseId}/devs/{developerId}/complete/{taskId}", "POST",
+                    tasksPath + "/complete/" + taskId, null, developerToken).isSuccess()) {
+                return false;
+            }
+        }
+
+        ApiClient.Response discussion = api.call("POST /discussions", "POST", "/discussions", Map.of(
+                "title", "Release " + n + " retrospective",
+                "content", "How did this release go?",
+                "authorId", developerId,
+                "authorName", developer,
+                "releaseId", releaseId,
+                "type", "GENERAL"), developerToken);
+        if (!discussion.isSuccess()
+                || !api.call("POST /discussions/{discussionId}/comments", "POST",
+                "/discussions/" + discussion.body().path("id").asText() + "/comments", Map.of(
+                        "content", "All tasks done on time.",
+                        "authorId", developerId,
+                        "authorName", developer), developerToken).isSuccess()) {
+            return false;
+        }
+
+        ApiClient.Response session = api.call("POST /chat/session", "POST", "/chat/session",
+                Map.of("title", "Release " + n), developerToken);
+        return session.isSuccess()
+                && api.call("POST /chat/{sessionId}/message", "POST",
+                "/chat/" + session.body().path("sessionId").asText() + "/message",
+                Map.of("message", "What are my current tasks?"), developerToken).isSuccess();
+    }
+
+    private void register(String username, String role) {
+        // Fails with a 400 when the account already exists
+        api.call("POST /auth/register", "POST", "/auth/register", Map.of(
+                "username", username,
+                "email", username + "@loadgen.local",
+                "password", PASSWORD,
+                "roles", List.of(role)), null);
+    }
+
+    private String login(String username) {
+        ApiClient.Response response = api.call("POST /auth/login", "POST", "/auth/login",
+                Map.of("username", username, "password", PASSWORD), null);
+        return response.isSuccess() ? response.body().path("token").asText() : null;
+    }
+
+    // The login response has no user id, it is a claim of the token
+    private String userIdOf(String token) {
+        try {
+            JsonNode claims = objectMapper.readTree(Base64.getUrlDecoder().decode(token.split("\\.")[1]));
+            return claims.path("userId").asText();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot read the user id of the token", e);
+        }
+    }
+}
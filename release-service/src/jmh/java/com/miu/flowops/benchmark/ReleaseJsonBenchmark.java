@@ -0,0 +1,42 @@
+package com.miu.flowops.benchmark;
+
+import com.miu.flowops.model.Release;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of a release, the body of GET /releases/{id}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReleaseJsonBenchmark {
+
+    @Param({"10", "1000", "10000", "100000"})
+    private int taskCount;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private Release release;
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        release = SyntheticReleases.inProgress(taskCount);
+        json = jsonMapper.writeValueAsBytes(release);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return jsonMapper.writeValueAsBytes(release);
+    }
+
+    @Benchmark
+    public Release deserialize() {
+        return jsonMapper.readValue(json, Release.class);
+    }
+}
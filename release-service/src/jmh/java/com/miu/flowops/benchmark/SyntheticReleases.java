@@ -0,0 +1,57 @@
+package com.miu.flowops.benchmark;
+
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.util.TaskOrder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Releases shaped like the stored ones: tasks sorted on gapped order keys,
+ * the first half COMPLETED, then one IN_PROCESS task and the rest TODO.
+ */
+public final class SyntheticReleases {
+
+    private SyntheticReleases() {
+    }
+
+    public static Release inProgress(int taskCount) {
+        LocalDateTime now = LocalDateTime.now();
+        int inProcess = taskCount / 2;
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            TaskStatus status = i < inProcess ? TaskStatus.COMPLETED : i == inProcess ? TaskStatus.IN_PROCESS : TaskStatus.TODO;
+            tasks.add(Task.builder()
+                    .id(taskId(i))
+                    .title("Task " + i)
+                    .description("Synthetic task " + i + " of a release with " + taskCount + " tasks")
+                    .status(status)
+                    .developerId(status != TaskStatus.TODO ? "developer-" + (i % 50) : null)
+                    .orderIndex(TaskOrder.keyAt(i))
+                    .startedAt(status != TaskStatus.TODO ? now.minusHours(taskCount - i) : null)
+                    .completedAt(status == TaskStatus.COMPLETED ? now.minusHours(taskCount - i - 1) : null)
+                    .build());
+        }
+        return Release.builder()
+                .id("release-" + taskCount)
+                .title("Release with " + taskCount + " tasks")
+                .isCompleted(false)
+                .version(1L)
+                .tasks(tasks)
+                .tailOrderIndex(TaskOrder.tailOf(tasks))
+                .build();
+    }
+
+    public static Release completed(int taskCount) {
+        Release release = inProgress(taskCount);
+        release.getTasks().forEach(task -> task.setStatus(TaskStatus.COMPLETED));
+        return release;
+    }
+
+    public static String taskId(int position) {
+        return "task-" + position;
+    }
+}
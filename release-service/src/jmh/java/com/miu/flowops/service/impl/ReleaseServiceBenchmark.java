@@ -0,0 +1,106 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.benchmark.SyntheticReleases;
+import com.miu.flowops.config.CacheConfig;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseProgress;
+import com.miu.flowops.model.Task;
+import com.miu.flowops.repository.DeveloperWorkloadRepository;
+import com.miu.flowops.repository.ReleaseProgressRepository;
+import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.ReleaseTaskBucketStore;
+import com.miu.flowops.repository.UserRepository;
+import com.miu.flowops.service.KafkaProducerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Task lookups and validations of {@link ReleaseService} on releases of growing size.
+ * The hotfix and completion benchmarks go through the real near-cache, so every call pays the copy of the release
+ * it gets after the previous write evicted it, with the database calls stubbed out.
+ * Completion reads the release_progress counters and flips the flag with the conditional update, like a request does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReleaseServiceBenchmark {
+
+    @Param({"10", "1000", "10000", "100000"})
+    private int taskCount;
+
+    private ReleaseService releaseService;
+    private Release release;
+    private Release completedRelease;
+    private String lastTaskId;
+    private Task inProcessTask;
+    private String todoTaskId;
+
+    @Setup
+    public void setUp() {
+        release = SyntheticReleases.inProgress(taskCount);
+        completedRelease = SyntheticReleases.completed(taskCount);
+        completedRelease.setId(release.getId() + "-completed");
+        lastTaskId = SyntheticReleases.taskId(taskCount - 1);
+        inProcessTask = release.getTasks().get(taskCount / 2);
+        todoTaskId = SyntheticReleases.taskId(taskCount - 1 - (taskCount - 1) / 4);
+
+        // Stub only mocks do not record invocations, so they do not grow over millions of calls
+        ReleaseRepository releaseRepository = mock(ReleaseRepository.class, withSettings().stubOnly());
+        when(releaseRepository.findById(release.getId())).thenReturn(Optional.of(release));
+        when(releaseRepository.insertTask(eq(release.getId()), any(), any(), anyList(), anyList())).thenReturn(Optional.of(release));
+        when(releaseRepository.findById(completedRelease.getId())).thenReturn(Optional.of(completedRelease));
+        when(releaseRepository.markCompletedIfAllTasksDone(eq(completedRelease.getId()), anyList())).thenReturn(true);
+        ReleaseProgressRepository releaseProgressRepository = mock(ReleaseProgressRepository.class, withSettings().stubOnly());
+        when(releaseProgressRepository.findById(completedRelease.getId())).thenReturn(Optional.of(ReleaseProgress.builder()
+                .releaseId(completedRelease.getId())
+                .completed(taskCount)
+                .build()));
+        ReleaseCache releaseCache = new ReleaseCache(new CacheConfig(),
+                mock(KafkaProducerService.class, withSettings().stubOnly()), JsonMapper.builder().build(),
+                new SimpleMeterRegistry());
+        releaseService = new ReleaseService(releaseRepository, mock(UserRepository.class, withSettings().stubOnly()),
+                releaseProgressRepository, releaseCache,
+                mock(ReleaseEventHub.class, withSettings().stubOnly()), mock(TaskHistoryService.class, withSettings().stubOnly()),
+                mock(ReleaseTaskBucketStore.class, withSettings().stubOnly()),
+                mock(DeveloperWorkloadRepository.class, withSettings().stubOnly()));
+    }
+
+    @Benchmark
+    public Task findLastTask() {
+        return releaseService.findTask(release, lastTaskId);
+    }
+
+    @Benchmark
+    public Task validateSequentialExecution() {
+        return releaseService.validateSequentialExecution(release, inProcessTask);
+    }
+
+    @Benchmark
+    public Release completeRelease() {
+        return releaseService.completeRelease(completedRelease.getId());
+    }
+
+    @Benchmark
+    public Task addHotfixTaskAtTail() {
+        Task hotfix = Task.builder().title("Hotfix").build();
+        releaseService.addHotfixTask(release.getId(), hotfix, null);
+        return hotfix;
+    }
+
+    @Benchmark
+    public Task addHotfixTaskBefore() {
+        Task hotfix = Task.builder().title("Hotfix").build();
+        releaseService.addHotfixTask(release.getId(), hotfix, todoTaskId);
+        return hotfix;
+    }
+}
@@ -0,0 +1,28 @@
+package com.miu.flowops.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "flowops.cache")
+public class CacheConfig {
+
+    private Release release = new Release();
+
+    private CompletedRelease completedRelease = new CompletedRelease();
+
+    @Data
+    public static class Release {
+        private long maxWeight = 200_000;  // weight of a release is 1 + its number of tasks
+        private long ttlSeconds = 60;      // safety net if an invalidation from another replica is lost
+    }
+
+    @Data
+    public static class CompletedRelease {
+        private long maxBytes = 256L * 1024 * 1024;  // encoded JSON plus its gzip copy
+        private long ttlMinutes = 60;                // safety net, completed releases are evicted on every write anyway
+        private int gzipMinBytes = 2048;             // smaller bodies are sent uncompressed
+    }
+}
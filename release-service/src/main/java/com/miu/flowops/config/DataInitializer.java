@@ -10,6 +10,7 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -24,6 +25,7 @@ public class DataInitializer {
 
     @Bean
     @Profile("!test")
+    @Order(1)
     CommandLineRunner initReleaseData() {
         return args -> {
             if (releaseRepository.count() > 0) {
@@ -0,0 +1,86 @@
+package com.miu.flowops.config;
+
+import com.miu.flowops.model.DeveloperWorkload;
+import com.miu.flowops.repository.DeveloperWorkloadRepository;
+import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.ReleaseTaskBucketRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BinaryOperator;
+
+/**
+ * Reconciles the developer_workload projection with the releases collection on startup,
+ * so claims lost or left behind by a crash between the two writes in TaskService heal themselves.
+ * Only the claims that differ are written, and claims made after the reconciliation started are left
+ * to the task starts that made them, so it can run while the service already takes requests.
+ */
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class DeveloperWorkloadReconciler {
+
+    private final ReleaseRepository releaseRepository;
+    private final DeveloperWorkloadRepository developerWorkloadRepository;
+    private final ReleaseTaskBucketRepository releaseTaskBucketRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Bean
+    @Profile("!test")
+    @Order(2) // after the release data has been initialized
+    CommandLineRunner reconcileDeveloperWorkload() {
+        return args -> {
+            // A start claims before it updates the release, so a newer claim may not be visible in the tasks yet
+            LocalDateTime reconcileStart = LocalDateTime.now();
+            Map<String, DeveloperWorkload> active = new HashMap<>();
+            BinaryOperator<DeveloperWorkload> earliest = BinaryOperator.minBy(Comparator.comparing(
+                    DeveloperWorkload::getClaimedAt, Comparator.nullsLast(Comparator.naturalOrder())));
+            releaseRepository.findActiveWorkloads().forEach(w -> active.merge(w.getDeveloperId(), w, earliest));
+            releaseTaskBucketRepository.findActiveWorkloads().forEach(w -> active.merge(w.getDeveloperId(), w, earliest));
+
+            int removed = 0;
+            int updated = 0;
+            for (DeveloperWorkload claim : developerWorkloadRepository.findAll()) {
+                DeveloperWorkload expected = active.remove(claim.getDeveloperId());
+                boolean recent = claim.getClaimedAt() != null && !claim.getClaimedAt().isBefore(reconcileStart);
+                if (recent || expected != null && Objects.equals(expected.getTaskId(), claim.getTaskId())) {
+                    continue;
+                }
+                // Guarded on the task, a claim replaced meanwhile is not touched
+                Query query = Query.query(Criteria.where("_id").is(claim.getDeveloperId()).and("taskId").is(claim.getTaskId()));
+                if (expected == null) {
+                    removed += (int) mongoTemplate.remove(query, DeveloperWorkload.class).getDeletedCount();
+                } else {
+                    updated += (int) mongoTemplate.updateFirst(query, Update.update("releaseId", expected.getReleaseId())
+                            .set("taskId", expected.getTaskId())
+                            .set("claimedAt", expected.getClaimedAt()), DeveloperWorkload.class).getModifiedCount();
+                }
+            }
+            int added = 0;
+            for (DeveloperWorkload missing : active.values()) {
+                try {
+                    developerWorkloadRepository.insert(missing);
+                    added++;
+                } catch (DuplicateKeyException e) {
+                    // Claimed by a start since the claims were read
+                }
+            }
+            log.info("Reconciled developer workload projection: {} added, {} updated, {} removed", added, updated, removed);
+        };
+    }
+}
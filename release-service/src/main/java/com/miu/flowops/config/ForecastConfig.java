@@ -0,0 +1,26 @@
+package com.miu.flowops.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "flowops.forecast")
+public class ForecastConfig {
+
+    private int trials = 100_000;
+
+    // Threads of the simulation pool, 0 for one per core
+    private int parallelism = 0;
+
+    // Completed tasks of the release needed before forecasting it
+    private int minSamples = 5;
+
+    // Longer chains of TODO tasks are summed with the normal approximation instead of one draw per task
+    private int exactTaskLimit = 256;
+
+    // Forecasts are cached per release version, the TTL lets the elapsed time of the task in process catch up
+    private long cacheSize = 1000;
+    private long cacheTtlMinutes = 10;
+}
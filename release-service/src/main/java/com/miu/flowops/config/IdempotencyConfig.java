@@ -0,0 +1,22 @@
+package com.miu.flowops.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Idempotency-Key handling of the mutation endpoints. Stored responses expire after 24h (TTL index).
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "flowops.idempotency")
+public class IdempotencyConfig {
+
+    // A claim left by a crashed instance is taken over after this delay
+    private long leaseSeconds = 30;
+
+    // How long a duplicate waits for the first request before getting a 409
+    private long waitMillis = 5000;
+
+    private long pollMillis = 50;
+}
@@ -0,0 +1,103 @@
+package com.miu.flowops.config;
+
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.model.IdempotencyRecord;
+import com.miu.flowops.service.impl.IdempotencyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Mutations sent with an Idempotency-Key header are executed once, retries get the stored response
+ * with an Idempotent-Replayed header. The key is scoped to the method and the uri of the request.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Set<String> MUTATIONS = Set.of(
+            HttpMethod.POST.name(), HttpMethod.PUT.name(), HttpMethod.PATCH.name(), HttpMethod.DELETE.name());
+
+    private final IdempotencyService idempotencyService;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+
+    // Errors raised here are rendered by the GlobalExceptionHandler like the ones raised by controllers
+    public IdempotencyFilter(IdempotencyService idempotencyService,
+                             @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver) {
+        this.idempotencyService = idempotencyService;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !MUTATIONS.contains(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            handlerExceptionResolver.resolveException(request, response, null,
+                    new BadRequestException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters long"));
+            return;
+        }
+        String uri = request.getQueryString() != null
+                ? request.getRequestURI() + "?" + request.getQueryString()
+                : request.getRequestURI();
+        String id = IdempotencyRecord.idOf(request.getMethod(), uri, key);
+
+        IdempotencyRecord stored;
+        try {
+            stored = idempotencyService.execute(id, () -> {
+                ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+                try {
+                    filterChain.doFilter(request, wrapper);
+                    return IdempotencyRecord.builder()
+                            .statusCode(wrapper.getStatus())
+                            .contentType(wrapper.getContentType())
+                            .body(wrapper.getContentAsByteArray())
+                            .build();
+                } finally {
+                    wrapper.copyBodyToResponse();
+                }
+            });
+        } catch (IOException | ServletException | RuntimeException e) {
+            if (response.isCommitted()) {
+                throw e;
+            }
+            if (e instanceof RuntimeException runtimeException
+                    && handlerExceptionResolver.resolveException(request, response, null, runtimeException) != null) {
+                return;
+            }
+            throw e;
+        } catch (Exception e) {
+            throw new ServletException(e);
+        }
+        if (stored != null) {
+            response.setStatus(stored.getStatusCode());
+            if (stored.getContentType() != null) {
+                response.setContentType(stored.getContentType());
+            }
+            response.setHeader(REPLAYED_HEADER, "true");
+            if (stored.getBody() != null) {
+                response.setContentLength(stored.getBody().length);
+                response.getOutputStream().write(stored.getBody());
+            }
+        }
+    }
+}
@@ -1,42 +1,67 @@
 package com.miu.flowops.config;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.boot.kafka.autoconfigure.DefaultKafkaProducerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Map;
+
+import static com.miu.flowops.util.KafkaTopics.*;
+
 @Configuration
+@RequiredArgsConstructor
 @Slf4j
 public class KafkaConfig {
 
-    // Since, these topics are being used in other services as well, it can also be centralized.
-    private static final String TOPIC_TASK_ASSIGNED = "task-assigned-topic";
-    private static final String TOPIC_TASK_COMPLETED = "task-completed-topic";
-    private static final String TOPIC_HOTFIX_ADDED = "hotfix-task-added-topic";
-     private static final String TOPIC_STALE_TASK_REMINDER = "stale-task-reminder-topic";
+    private final KafkaTuningConfig kafkaTuningConfig;
 
     @Bean
     public NewTopic taskAssignedTopic() {
-        log.debug("Creating TOPIC : {} ", TOPIC_TASK_ASSIGNED);
-        return new NewTopic(TOPIC_TASK_ASSIGNED, 1, (short) 1);
+        return topic(TASK_ASSIGNED);
     }
 
     @Bean
     public NewTopic taskCompletedTopic() {
-        log.debug("Creating TOPIC : {} ", TOPIC_TASK_COMPLETED);
-        return new NewTopic(TOPIC_TASK_COMPLETED, 1, (short) 1);
+        return topic(TASK_COMPLETED);
     }
 
     @Bean
     public NewTopic taskHotFixAddedTopic() {
-        log.debug("Creating TOPIC : {} ", TOPIC_HOTFIX_ADDED);
-        return new NewTopic(TOPIC_HOTFIX_ADDED, 1, (short) 1);
+        return topic(HOTFIX_ADDED);
     }
 
-     @Bean
+    @Bean
     public NewTopic staleTaskDetectedTopic() {
-        log.debug("Creating TOPIC : {} ", TOPIC_STALE_TASK_REMINDER);
-        return new NewTopic(TOPIC_STALE_TASK_REMINDER, 1, (short) 1);
+        return topic(STALE_TASK_REMINDER);
     }
 
-}
\ No newline at end of file
+    @Bean
+    public NewTopic releaseChangedTopic() {
+        return topic(RELEASE_CHANGED);
+    }
+
+    @Bean
+    public NewTopic releaseTaskChangesTopic() {
+        return topic(RELEASE_TASK_CHANGES);
+    }
+
+    // Applied on top of spring.kafka.producer.*, lets the outbox relay batches fill up before they are sent
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer producerTuningCustomizer() {
+        KafkaTuningConfig.Producer producer = kafkaTuningConfig.getProducer();
+        return producerFactory -> producerFactory.updateConfigs(Map.of(
+                ProducerConfig.LINGER_MS_CONFIG, producer.getLingerMs(),
+                ProducerConfig.BATCH_SIZE_CONFIG, producer.getBatchSize(),
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, producer.getCompressionType()));
+    }
+
+    private NewTopic topic(String name) {
+        int partitions = kafkaTuningConfig.partitionsFor(name);
+        log.debug("Creating TOPIC : {} with {} partitions", name, partitions);
+        return new NewTopic(name, partitions, kafkaTuningConfig.getReplicas());
+    }
+}
@@ -0,0 +1,30 @@
+package com.miu.flowops.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "flowops.kafka")
+public class KafkaTuningConfig {
+
+    private int partitions = 6;  // Events are keyed by releaseId, so ordering per release holds with any count
+    private short replicas = 1;
+    private Map<String, Integer> topicPartitions = new HashMap<>();  // per topic override of partitions
+    private Producer producer = new Producer();
+
+    public int partitionsFor(String topic) {
+        return topicPartitions.getOrDefault(topic, partitions);
+    }
+
+    @Data
+    public static class Producer {
+        private int lingerMs = 10;
+        private int batchSize = 64 * 1024;
+        private String compressionType = "lz4";
+    }
+}
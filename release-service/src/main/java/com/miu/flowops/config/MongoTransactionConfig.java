@@ -0,0 +1,24 @@
+package com.miu.flowops.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Multi-document transactions, only used by the bucketed task storage.
+ */
+@Configuration
+public class MongoTransactionConfig {
+
+    @Bean
+    MongoTransactionManager mongoTransactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+
+    @Bean
+    TransactionTemplate mongoTransactionTemplate(MongoTransactionManager transactionManager) {
+        return new TransactionTemplate(transactionManager);
+    }
+}
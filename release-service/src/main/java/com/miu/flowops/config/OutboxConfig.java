@@ -0,0 +1,17 @@
+package com.miu.flowops.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Publishing of the release outbox events.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "flowops.outbox")
+public class OutboxConfig {
+
+    // An event Kafka rejected in this many relay runs is moved to outbox_dead_letters, so the events after it are not held up
+    private int maxAttempts = 10;
+}
@@ -0,0 +1,28 @@
+package com.miu.flowops.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "flowops.events")
+public class ReleaseEventsConfig {
+
+    // Events queued for one subscriber, a subscriber falling further behind is disconnected and resumes with Last-Event-ID
+    private int bufferSize = 256;
+
+    // Events kept per release for resuming subscribers
+    private int historySize = 512;
+
+    // History of a release without subscribers is dropped after this idle time
+    private long historyTtlMinutes = 30;
+
+    private long heartbeatSeconds = 15;
+
+    // Changes kept in each release for GET /releases/{id}/changes, older versions get a resync
+    private int changeLogSize = 200;
+
+    // Clients reconnect after this, 0 lets the stream stay open
+    private long timeoutMinutes = 30;
+}
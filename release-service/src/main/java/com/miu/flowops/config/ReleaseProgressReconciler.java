@@ -0,0 +1,133 @@
+package com.miu.flowops.config;
+
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseProgress;
+import com.miu.flowops.repository.ReleaseProgressRepository;
+import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.ReleaseTaskBucketRepository;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Reconciles the release_progress view with the releases collection on startup,
+ * so counters that drifted because of a crash between a release write and its $inc heal themselves.
+ * Only the counters that differ are written, each guarded on the values it was compared with, so it can run
+ * while the service already takes requests without losing the $inc of a concurrent transition.
+ */
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class ReleaseProgressReconciler {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ReleaseRepository releaseRepository;
+    private final ReleaseProgressRepository releaseProgressRepository;
+    private final ReleaseTaskBucketRepository releaseTaskBucketRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Bean
+    @Profile("!test")
+    @Order(3) // after the release data has been initialized
+    CommandLineRunner reconcileReleaseProgress() {
+        return args -> {
+            Map<String, ReleaseProgress> stored = new HashMap<>();
+            releaseProgressRepository.findAll().forEach(progress -> stored.put(progress.getReleaseId(), progress));
+
+            int written = 0;
+            int pending = 0;
+            BulkOperations bulk = bulkOps();
+            try (Stream<ReleaseProgress> progress = Stream.concat(releaseRepository.streamProgress(),
+                    releaseTaskBucketRepository.streamProgress())) {
+                Iterator<ReleaseProgress> iterator = progress.iterator();
+                while (iterator.hasNext()) {
+                    ReleaseProgress expected = iterator.next();
+                    ReleaseProgress current = stored.remove(expected.getReleaseId());
+                    if (expected.equals(current)) {
+                        continue;
+                    }
+                    if (current == null) {
+                        // Created by a release write meanwhile, that one wins
+                        bulk.upsert(Query.query(Criteria.where("_id").is(expected.getReleaseId())), counters(expected, true));
+                    } else {
+                        // Guarded on the values compared, a counter moved by a transition meanwhile is not touched
+                        bulk.updateOne(Query.query(Criteria.where("_id").is(current.getReleaseId())
+                                .and("todo").is(current.getTodo())
+                                .and("inProcess").is(current.getInProcess())
+                                .and("completed").is(current.getCompleted())
+                                .and("nextOrderIndex").is(current.getNextOrderIndex())), counters(expected, false));
+                    }
+                    if (++pending == BATCH_SIZE) {
+                        written += write(bulk);
+                        bulk = bulkOps();
+                        pending = 0;
+                    }
+                }
+            }
+            if (pending > 0) {
+                written += write(bulk);
+            }
+            int removed = removeOrphans(stored.keySet());
+            log.info("Reconciled release progress view: {} written, {} removed", written, removed);
+        };
+    }
+
+    private BulkOperations bulkOps() {
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReleaseProgress.class);
+    }
+
+    private static Update counters(ReleaseProgress progress, boolean onInsert) {
+        if (onInsert) {
+            return new Update().setOnInsert("todo", progress.getTodo())
+                    .setOnInsert("inProcess", progress.getInProcess())
+                    .setOnInsert("completed", progress.getCompleted())
+                    .setOnInsert("nextOrderIndex", progress.getNextOrderIndex());
+        }
+        return Update.update("todo", progress.getTodo())
+                .set("inProcess", progress.getInProcess())
+                .set("completed", progress.getCompleted())
+                .set("nextOrderIndex", progress.getNextOrderIndex());
+    }
+
+    private static int write(BulkOperations bulk) {
+        BulkWriteResult result = bulk.execute();
+        return result.getModifiedCount() + result.getUpserts().size();
+    }
+
+    /**
+     * Removes the counters of releases that no longer exist, re-checked because a release may have been created
+     * after the releases were read.
+     */
+    private int removeOrphans(Set<String> releaseIds) {
+        if (releaseIds.isEmpty()) {
+            return 0;
+        }
+        Set<String> orphans = new HashSet<>(releaseIds);
+        Query existing = Query.query(Criteria.where("_id").in(releaseIds));
+        existing.fields().include("_id");
+        mongoTemplate.find(existing, Release.class).forEach(release -> orphans.remove(release.getId()));
+        if (orphans.isEmpty()) {
+            return 0;
+        }
+        return (int) mongoTemplate.remove(Query.query(Criteria.where("_id").in(orphans)), ReleaseProgress.class)
+                .getDeletedCount();
+    }
+}
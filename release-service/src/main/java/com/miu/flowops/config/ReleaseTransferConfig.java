@@ -0,0 +1,21 @@
+package com.miu.flowops.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "flowops.transfer")
+public class ReleaseTransferConfig {
+
+    // Documents read from the cursor per round trip during an export
+    private int exportBatchSize = 200;
+
+    // An import batch is written when it reaches either limit, the request body is not read meanwhile
+    private int importBatchSize = 500;
+    private int importBatchBytes = 8 * 1024 * 1024;
+
+    // A document is at most 16MB of BSON, its extended JSON is somewhat larger
+    private int maxLineLength = 32 * 1024 * 1024;
+}
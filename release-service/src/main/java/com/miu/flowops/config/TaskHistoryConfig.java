@@ -0,0 +1,20 @@
+package com.miu.flowops.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "flowops.history")
+public class TaskHistoryConfig {
+
+    // A release is snapshotted every this many versions, which bounds the task_events replayed to rebuild it
+    private int snapshotEvery = 500;
+
+    // Tasks per snapshot document
+    private int chunkSize = 1000;
+
+    // Most entries returned by one history query
+    private int maxEvents = 5000;
+}
@@ -0,0 +1,22 @@
+package com.miu.flowops.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Single-writer mode of the task endpoints, see {@link com.miu.flowops.service.impl.TaskMailboxService}.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "flowops.mailbox")
+public class TaskMailboxConfig {
+
+    private boolean enabled = false;
+
+    // Commands written together by one group commit
+    private int maxBatchSize = 256;
+
+    // Attempts of a group commit when the release is changed outside the mailbox (other instance, hotfix, assign)
+    private int maxAttempts = 5;
+}
@@ -0,0 +1,22 @@
+package com.miu.flowops.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bucketed task storage. Its writes span the release and its buckets in one transaction,
+ * so it needs MongoDB running as a replica set and is off unless enabled here.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "flowops.storage")
+public class TaskStorageConfig {
+
+    private int bucketSize = 500;
+
+    // Releases with more tasks than this are moved to buckets by the background migration
+    private int migrateAbove = 2000;
+
+    private boolean migrationEnabled = false;
+}
@@ -0,0 +1,27 @@
+package com.miu.flowops.controller;
+
+import com.miu.flowops.dto.CycleTimeStats;
+import com.miu.flowops.service.impl.TaskAnalyticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/analytics")
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    private final TaskAnalyticsService taskAnalyticsService;
+
+    @GetMapping("/developers/{developerId}")
+    public ResponseEntity<CycleTimeStats> getDeveloperStats(@PathVariable String developerId,
+                                                            @RequestParam(defaultValue = "30") int days) {
+        return ResponseEntity.ok(taskAnalyticsService.getDeveloperStats(developerId, days));
+    }
+
+    @GetMapping("/releases/{releaseId}")
+    public ResponseEntity<CycleTimeStats> getReleaseStats(@PathVariable String releaseId,
+                                                          @RequestParam(defaultValue = "30") int days) {
+        return ResponseEntity.ok(taskAnalyticsService.getReleaseStats(releaseId, days));
+    }
+}
@@ -0,0 +1,34 @@
+package com.miu.flowops.controller;
+
+import com.miu.flowops.dto.CursorPage;
+import com.miu.flowops.dto.DeveloperTask;
+import com.miu.flowops.dto.DeveloperWorkloadSummary;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.service.impl.DeveloperTaskService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/developers")
+@RequiredArgsConstructor
+public class DeveloperController {
+
+    private final DeveloperTaskService developerTaskService;
+
+    @GetMapping("/{developerId}/tasks")
+    public ResponseEntity<CursorPage<DeveloperTask>> getTasks(@PathVariable String developerId,
+                                                              @RequestParam(required = false) TaskStatus status,
+                                                              @RequestParam(defaultValue = "STATUS") DeveloperTask.SortBy sort,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(developerTaskService.getTasks(developerId, status, sort, cursor, limit));
+    }
+
+    // Task counts of every developer, ordered by developerId
+    @GetMapping("/workload")
+    public ResponseEntity<CursorPage<DeveloperWorkloadSummary>> getWorkload(@RequestParam(required = false) String cursor,
+                                                                            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(developerTaskService.getWorkload(cursor, limit));
+    }
+}
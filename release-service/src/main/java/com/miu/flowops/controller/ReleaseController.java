@@ -1,13 +1,39 @@
 package com.miu.flowops.controller;
 
+import com.miu.flowops.dto.CursorPage;
+import com.miu.flowops.dto.EncodedRelease;
+import com.miu.flowops.dto.ReleaseChanges;
+import com.miu.flowops.dto.ReleaseForecast;
+import com.miu.flowops.dto.ReleaseImportResult;
+import com.miu.flowops.dto.ReleaseSummary;
 import com.miu.flowops.exceptions.BadRequestException;
 import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseProgress;
 import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskEvent;
+import com.miu.flowops.service.impl.ReleaseEventHub;
+import com.miu.flowops.service.impl.ReleaseForecastService;
 import com.miu.flowops.service.impl.ReleaseService;
+import com.miu.flowops.service.impl.ReleaseTransferService;
+import com.miu.flowops.service.impl.TaskBucketMigrationService;
+import com.miu.flowops.service.impl.TaskHistoryService;
+import com.miu.flowops.util.ReleaseFields;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/releases")
@@ -15,6 +41,11 @@ import org.springframework.web.bind.annotation.*;
 public class ReleaseController {
 
     private final ReleaseService releaseService;
+    private final TaskBucketMigrationService taskBucketMigrationService;
+    private final ReleaseEventHub releaseEventHub;
+    private final ReleaseTransferService releaseTransferService;
+    private final TaskHistoryService taskHistoryService;
+    private final ReleaseForecastService releaseForecastService;
 
     @PostMapping
     public ResponseEntity<Release> createRelease(@RequestBody Release release, @RequestHeader("X-User-Roles") String roles) {
@@ -25,10 +56,129 @@ public class ReleaseController {
                 .body(releaseService.createRelease(release));
     }
 
+    // Written straight to the response from a cursor, so neither the heap nor an async timeout limits the size
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void exportReleases(@RequestHeader("X-User-Roles") String roles, HttpServletResponse response) throws IOException {
+        if (!roles.contains("ADMIN")) {
+            throw new BadRequestException("Unauthorized access");
+        }
+        response.setContentType("application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"releases.ndjson\"");
+        releaseTransferService.exportTo(response.getOutputStream());
+    }
+
+    // The body is read as it is written to the database, the output of /export can be posted as is
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<ReleaseImportResult> importReleases(@RequestHeader("X-User-Roles") String roles,
+                                                              @RequestParam(defaultValue = "UPSERT") ReleaseTransferService.ImportMode mode,
+                                                              HttpServletRequest request) throws IOException {
+        if (!roles.contains("ADMIN")) {
+            throw new BadRequestException("Unauthorized access");
+        }
+        return ResponseEntity.ok(releaseTransferService.importFrom(request.getInputStream(), mode));
+    }
+
+    @GetMapping
+    public ResponseEntity<CursorPage<ReleaseSummary>> listReleases(@RequestParam(required = false) Boolean completed,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(releaseService.listReleases(completed, cursor, limit));
+    }
+
+    // Written as pre-encoded bytes, completed releases come from the encoded cache and may be sent gzipped.
+    // fields= selects a sparse fieldset, e.g. fields=title,tasks.id,tasks.title,tasks.status
     @GetMapping("/{id}")
-    public ResponseEntity<Release> getRelease(@PathVariable String id) {
-        return ResponseEntity
-                .ok(releaseService.getRelease(id));
+    public ResponseEntity<byte[]> getRelease(@PathVariable String id,
+                                             @RequestParam(required = false) String fields,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // The version changes on every write, a matching If-None-Match is answered with 304 before anything is encoded
+        List<ETag> clientTags = ifNoneMatch != null ? ETag.parse(ifNoneMatch) : List.of();
+        long[] version = new long[1];
+        if (fields != null) {
+            ReleaseFields selection = ReleaseFields.parse(fields);
+            String selectionTag = "-" + Integer.toHexString(selection.toString().hashCode());
+            EncodedRelease release = releaseService.getEncodedRelease(id, selection, current -> {
+                version[0] = current;
+                return matches(clientTags, current + selectionTag);
+            });
+            if (release == null) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(version[0] + selectionTag).build();
+            }
+            return ResponseEntity
+                    .ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(release.getVersion() + selectionTag)
+                    .body(release.getJson());
+        }
+        EncodedRelease release = releaseService.getEncodedRelease(id, current -> {
+            version[0] = current;
+            return matches(clientTags, String.valueOf(current));
+        });
+        if (release == null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(String.valueOf(version[0]))
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        // Cached completed bodies are compared by Spring, they cost nothing to produce
+        boolean gzip = release.getGzip() != null && acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity
+                .ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(release.getVersion() + (gzip ? "-gzip" : ""))
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(release.getGzip());
+        }
+        return response.body(release.getJson());
+    }
+
+    @GetMapping("/{releaseId}/progress")
+    public ResponseEntity<ReleaseProgress> getProgress(@PathVariable String releaseId) {
+        return ResponseEntity.ok(releaseService.getProgress(releaseId));
+    }
+
+    // When the release is done with 50/85/95% confidence, simulated from the cycle times of its completed tasks
+    @GetMapping("/{releaseId}/forecast")
+    public ResponseEntity<ReleaseForecast> getForecast(@PathVariable String releaseId) {
+        return ResponseEntity.ok(releaseForecastService.getForecast(releaseId));
+    }
+
+    // Only the tasks changed after version since, instead of the whole release. fields= selects their fields as on GET /{id}
+    @GetMapping("/{releaseId}/changes")
+    public ResponseEntity<?> getChanges(@PathVariable String releaseId, @RequestParam long since,
+                                        @RequestParam(required = false) String fields) {
+        if (fields != null) {
+            return ResponseEntity
+                    .ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(releaseService.getEncodedChanges(releaseId, since, ReleaseFields.parse(fields)));
+        }
+        return ResponseEntity.ok(releaseService.getChanges(releaseId, since));
+    }
+
+    // Task transitions written in [from, to), the last day by default
+    @GetMapping("/{releaseId}/history")
+    public ResponseEntity<List<TaskEvent>> getHistory(@PathVariable String releaseId,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                      @RequestParam(defaultValue = "1000") int limit) {
+        return ResponseEntity.ok(taskHistoryService.getHistory(releaseId, from, to, limit));
+    }
+
+    @GetMapping("/{releaseId}/as-of")
+    public ResponseEntity<Release> getReleaseAsOf(@PathVariable String releaseId,
+                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(taskHistoryService.getReleaseAsOf(releaseId, at));
+    }
+
+    // Task changes as they are written, the event id is the release version so a reconnecting client resumes with Last-Event-ID
+    @GetMapping(value = "/{releaseId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@PathVariable String releaseId,
+                                   @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Release release = releaseService.getRelease(releaseId);
+        return releaseEventHub.subscribe(releaseId, lastEventId, release.getVersion());
     }
 
     @PostMapping("/{releaseId}/tasks/{taskId}/assign/{developerId}")
@@ -42,11 +192,12 @@ public class ReleaseController {
     @PostMapping("/{releaseId}/hotfix")
     public ResponseEntity<String> addHotfixTask(@PathVariable String releaseId,
                                                 @RequestBody Task task,
+                                                @RequestParam(required = false) String beforeTaskId,
                                                 @RequestHeader("X-User-Roles") String roles) {
         if(!roles.contains("ADMIN")) {
             throw new BadRequestException("Unauthorized access");
         }
-        releaseService.addHotfixTask(releaseId, task);
+        releaseService.addHotfixTask(releaseId, task, beforeTaskId);
         return ResponseEntity.ok("Hotfix task added successfully");
     }
 
@@ -58,6 +209,15 @@ public class ReleaseController {
         return ResponseEntity.ok(releaseService.completeRelease(releaseId));
     }
 
+    @PostMapping("/{releaseId}/storage/bucketed")
+    public ResponseEntity<Void> migrateToBuckets(@PathVariable String releaseId, @RequestHeader("X-User-Roles") String roles) {
+        if(!roles.contains("ADMIN")) {
+            throw new BadRequestException("Unauthorized access");
+        }
+        taskBucketMigrationService.migrate(releaseId);
+        return ResponseEntity.noContent().build();
+    }
+
     @DeleteMapping("/{releaseId}")
     public ResponseEntity<Void> deleteRelease(@PathVariable String releaseId, @RequestHeader("X-User-Roles") String roles) {
         if(!roles.contains("ADMIN")) {
@@ -66,4 +226,41 @@ public class ReleaseController {
         releaseService.deleteRelease(releaseId);
         return ResponseEntity.noContent().build();
     }
+
+    // Weak comparison, as for any If-None-Match
+    private static boolean matches(List<ETag> clientTags, String etag) {
+        ETag current = new ETag(etag, false);
+        return clientTags.stream().anyMatch(tag -> tag.isWildcard() || tag.compare(current, false));
+    }
+
+    // gzip unless refused with q=0, either by name or through a * that is not overridden
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = q;
+            } else if (name.equals("*")) {
+                any = q;
+            }
+        }
+        double q = gzip != null ? gzip : any != null ? any : 0;
+        return q > 0;
+    }
 }
@@ -1,5 +1,9 @@
 package com.miu.flowops.controller;
 
+import com.miu.flowops.dto.TaskBatchRequest;
+import com.miu.flowops.dto.TaskBatchResponse;
+import com.miu.flowops.service.ITaskService;
+import com.miu.flowops.service.impl.TaskMailboxService;
 import com.miu.flowops.service.impl.TaskService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -10,14 +14,19 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class TaskController {
     private final TaskService taskService;
+    private final TaskMailboxService taskMailboxService;
 
+    // Commands go through the per-release mailboxes when the single-writer mode is enabled
+    private ITaskService tasks() {
+        return taskMailboxService.isEnabled() ? taskMailboxService : taskService;
+    }
 
     @PostMapping("/{releaseId}/devs/{developerId}/start/{taskId}")
     public ResponseEntity<String> startTask(@PathVariable String releaseId,
                                             @PathVariable String developerId,
                                             @PathVariable String taskId
                                            ) {
-        taskService.startTask(releaseId, taskId, developerId);
+        tasks().startTask(releaseId, taskId, developerId);
         return ResponseEntity.ok("Task started successfully");
     }
 
@@ -26,7 +35,14 @@ public class TaskController {
                                                @PathVariable String developerId,
                                                @PathVariable String taskId
                                                ) {
-        taskService.completeTask(releaseId, taskId, developerId);
+        tasks().completeTask(releaseId, taskId, developerId);
         return ResponseEntity.ok("Task completed successfully");
     }
+
+    // Applies assign/start/complete operations against one release with a single write
+    @PostMapping("/{releaseId}/batch")
+    public ResponseEntity<TaskBatchResponse> applyBatch(@PathVariable String releaseId,
+                                                        @RequestBody TaskBatchRequest request) {
+        return ResponseEntity.ok(tasks().applyBatch(releaseId, request));
+    }
 }
@@ -0,0 +1,36 @@
+package com.miu.flowops.dto;
+
+import com.miu.flowops.model.CycleTimeRollup;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Cycle times are from start to completion in seconds, the percentiles are null until a task is completed
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CycleTimeStats {
+    private CycleTimeRollup.Scope scope;
+    private String key;
+    private long completedTasks;
+    private Long meanSeconds;
+    private Long p50Seconds;
+    private Long p90Seconds;
+    private Long p99Seconds;
+    private Long maxSeconds;
+    // Oldest day first, days without completions included
+    private List<DailyThroughput> throughput;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class DailyThroughput {
+        private LocalDate day;
+        private long completed;
+    }
+}
@@ -0,0 +1,31 @@
+package com.miu.flowops.dto;
+
+import com.miu.flowops.model.TaskStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Task assigned to a developer, flattened out of the release (or bucket) holding it
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeveloperTask {
+    private String releaseId;
+    private String taskId;
+    private String title;
+    private TaskStatus status;
+    private Integer orderIndex;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    public enum SortBy {
+        // IN_PROCESS, then TODO, then COMPLETED, most recently started first within a status
+        STATUS,
+        // Most recently started first, tasks not started yet last
+        STARTED_AT
+    }
+}
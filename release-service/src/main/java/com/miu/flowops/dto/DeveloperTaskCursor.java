@@ -0,0 +1,55 @@
+package com.miu.flowops.dto;
+
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.model.TaskStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.Base64;
+
+/**
+ * Keyset position in a list of developer tasks, the sort keys of the last task of a page.
+ * The list is sorted ascending on (rank, startedKey, key): rank orders the statuses when sorting by status
+ * and is 0 otherwise, startedKey is minus the start time in epoch millis (0 when not started)
+ * and key is releaseId/taskId, which makes the order total.
+ */
+@Data
+@AllArgsConstructor
+public class DeveloperTaskCursor {
+    private int rank;
+    private long startedKey;
+    private String key;
+
+    public static DeveloperTaskCursor of(DeveloperTask task, DeveloperTask.SortBy sortBy) {
+        // Dates are stored in the default zone, like the converter writing them
+        long startedKey = task.getStartedAt() != null
+                ? -task.getStartedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0;
+        return new DeveloperTaskCursor(sortBy == DeveloperTask.SortBy.STATUS ? rankOf(task.getStatus()) : 0,
+                startedKey, task.getReleaseId() + "/" + task.getTaskId());
+    }
+
+    public static int rankOf(TaskStatus status) {
+        return switch (status) {
+            case IN_PROCESS -> 0;
+            case TODO -> 1;
+            case COMPLETED -> 2;
+        };
+    }
+
+    public String encode() {
+        String value = rank + ":" + startedKey + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static DeveloperTaskCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+            return new DeveloperTaskCursor(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), parts[2]);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.miu.flowops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Task counts of a developer across all releases, with the task currently claimed if any
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeveloperWorkloadSummary {
+    private String developerId;
+    private long todoTasks;
+    private long inProcessTasks;
+    private long completedTasks;
+    private String currentReleaseId;
+    private String currentTaskId;
+    private LocalDateTime claimedAt;
+}
@@ -0,0 +1,17 @@
+package com.miu.flowops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// JSON body of GET /releases/{id}, gzip is only set for bodies worth compressing
+@Getter
+@AllArgsConstructor
+public class EncodedRelease {
+    private final long version;
+    private final byte[] json;
+    private final byte[] gzip;
+
+    public int size() {
+        return json.length + (gzip != null ? gzip.length : 0);
+    }
+}
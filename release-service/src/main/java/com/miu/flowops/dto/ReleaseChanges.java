@@ -0,0 +1,24 @@
+package com.miu.flowops.dto;
+
+import com.miu.flowops.model.Task;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Tasks changed after version since, in their current state. With resync the client has to reload the release instead.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReleaseChanges {
+    private String releaseId;
+    private long since;
+    // Pass it back as since on the next call
+    private long version;
+    private Boolean isCompleted;
+    private boolean resync;
+    private List<Task> tasks;
+}
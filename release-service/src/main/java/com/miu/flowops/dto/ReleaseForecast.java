@@ -0,0 +1,28 @@
+package com.miu.flowops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Time the release is done with 50/85/95% confidence, from trials over the cycle times of its completed tasks
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReleaseForecast {
+    private String releaseId;
+    private Long version;
+    private int remainingTasks;
+    private int sampleSize;
+    private int trials;
+    private long p50Seconds;
+    private long p85Seconds;
+    private long p95Seconds;
+    private LocalDateTime p50FinishAt;
+    private LocalDateTime p85FinishAt;
+    private LocalDateTime p95FinishAt;
+    private LocalDateTime computedAt;
+}
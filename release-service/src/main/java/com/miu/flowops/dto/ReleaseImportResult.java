@@ -0,0 +1,18 @@
+package com.miu.flowops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReleaseImportResult {
+    private long lines;
+    private long releases;
+    private long taskBuckets;
+    // Documents already present, only in INSERT mode
+    private long skipped;
+}
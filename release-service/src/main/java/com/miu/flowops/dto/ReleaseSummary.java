@@ -0,0 +1,23 @@
+package com.miu.flowops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+// Release without its tasks, the counters are computed by the database
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReleaseSummary {
+    @Id
+    private String id;
+    private String title;
+    private Boolean isCompleted;
+    private Long version;
+    private int totalTasks;
+    private int completedTasks;
+    private int inProcessTasks;
+}
@@ -0,0 +1,30 @@
+package com.miu.flowops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Changes made by one write to a release, pushed to the subscribers of GET /releases/{id}/events.
+ * The version is the one of the release after the write and serves as SSE event id,
+ * it is null for the writes whose resulting version is not known (release completion and deletion).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReleaseTaskChangesEvent implements Serializable {
+    private String releaseId;
+    private Long version;
+    private List<TaskDelta> tasks;
+    private Boolean completed;
+    private boolean deleted;
+    // Too many tasks changed to send them (renumbering), the client has to reload the release
+    private boolean resync;
+    // Instance that made the write, it already delivered the event to its own subscribers
+    private String origin;
+}
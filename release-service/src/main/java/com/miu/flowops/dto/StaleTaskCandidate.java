@@ -0,0 +1,19 @@
+package com.miu.flowops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Flattened IN_PROCESS task streamed by the stale task detector
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StaleTaskCandidate {
+    private String releaseId;
+    private String taskId;
+    private String taskTitle;
+    private String developerId;
+    private LocalDateTime startedAt;
+}
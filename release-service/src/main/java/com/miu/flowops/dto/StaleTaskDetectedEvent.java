@@ -7,6 +7,7 @@ import lombok.Data;
 @Builder
 public class StaleTaskDetectedEvent {
     private String developerId;
+    private String releaseId;
     private String email;
     private String taskId;
     private String taskTitle;
@@ -0,0 +1,17 @@
+package com.miu.flowops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Operations are applied in order, so a later operation sees the effect of the earlier ones
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskBatchRequest {
+    private List<TaskCommand> operations;
+}
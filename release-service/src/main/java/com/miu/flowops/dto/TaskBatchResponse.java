@@ -0,0 +1,18 @@
+package com.miu.flowops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskBatchResponse {
+    private String releaseId;
+    private int applied;
+    private List<TaskCommandResult> results;
+}
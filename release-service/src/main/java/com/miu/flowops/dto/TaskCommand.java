@@ -0,0 +1,22 @@
+package com.miu.flowops.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskCommand {
+    private Type type;
+    private String taskId;
+    private String developerId;
+
+    public enum Type {
+        ASSIGN,
+        START,
+        COMPLETE
+    }
+}
@@ -0,0 +1,23 @@
+package com.miu.flowops.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskCommandResult {
+    private int index;
+    private TaskCommand.Type type;
+    private String taskId;
+    private boolean success;
+    private String message;
+
+    // Why the command was rejected, rethrown as-is when it was sent on its own so the status matches the direct path
+    @JsonIgnore
+    private RuntimeException error;
+}
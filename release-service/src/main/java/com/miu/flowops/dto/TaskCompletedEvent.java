@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.io.Serializable;
+import java.time.LocalDateTime;
 
 
 @Data
@@ -18,4 +19,6 @@ public class TaskCompletedEvent implements Serializable{
     private String taskTitle;
     private String email;
     private String message;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
 }
@@ -0,0 +1,36 @@
+package com.miu.flowops.dto;
+
+import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// State of a task after a change, without its title and description
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskDelta implements Serializable {
+    private String taskId;
+    private TaskStatus status;
+    private String developerId;
+    private Integer orderIndex;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    public static TaskDelta of(Task task) {
+        return TaskDelta.builder()
+                .taskId(task.getId())
+                .status(task.getStatus())
+                .developerId(task.getDeveloperId())
+                .orderIndex(task.getOrderIndex())
+                .startedAt(task.getStartedAt())
+                .completedAt(task.getCompletedAt())
+                .build();
+    }
+}
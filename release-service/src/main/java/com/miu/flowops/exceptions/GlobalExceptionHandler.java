@@ -25,4 +25,12 @@ public class GlobalExceptionHandler {
                 .status(HttpStatus.BAD_REQUEST)
                 .body(ApiErrorResponse.error(ex.getMessage()));
     }
+
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<@NonNull ApiErrorResponse> handleConflictException(ConflictException ex) {
+        log.error("Conflict Encountered: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(ApiErrorResponse.error(ex.getMessage()));
+    }
 }
@@ -0,0 +1,48 @@
+package com.miu.flowops.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+
+/**
+ * Cycle times and daily throughput of the tasks completed by one developer or in one release.
+ * Only ever updated with $inc and $max, so concurrent completions need no coordination and a read is a single lookup.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "cycle_time_rollups")
+public class CycleTimeRollup {
+    // SCOPE:key
+    @Id
+    private String id;
+
+    private Scope scope;
+
+    // developerId or releaseId
+    private String key;
+
+    private long count;
+
+    private long totalSeconds;
+
+    private long maxSeconds;
+
+    // CycleTimeSketch bucket index -> tasks
+    private Map<String, Long> sketch;
+
+    // yyyy-MM-dd of completion -> tasks
+    private Map<String, Long> daily;
+
+    public enum Scope {
+        DEVELOPER,
+        RELEASE
+    }
+
+    public static String idOf(Scope scope, String key) {
+        return scope + ":" + key;
+    }
+}
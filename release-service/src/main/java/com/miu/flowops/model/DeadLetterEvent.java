@@ -0,0 +1,41 @@
+package com.miu.flowops.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox event that could not be published after the configured number of attempts.
+ * Kept with its payload so it can be inspected and republished by hand, keyed by the event id.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "outbox_dead_letters")
+public class DeadLetterEvent {
+    @Id
+    private String id;
+    private String releaseId;
+    private String topic;
+    private String key;
+    private Object payload;
+    private LocalDateTime createdAt;
+    private int attempts;
+    private LocalDateTime deadLetteredAt;
+
+    public static DeadLetterEvent of(String releaseId, OutboxEvent event) {
+        return DeadLetterEvent.builder()
+                .id(event.getId())
+                .releaseId(releaseId)
+                .topic(event.getTopic())
+                .key(event.getKey())
+                .payload(event.getPayload())
+                .createdAt(event.getCreatedAt())
+                .attempts(event.getAttempts())
+                .deadLetteredAt(LocalDateTime.now())
+                .build();
+    }
+}
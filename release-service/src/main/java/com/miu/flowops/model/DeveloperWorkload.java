@@ -0,0 +1,27 @@
+package com.miu.flowops.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the single IN_PROCESS task a developer is allowed to work on.
+ * The developerId is the document key, so the unique _id index is what enforces the constraint.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "developer_workload")
+public class DeveloperWorkload {
+    @Id
+    private String developerId;
+
+    private String releaseId;
+
+    private String taskId;
+
+    private LocalDateTime claimedAt;
+}
@@ -0,0 +1,42 @@
+package com.miu.flowops.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response of a mutation sent with an Idempotency-Key, replayed to retries of the same request.
+ * While the first request runs the record is only a claim held by {@code owner} until {@code lockedUntil}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+    // METHOD uri:key
+    @Id
+    private String id;
+
+    private String owner;
+
+    private LocalDateTime lockedUntil;
+
+    private boolean completed;
+
+    private int statusCode;
+
+    private String contentType;
+
+    private byte[] body;
+
+    @Indexed(expireAfter = "24h")
+    private LocalDateTime createdAt;
+
+    public static String idOf(String method, String uri, String key) {
+        return method + " " + uri + ":" + key;
+    }
+}
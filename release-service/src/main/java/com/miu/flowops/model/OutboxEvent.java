@@ -0,0 +1,37 @@
+package com.miu.flowops.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Kafka event waiting to be published, embedded in the release it belongs to.
+ * It is pushed by the same update that changes the release, so the event exists if and only if the change does.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+    @Id
+    private String id;
+    private String topic;
+    private String key;
+    private Object payload;
+    private LocalDateTime createdAt;
+
+    // Relay runs in which Kafka rejected the event, see OutboxConfig
+    private int attempts;
+
+    public static OutboxEvent of(String topic, String key, Object payload) {
+        return OutboxEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .topic(topic)
+                .key(key)
+                .payload(payload)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
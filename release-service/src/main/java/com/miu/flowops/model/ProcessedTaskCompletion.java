@@ -0,0 +1,26 @@
+package com.miu.flowops.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks a TaskCompletedEvent as counted in the rollups, so a redelivered event is not counted twice.
+ * A task is completed at most once, so its id is the key.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "analytics_processed_tasks")
+public class ProcessedTaskCompletion {
+    @Id
+    private String taskId;
+
+    // Redeliveries only happen shortly after the event, older markers are dropped
+    @Indexed(expireAfter = "30d")
+    private LocalDateTime processedAt;
+}
@@ -1,16 +1,26 @@
 package com.miu.flowops.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "releases")
+@CompoundIndexes({
+        @CompoundIndex(name = "tasks_status_startedAt", def = "{ 'tasks.status': 1, 'tasks.startedAt': 1 }"),
+        @CompoundIndex(name = "tasks_developerId_status", def = "{ 'tasks.developerId': 1, 'tasks.status': 1 }"),
+        @CompoundIndex(name = "isCompleted_id", def = "{ 'isCompleted': 1, '_id': 1 }"),
+        @CompoundIndex(name = "outbox_createdAt", def = "{ 'outbox.createdAt': 1 }", sparse = true),
+        @CompoundIndex(name = "history_at", def = "{ 'history.at': 1 }", sparse = true)
+})
 public class Release {
     @Id
     private String id;
@@ -19,6 +29,29 @@ public class Release {
 
     private Boolean isCompleted;
 
+    // Incremented by every write, used for optimistic concurrency on whole-release updates
+    private Long version;
+
+    // null means EMBEDDED
+    private TaskStorage taskStorage;
+
+    // Sorted by orderIndex, see TaskOrder. For bucketed releases this is a lazy view over the release_tasks buckets
     private List<Task> tasks;
+
+    // orderIndex of the last task, so appending does not scan the tasks
+    private Integer tailOrderIndex;
+
+    // Last changes, one entry per version bump: the last entry produced the current version, the one before it
+    // the previous version and so on. Kept to flowops.events.change-log-size entries, see ReleaseChangeLog
+    @JsonIgnore
+    private List<ReleaseChange> changes;
+
+    // Pending events, drained by the OutboxRelayService
+    @JsonIgnore
+    private List<OutboxEvent> outbox;
+
+    // Task history entries pushed by the write they describe, moved to task_events by the TaskHistoryService
+    @JsonIgnore
+    private List<TaskEvent> history;
 }
 
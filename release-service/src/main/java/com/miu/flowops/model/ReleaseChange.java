@@ -0,0 +1,35 @@
+package com.miu.flowops.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Entry of the change log embedded in a release, pushed by the same update that bumps the version.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReleaseChange {
+    // Tasks written by the change, empty when only the release itself changed
+    private List<String> taskIds;
+
+    // Any task may have changed (renumbering), readers have to reload the whole release
+    private boolean resync;
+
+    public static ReleaseChange ofTasks(List<String> taskIds) {
+        return ReleaseChange.builder().taskIds(taskIds).build();
+    }
+
+    public static ReleaseChange ofRelease() {
+        return ReleaseChange.builder().taskIds(List.of()).build();
+    }
+
+    public static ReleaseChange ofAllTasks() {
+        return ReleaseChange.builder().taskIds(List.of()).resync(true).build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.miu.flowops.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Task counters of a release, kept up to date with $inc on every task transition,
+ * so completion checks and progress reads do not have to scan the tasks.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "release_progress")
+public class ReleaseProgress {
+    @Id
+    private String releaseId;
+
+    private int todo;
+
+    private int inProcess;
+
+    private int completed;
+
+    // orderIndex of the first task that is not completed yet, i.e. the one running or runnable next; null when all are done
+    private Integer nextOrderIndex;
+
+    public int getTotal() {
+        return todo + inProcess + completed;
+    }
+
+    public boolean isAllTasksDone() {
+        return todo == 0 && inProcess == 0;
+    }
+
+    public static String countField(TaskStatus status) {
+        return switch (status) {
+            case TODO -> "todo";
+            case IN_PROCESS -> "inProcess";
+            case COMPLETED -> "completed";
+        };
+    }
+
+    /**
+     * Counter deltas of a single task moving from one status to another.
+     */
+    public static Map<TaskStatus, Integer> transition(TaskStatus from, TaskStatus to) {
+        Map<TaskStatus, Integer> deltas = new EnumMap<>(TaskStatus.class);
+        deltas.merge(from, -1, Integer::sum);
+        deltas.merge(to, 1, Integer::sum);
+        return deltas;
+    }
+
+    public static ReleaseProgress of(Release release) {
+        List<Task> tasks = release.getTasks() != null ? release.getTasks() : List.of();
+        ReleaseProgress progress = ReleaseProgress.builder()
+                .releaseId(release.getId())
+                .nextOrderIndex(nextOrderIndexOf(tasks))
+                .build();
+        for (Task task : tasks) {
+            switch (task.getStatus() != null ? task.getStatus() : TaskStatus.TODO) {
+                case TODO -> progress.todo++;
+                case IN_PROCESS -> progress.inProcess++;
+                case COMPLETED -> progress.completed++;
+            }
+        }
+        return progress;
+    }
+
+    public static Integer nextOrderIndexOf(List<Task> tasks) {
+        return tasks.stream()
+                .filter(task -> task.getStatus() != TaskStatus.COMPLETED)
+                .map(Task::getOrderIndex)
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+    }
+}
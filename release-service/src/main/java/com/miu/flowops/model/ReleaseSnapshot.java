@@ -0,0 +1,49 @@
+package com.miu.flowops.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One chunk of the state of a release at a version, the starting point for replaying its task_events.
+ * A snapshot of a large release spans several chunks, chunk 0 is written last so a visible snapshot is complete.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "release_snapshots")
+@CompoundIndexes({
+        @CompoundIndex(name = "releaseId_chunkNo_takenAt", def = "{ 'releaseId': 1, 'chunkNo': 1, 'takenAt': -1 }")
+})
+public class ReleaseSnapshot {
+    // releaseId:version:chunkNo
+    @Id
+    private String id;
+
+    private String releaseId;
+
+    private long version;
+
+    private LocalDateTime takenAt;
+
+    private int chunkNo;
+
+    private int chunks;
+
+    private String title;
+
+    private Boolean isCompleted;
+
+    // Sorted by orderIndex, continued by the next chunk
+    private List<Task> tasks;
+
+    public static String idOf(String releaseId, long version, int chunkNo) {
+        return releaseId + ":" + version + ":" + chunkNo;
+    }
+}
@@ -0,0 +1,42 @@
+package com.miu.flowops.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.List;
+
+/**
+ * A slice of the tasks of a bucketed release.
+ * Buckets are numbered in task order and each one is sorted by orderIndex, so concatenating them gives the task list.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "release_tasks")
+@CompoundIndexes({
+        @CompoundIndex(name = "releaseId_bucketNo", def = "{ 'releaseId': 1, 'bucketNo': 1 }", unique = true),
+        @CompoundIndex(name = "releaseId_tasks_id", def = "{ 'releaseId': 1, 'tasks._id': 1 }"),
+        @CompoundIndex(name = "tasks_developerId_status", def = "{ 'tasks.developerId': 1, 'tasks.status': 1 }"),
+        @CompoundIndex(name = "tasks_status_startedAt", def = "{ 'tasks.status': 1, 'tasks.startedAt': 1 }")
+})
+public class ReleaseTaskBucket {
+    @Id
+    private String id;
+
+    private String releaseId;
+
+    private int bucketNo;
+
+    // Number of tasks, kept next to the array so sizes can be read without loading the tasks
+    private int size;
+
+    private List<Task> tasks;
+
+    public static String idOf(String releaseId, int bucketNo) {
+        return releaseId + ":" + bucketNo;
+    }
+}
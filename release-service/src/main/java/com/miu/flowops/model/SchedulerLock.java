@@ -0,0 +1,24 @@
+package com.miu.flowops.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease held by the instance currently allowed to run a scheduled job.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "scheduler_locks")
+public class SchedulerLock {
+    @Id
+    private String name;
+
+    private String owner;
+
+    private LocalDateTime lockedUntil;
+}
@@ -0,0 +1,35 @@
+package com.miu.flowops.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks a stale task as already reminded so the detector does not publish it again on the next run.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "stale_task_reminders")
+public class StaleTaskReminder {
+    // releaseId:taskId
+    @Id
+    private String id;
+
+    private String releaseId;
+
+    private String taskId;
+
+    private String developerId;
+
+    @Indexed(expireAfter = "30d")
+    private LocalDateTime remindedAt;
+
+    public static String idOf(String releaseId, String taskId) {
+        return releaseId + ":" + taskId;
+    }
+}
@@ -0,0 +1,96 @@
+package com.miu.flowops.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Append-only history of the tasks of a release, one entry per task written.
+ * An entry holds the full state of the task after the write, so replaying entries only ever sets fields.
+ * Entries are built before the write and pushed to the release by it, see {@link Release#getHistory()}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "task_events")
+@CompoundIndexes({
+        @CompoundIndex(name = "releaseId_at", def = "{ 'releaseId': 1, 'at': 1 }"),
+        @CompoundIndex(name = "releaseId_version", def = "{ 'releaseId': 1, 'version': 1 }")
+})
+public class TaskEvent {
+    @Id
+    private String id;
+
+    private String releaseId;
+
+    // Version of the release after the write, null for completion and deletion whose version is not known,
+    // and for entries moved to task_events by the relay instead of the write that pushed them
+    private Long version;
+
+    private Type type;
+
+    private String taskId;
+
+    // Only set for TASK_ADDED
+    private String title;
+    private String description;
+
+    // Only set for TASK_ADDED, true when the task was inserted at the position of its key and every task renumbered
+    private Boolean renumbered;
+
+    private TaskStatus status;
+    private String developerId;
+    private Integer orderIndex;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    private LocalDateTime at;
+
+    public static TaskEvent taskChanged(String releaseId, Task task) {
+        return ofTask(releaseId, Type.TASK_CHANGED, task).build();
+    }
+
+    public static TaskEvent taskAdded(String releaseId, Task task, boolean renumbered) {
+        return ofTask(releaseId, Type.TASK_ADDED, task)
+                .title(task.getTitle())
+                .description(task.getDescription())
+                .renumbered(renumbered ? Boolean.TRUE : null)
+                .build();
+    }
+
+    public static TaskEvent ofRelease(String releaseId, Type type) {
+        return TaskEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .releaseId(releaseId)
+                .type(type)
+                .at(LocalDateTime.now())
+                .build();
+    }
+
+    private static TaskEventBuilder ofTask(String releaseId, Type type, Task task) {
+        return TaskEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .releaseId(releaseId)
+                .type(type)
+                .taskId(task.getId())
+                .status(task.getStatus())
+                .developerId(task.getDeveloperId())
+                .orderIndex(task.getOrderIndex())
+                .startedAt(task.getStartedAt())
+                .completedAt(task.getCompletedAt())
+                .at(LocalDateTime.now());
+    }
+
+    public enum Type {
+        TASK_ADDED,
+        TASK_CHANGED,
+        RELEASE_COMPLETED,
+        RELEASE_DELETED
+    }
+}
@@ -0,0 +1,11 @@
+package com.miu.flowops.model;
+
+/**
+ * Where the tasks of a release are stored.
+ */
+public enum TaskStorage {
+    // In the tasks array of the release document
+    EMBEDDED,
+    // In fixed-size release_tasks buckets, the release document only keeps the header
+    BUCKETED
+}
@@ -0,0 +1,93 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.Task;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Read-through view over the release_tasks buckets of a release.
+ * Bucket sizes are read up front, the tasks of a bucket are only loaded when an element in it is accessed.
+ * The view is not thread-safe and meant to live as long as the request that loaded the release.
+ */
+public class BucketedTaskList extends AbstractList<Task> {
+
+    private final int[] bucketNos;
+    private final int[] sizes;
+    private final IntFunction<List<Task>> loader;
+    private final Map<Integer, List<Task>> loaded = new TreeMap<>();
+    private final int size;
+
+    /**
+     * @param bucketNos bucket numbers in task order
+     * @param sizes number of tasks of each bucket
+     * @param loader loads the tasks of a bucket by number
+     */
+    public BucketedTaskList(int[] bucketNos, int[] sizes, IntFunction<List<Task>> loader) {
+        this.bucketNos = bucketNos;
+        this.sizes = sizes;
+        this.loader = loader;
+        this.size = Arrays.stream(sizes).sum();
+    }
+
+    @Override
+    public Task get(int index) {
+        Objects.checkIndex(index, size);
+        int offset = index;
+        for (int i = 0; i < bucketNos.length; i++) {
+            if (offset < sizes[i]) {
+                return bucket(i).get(offset);
+            }
+            offset -= sizes[i];
+        }
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Walks the buckets one after the other instead of locating every index
+    @Override
+    public Iterator<Task> iterator() {
+        return new Iterator<>() {
+            private int bucket = 0;
+            private Iterator<Task> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && bucket < bucketNos.length) {
+                    current = bucket(bucket++).iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    /**
+     * @return the loaded buckets keyed by bucket number, the only ones whose tasks a caller can have changed
+     */
+    public Map<Integer, List<Task>> loadedBuckets() {
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    /**
+     * @return a view over the same buckets with nothing loaded, so changes made on this one are not shared
+     */
+    public BucketedTaskList detached() {
+        return new BucketedTaskList(bucketNos, sizes, loader);
+    }
+
+    private List<Task> bucket(int i) {
+        return loaded.computeIfAbsent(bucketNos[i], loader::apply);
+    }
+}
@@ -0,0 +1,13 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.CycleTimeRollup;
+
+import java.time.LocalDate;
+
+public interface CycleTimeRollupRepositoryCustom {
+
+    /**
+     * Counts one completed task in the rollup, creating it on the first one.
+     */
+    void record(CycleTimeRollup.Scope scope, String key, long cycleTimeSeconds, LocalDate completedOn);
+}
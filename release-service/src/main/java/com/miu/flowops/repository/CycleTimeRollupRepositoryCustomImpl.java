@@ -0,0 +1,31 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.CycleTimeRollup;
+import com.miu.flowops.util.CycleTimeSketch;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDate;
+
+@RequiredArgsConstructor
+public class CycleTimeRollupRepositoryCustomImpl implements CycleTimeRollupRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void record(CycleTimeRollup.Scope scope, String key, long cycleTimeSeconds, LocalDate completedOn) {
+        Update update = new Update()
+                .setOnInsert("scope", scope)
+                .setOnInsert("key", key)
+                .inc("count", 1)
+                .inc("totalSeconds", cycleTimeSeconds)
+                .max("maxSeconds", cycleTimeSeconds)
+                .inc("sketch." + CycleTimeSketch.indexOf(cycleTimeSeconds), 1L)
+                .inc("daily." + completedOn, 1L);
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(CycleTimeRollup.idOf(scope, key))), update,
+                CycleTimeRollup.class);
+    }
+}
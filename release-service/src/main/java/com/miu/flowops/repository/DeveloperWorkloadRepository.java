@@ -0,0 +1,11 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.DeveloperWorkload;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface DeveloperWorkloadRepository extends MongoRepository<DeveloperWorkload, String> {
+
+    long deleteByDeveloperIdAndTaskId(String developerId, String taskId);
+
+    long deleteByReleaseId(String releaseId);
+}
@@ -0,0 +1,7 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.IdempotencyRecord;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface IdempotencyRecordRepository extends MongoRepository<IdempotencyRecord, String>, IdempotencyRecordRepositoryCustom {
+}
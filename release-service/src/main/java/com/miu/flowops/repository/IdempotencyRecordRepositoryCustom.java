@@ -0,0 +1,22 @@
+package com.miu.flowops.repository;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepositoryCustom {
+
+    /**
+     * Claims the key if it was never used or if the previous claim expired without a response.
+     * @return true if {@code owner} may execute the request
+     */
+    boolean tryClaim(String id, String owner, LocalDateTime now, LocalDateTime lockedUntil);
+
+    /**
+     * Stores the response, only if {@code owner} still holds the claim.
+     */
+    void complete(String id, String owner, int statusCode, String contentType, byte[] body);
+
+    /**
+     * Drops the claim of a request that failed, so a retry executes it again.
+     */
+    void abandon(String id, String owner);
+}
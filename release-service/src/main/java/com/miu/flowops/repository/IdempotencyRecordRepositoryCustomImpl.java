@@ -0,0 +1,53 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.IdempotencyRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+public class IdempotencyRecordRepositoryCustomImpl implements IdempotencyRecordRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean tryClaim(String id, String owner, LocalDateTime now, LocalDateTime lockedUntil) {
+        Query query = Query.query(Criteria.where("_id").is(id)
+                .and("completed").ne(true)
+                .and("lockedUntil").lte(now));
+        Update update = new Update()
+                .set("owner", owner)
+                .set("lockedUntil", lockedUntil)
+                .set("completed", false)
+                .setOnInsert("createdAt", now);
+        try {
+            // A completed record or a live claim makes the filter miss and the upsert collide on _id
+            mongoTemplate.upsert(query, update, IdempotencyRecord.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void complete(String id, String owner, int statusCode, String contentType, byte[] body) {
+        Query query = Query.query(Criteria.where("_id").is(id).and("owner").is(owner));
+        Update update = new Update()
+                .set("completed", true)
+                .set("statusCode", statusCode)
+                .set("contentType", contentType)
+                .set("body", body);
+        mongoTemplate.updateFirst(query, update, IdempotencyRecord.class);
+    }
+
+    @Override
+    public void abandon(String id, String owner) {
+        Query query = Query.query(Criteria.where("_id").is(id).and("owner").is(owner).and("completed").ne(true));
+        mongoTemplate.remove(query, IdempotencyRecord.class);
+    }
+}
@@ -0,0 +1,7 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.ProcessedTaskCompletion;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface ProcessedTaskCompletionRepository extends MongoRepository<ProcessedTaskCompletion, String> {
+}
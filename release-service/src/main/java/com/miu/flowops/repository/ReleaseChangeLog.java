@@ -0,0 +1,20 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.ReleaseChange;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Every write to a release goes through here: the version is bumped and the change is appended to the capped
+ * change log in the same update, so the log always holds exactly one entry per version.
+ */
+final class ReleaseChangeLog {
+
+    private ReleaseChangeLog() {
+    }
+
+    static Update record(Update update, ReleaseChange change, int size) {
+        update.inc("version", 1);
+        update.push("changes").slice(-size).each(change);
+        return update;
+    }
+}
@@ -0,0 +1,9 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.ReleaseProgress;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReleaseProgressRepository extends MongoRepository<ReleaseProgress, String>, ReleaseProgressRepositoryCustom {
+}
@@ -0,0 +1,31 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.ReleaseProgress;
+import com.miu.flowops.model.TaskStatus;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Incremental updates of the release_progress view, applied after the matching write on the release.
+ * An empty result means there is no progress document for the release.
+ */
+public interface ReleaseProgressRepositoryCustom {
+
+    /**
+     * @param deltas counter increments keyed by status, e.g. TODO -1 and IN_PROCESS +1 for a started task
+     */
+    Optional<ReleaseProgress> applyTransitions(String releaseId, Map<TaskStatus, Integer> deltas);
+
+    /**
+     * Same as {@link #applyTransitions(String, Map)} and also moves the next runnable orderIndex.
+     * @param nextOrderIndex orderIndex of the first task not completed, or null if all tasks are done
+     */
+    Optional<ReleaseProgress> applyTransitions(String releaseId, Map<TaskStatus, Integer> deltas, Integer nextOrderIndex);
+
+    /**
+     * Counts a new TODO task, which becomes the next runnable one if it is inserted before the current one
+     * or if every other task was done.
+     */
+    void recordTaskAdded(String releaseId, int orderIndex);
+}
@@ -0,0 +1,64 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.ReleaseProgress;
+import com.miu.flowops.model.TaskStatus;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class ReleaseProgressRepositoryCustomImpl implements ReleaseProgressRepositoryCustom {
+
+    private static final String NEXT_ORDER_INDEX = "nextOrderIndex";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<ReleaseProgress> applyTransitions(String releaseId, Map<TaskStatus, Integer> deltas) {
+        return modify(releaseId, increments(deltas));
+    }
+
+    @Override
+    public Optional<ReleaseProgress> applyTransitions(String releaseId, Map<TaskStatus, Integer> deltas, Integer nextOrderIndex) {
+        return modify(releaseId, increments(deltas).set(NEXT_ORDER_INDEX, nextOrderIndex));
+    }
+
+    @Override
+    public void recordTaskAdded(String releaseId, int orderIndex) {
+        // Pipeline update, so the counter and the conditional next index are written atomically
+        String todo = ReleaseProgress.countField(TaskStatus.TODO);
+        AggregationExpression nextOrderIndex = context -> new Document("$min", List.of(
+                ConditionalOperators.ifNull(NEXT_ORDER_INDEX).then(orderIndex).toDocument(context), orderIndex));
+        AggregationUpdate update = AggregationUpdate.update()
+                .set(todo).toValue(ArithmeticOperators.Add.valueOf(todo).add(1))
+                .set(NEXT_ORDER_INDEX).toValue(nextOrderIndex);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(releaseId)), update, ReleaseProgress.class);
+    }
+
+    private static Update increments(Map<TaskStatus, Integer> deltas) {
+        Update update = new Update();
+        deltas.forEach((status, delta) -> {
+            if (delta != 0) {
+                update.inc(ReleaseProgress.countField(status), delta);
+            }
+        });
+        return update;
+    }
+
+    private Optional<ReleaseProgress> modify(String releaseId, Update update) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(releaseId)), update,
+                FindAndModifyOptions.options().returnNew(true), ReleaseProgress.class));
+    }
+}
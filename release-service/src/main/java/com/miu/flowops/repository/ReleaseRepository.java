@@ -1,26 +1,48 @@
 package com.miu.flowops.repository;
 
+import com.miu.flowops.dto.StaleTaskCandidate;
+import com.miu.flowops.model.DeveloperWorkload;
 import com.miu.flowops.model.Release;
-import com.miu.flowops.model.Task;
+import com.miu.flowops.model.ReleaseProgress;
 import com.miu.flowops.model.TaskStatus;
 import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Query;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface ReleaseRepository extends MongoRepository<Release, String> {
-    
-    @Query(value = "{ 'tasks': { $elemMatch: { 'developerId': ?0, 'status': ?1 } } }", exists = true)
-    boolean existsByDeveloperIdAndTaskStatus(String developerId, TaskStatus status);
+public interface ReleaseRepository extends MongoRepository<Release, String>, ReleaseRepositoryCustom {
 
-    // Use Spring Data's derived query method
+    // One entry per developer with an IN_PROCESS task, the oldest one wins if the data is inconsistent
     @Aggregation(pipeline = {
+            "{ $match: { 'tasks.status': 'IN_PROCESS' } }",
+            "{ $unwind: '$tasks' }",
+            "{ $match: { 'tasks.status': 'IN_PROCESS', 'tasks.developerId': { $ne: null } } }",
+            "{ $sort: { 'tasks.startedAt': 1 } }",
+            "{ $group: { _id: '$tasks.developerId', releaseId: { $first: '$_id' }, taskId: { $first: '$tasks._id' }, claimedAt: { $first: '$tasks.startedAt' } } }"
+    })
+    List<DeveloperWorkload> findActiveWorkloads();
+
+    // Streamed through a cursor, the leading $match is served by the tasks.status + tasks.startedAt index
+    @Aggregation(pipeline = {
+            "{ $match: { 'tasks': { $elemMatch: { 'status': ?0, 'startedAt': { $lte: ?1 } } } } }",
             "{ $unwind: '$tasks' }",
             "{ $match: { 'tasks.status': ?0, 'tasks.startedAt': { $lte: ?1 } } }",
-            "{ $replaceRoot: { newRoot: '$tasks' } }"
+            "{ $project: { _id: 0, releaseId: '$_id', taskId: '$tasks._id', taskTitle: '$tasks.title', developerId: '$tasks.developerId', startedAt: '$tasks.startedAt' } }"
+    })
+    Stream<StaleTaskCandidate> streamTasksByStatusAndStartedBefore(TaskStatus status, LocalDateTime time);
+
+    // Recomputes the release_progress view, $min of an empty array is null when every task is completed
+    @Aggregation(pipeline = {
+            "{ $match: { taskStorage: { $ne: 'BUCKETED' } } }",
+            "{ $project: { tasks: { $ifNull: ['$tasks', []] } } }",
+            "{ $project: { "
+                    + "todo: { $size: { $filter: { input: '$tasks', cond: { $eq: ['$$this.status', 'TODO'] } } } }, "
+                    + "inProcess: { $size: { $filter: { input: '$tasks', cond: { $eq: ['$$this.status', 'IN_PROCESS'] } } } }, "
+                    + "completed: { $size: { $filter: { input: '$tasks', cond: { $eq: ['$$this.status', 'COMPLETED'] } } } }, "
+                    + "nextOrderIndex: { $min: { $map: { input: { $filter: { input: '$tasks', cond: { $ne: ['$$this.status', 'COMPLETED'] } } }, in: '$$this.orderIndex' } } } } }"
     })
-    List<Task> findTasksByStatusAndStartedBefore(TaskStatus status, LocalDateTime time);
+    Stream<ReleaseProgress> streamProgress();
 
 }
@@ -0,0 +1,129 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.dto.DeveloperTask;
+import com.miu.flowops.dto.DeveloperTaskCursor;
+import com.miu.flowops.dto.DeveloperWorkloadSummary;
+import com.miu.flowops.dto.ReleaseSummary;
+import com.miu.flowops.model.OutboxEvent;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskEvent;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.util.ReleaseFields;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Field-level task transitions on the embedded tasks array.
+ * Each method issues a single conditional findAndModify that only touches the fields of the target task,
+ * so concurrent transitions on the same release never overwrite each other.
+ * The given outbox events and task history entries are pushed by the same update, so they are stored if and only if
+ * the transition is.
+ * An empty result means the guard in the filter did not match (task missing or state changed concurrently).
+ */
+public interface ReleaseRepositoryCustom {
+
+    /**
+     * Sets the developer of a TODO task. Started tasks keep theirs, their workload claim is held by that developer.
+     */
+    Optional<Release> assignTaskDeveloper(String releaseId, String taskId, String developerId, List<OutboxEvent> events,
+                                          List<TaskEvent> history);
+
+    /**
+     * Moves a task from TODO to IN_PROCESS.
+     * @param previousTaskId the task that must already be COMPLETED, or null if this is the first task
+     */
+    Optional<Release> startTask(String releaseId, String taskId, String developerId,
+                                String previousTaskId, LocalDateTime startedAt, List<OutboxEvent> events,
+                                List<TaskEvent> history);
+
+    Optional<Release> completeTask(String releaseId, String taskId, String developerId,
+                                   LocalDateTime completedAt, List<OutboxEvent> events, List<TaskEvent> history);
+
+    /**
+     * Inserts a task at the position given by its orderIndex and reopens the release if it was completed.
+     * The tasks stay sorted and the tail key is moved if the task is the new last one.
+     * @param beforeTaskId the task that must still be TODO for the insert to apply, or null when appending
+     */
+    Optional<Release> insertTask(String releaseId, Task task, String beforeTaskId, List<OutboxEvent> events,
+                                 List<TaskEvent> history);
+
+    /**
+     * Replaces the task list in one write, only if nobody changed the release since {@code expectedVersion} was read.
+     * @param tasks sorted by orderIndex
+     * @param changedTaskIds tasks recorded in the change log, or null if any task may have changed
+     */
+    Optional<Release> replaceTasks(String releaseId, Long expectedVersion, List<Task> tasks, List<String> changedTaskIds,
+                                   boolean completed, List<OutboxEvent> events, List<TaskEvent> history);
+
+    /**
+     * Flags the release as completed only if no task is left in a non COMPLETED state.
+     * @return true if the flag was flipped by this call
+     */
+    boolean markCompletedIfAllTasksDone(String releaseId, List<TaskEvent> history);
+
+    /**
+     * Reads only the selected fields of the release, and of its tasks wherever they are stored.
+     */
+    Optional<Release> findWithFields(String releaseId, ReleaseFields fields);
+
+    /**
+     * Page of release summaries ordered by id, with task counters computed in the aggregation.
+     * @param completed optional isCompleted filter
+     * @param afterId id of the last release of the previous page, or null for the first page
+     */
+    List<ReleaseSummary> findSummaries(Boolean completed, String afterId, int limit);
+
+    /**
+     * Page of the tasks assigned to a developer in all releases, embedded and bucketed.
+     * Only the task fields are projected, see {@link DeveloperTaskCursor} for the order.
+     * @param status optional status filter
+     * @param after position of the last task of the previous page, or null for the first page
+     */
+    List<DeveloperTask> findDeveloperTasks(String developerId, TaskStatus status, DeveloperTask.SortBy sortBy,
+                                           DeveloperTaskCursor after, int limit);
+
+    /**
+     * Page of task counts per developer ordered by developerId, over all releases.
+     * @param afterDeveloperId last developer of the previous page, or null for the first page
+     */
+    List<DeveloperWorkloadSummary> findDeveloperWorkloads(String afterDeveloperId, int limit);
+
+    /**
+     * Releases with pending outbox events, oldest first. Only the id and the outbox are loaded.
+     */
+    List<Release> findWithPendingOutbox(int limit);
+
+    /**
+     * Releases with task history entries pushed before {@code before} and still pending, oldest first.
+     * Only the id and the history are loaded.
+     */
+    List<Release> findWithPendingHistory(LocalDateTime before, int limit);
+
+    /**
+     * Removes history entries stored in task_events in one bulk write.
+     * @param entryIdsByRelease ids of the stored entries keyed by releaseId
+     */
+    void removeHistoryEntries(Map<String, List<String>> entryIdsByRelease);
+
+    /**
+     * Removes published events in one bulk write.
+     * @param eventIdsByRelease ids of the published events keyed by releaseId
+     */
+    void removeOutboxEvents(Map<String, List<String>> eventIdsByRelease);
+
+    /**
+     * Counts a rejected publish attempt on each event in one bulk write.
+     * @param eventIdByRelease id of the rejected event keyed by releaseId
+     */
+    void recordOutboxFailures(Map<String, String> eventIdByRelease);
+
+    /**
+     * Moves events that ran out of attempts to outbox_dead_letters and removes them from the outbox.
+     * @param eventsByRelease the events keyed by releaseId
+     */
+    void deadLetterOutboxEvents(Map<String, List<OutboxEvent>> eventsByRelease);
+}
@@ -0,0 +1,433 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.config.ReleaseEventsConfig;
+import com.miu.flowops.dto.DeveloperTask;
+import com.miu.flowops.dto.DeveloperTaskCursor;
+import com.miu.flowops.dto.DeveloperWorkloadSummary;
+import com.miu.flowops.dto.ReleaseSummary;
+import com.miu.flowops.model.DeadLetterEvent;
+import com.miu.flowops.model.OutboxEvent;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseChange;
+import com.miu.flowops.model.ReleaseProgress;
+import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskEvent;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.model.TaskStorage;
+import com.miu.flowops.util.ReleaseFields;
+import com.miu.flowops.util.TaskOrder;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+@RequiredArgsConstructor
+public class ReleaseRepositoryCustomImpl implements ReleaseRepositoryCustom {
+
+    // Identifier used in the arrayFilters, i.e. tasks.$[t].status
+    private static final String TASK = "tasks.$[t].";
+
+    private final MongoTemplate mongoTemplate;
+    private final ReleaseTaskBucketStore bucketStore;
+    private final ReleaseEventsConfig releaseEventsConfig;
+
+    @Override
+    public Optional<Release> assignTaskDeveloper(String releaseId, String taskId, String developerId, List<OutboxEvent> events,
+                                                 List<TaskEvent> history) {
+        return updateTask(releaseId, taskId, Criteria.where("_id").is(taskId).and("status").is(TaskStatus.TODO.name()), null,
+                () -> new Update()
+                        .set(TASK + "developerId", developerId)
+                        .filterArray(Criteria.where("t._id").is(taskId).and("t.status").is(TaskStatus.TODO.name())),
+                events, history);
+    }
+
+    @Override
+    public Optional<Release> startTask(String releaseId, String taskId, String developerId,
+                                       String previousTaskId, LocalDateTime startedAt, List<OutboxEvent> events,
+                                       List<TaskEvent> history) {
+        Criteria previousTask = previousTaskId == null
+                ? null
+                : Criteria.where("_id").is(previousTaskId).and("status").is(TaskStatus.COMPLETED.name());
+        return updateTask(releaseId, taskId, Criteria.where("_id").is(taskId).and("status").is(TaskStatus.TODO.name()), previousTask,
+                () -> new Update()
+                        .set(TASK + "status", TaskStatus.IN_PROCESS)
+                        .set(TASK + "developerId", developerId)
+                        .set(TASK + "startedAt", startedAt)
+                        .filterArray(Criteria.where("t._id").is(taskId).and("t.status").is(TaskStatus.TODO.name())),
+                events, history);
+    }
+
+    @Override
+    public Optional<Release> completeTask(String releaseId, String taskId, String developerId,
+                                          LocalDateTime completedAt, List<OutboxEvent> events,
+                                          List<TaskEvent> history) {
+        // An unassigned task may be completed by whoever started it, mirroring the check in TaskService
+        Criteria developer = new Criteria().orOperator(
+                Criteria.where("developerId").is(developerId),
+                Criteria.where("developerId").is(null));
+        Criteria task = new Criteria().andOperator(
+                Criteria.where("_id").is(taskId).and("status").is(TaskStatus.IN_PROCESS.name()),
+                developer);
+        return updateTask(releaseId, taskId, task, null, () -> new Update()
+                .set(TASK + "status", TaskStatus.COMPLETED)
+                .set(TASK + "completedAt", completedAt)
+                .filterArray(Criteria.where("t._id").is(taskId).and("t.status").is(TaskStatus.IN_PROCESS.name())),
+                events, history);
+    }
+
+    @Override
+    public Optional<Release> insertTask(String releaseId, Task task, String beforeTaskId, List<OutboxEvent> events,
+                                        List<TaskEvent> history) {
+        // Two concurrent inserts computing the same key cannot both apply
+        Criteria keyIsFree = Criteria.where("tasks").not().elemMatch(Criteria.where("orderIndex").is(task.getOrderIndex()));
+        Criteria criteria = beforeTaskId == null
+                ? keyIsFree
+                : new Criteria().andOperator(keyIsFree, Criteria.where("tasks").elemMatch(
+                        Criteria.where("_id").is(beforeTaskId).and("status").is(TaskStatus.TODO.name())));
+        Query query = embedded(releaseId).addCriteria(criteria);
+
+        Supplier<Update> releaseUpdate = () -> withOutbox(new Update()
+                .set("isCompleted", false)
+                .max("tailOrderIndex", task.getOrderIndex()), events, history, ReleaseChange.ofTasks(List.of(task.getId())));
+        Update update = releaseUpdate.get();
+        update.push("tasks").sort(Sort.by("orderIndex")).each(task);
+        Optional<Release> release = modify(query, update);
+        if (release.isPresent() || !bucketStore.isBucketed(releaseId)) {
+            return release;
+        }
+        return bucketStore.insertTask(releaseId, task, beforeTaskId, releaseUpdate.get());
+    }
+
+    @Override
+    public Optional<Release> replaceTasks(String releaseId, Long expectedVersion, List<Task> tasks,
+                                          List<String> changedTaskIds, boolean completed, List<OutboxEvent> events,
+                                          List<TaskEvent> history) {
+        ReleaseChange change = changedTaskIds != null ? ReleaseChange.ofTasks(changedTaskIds) : ReleaseChange.ofAllTasks();
+        Supplier<Update> releaseUpdate = () -> withOutbox(new Update()
+                .set("tailOrderIndex", TaskOrder.tailOf(tasks))
+                .set("isCompleted", completed), events, history, change);
+        if (tasks instanceof BucketedTaskList) {
+            return bucketStore.replaceTasks(releaseId, expectedVersion, tasks, releaseUpdate.get());
+        }
+        // A null version also matches documents written before the field existed
+        Query query = embedded(releaseId).addCriteria(Criteria.where("version").is(expectedVersion));
+        Optional<Release> release = modify(query, releaseUpdate.get().set("tasks", tasks));
+        if (release.isPresent() || !bucketStore.isBucketed(releaseId)) {
+            return release;
+        }
+        return bucketStore.replaceTasks(releaseId, expectedVersion, tasks, releaseUpdate.get());
+    }
+
+    @Override
+    public boolean markCompletedIfAllTasksDone(String releaseId, List<TaskEvent> history) {
+        Query query = embedded(releaseId)
+                .addCriteria(Criteria.where("isCompleted").ne(true)
+                        .and("tasks").not().elemMatch(Criteria.where("status").ne(TaskStatus.COMPLETED.name())));
+        Update update = withOutbox(Update.update("isCompleted", true), null, history, ReleaseChange.ofRelease());
+        if (mongoTemplate.updateFirst(query, update, Release.class).getModifiedCount() == 1) {
+            return true;
+        }
+        return bucketStore.isBucketed(releaseId) && bucketStore.markCompletedIfAllTasksDone(releaseId,
+                withOutbox(Update.update("isCompleted", true), null, history, ReleaseChange.ofRelease()));
+    }
+
+    @Override
+    public Optional<Release> findWithFields(String releaseId, ReleaseFields fields) {
+        // Raw query, the id is converted the way the mapping of Release stores it
+        Query query = Query.query(Criteria.where("_id").is(ObjectId.isValid(releaseId) ? new ObjectId(releaseId) : releaseId));
+        query.fields().include(fields.releaseProjection());
+        Document document = mongoTemplate.findOne(query, Document.class, mongoTemplate.getCollectionName(Release.class));
+        if (document == null) {
+            return Optional.empty();
+        }
+        // Converted without the callbacks, a bucketed release gets its projected tasks instead of the lazy view
+        Release release = mongoTemplate.getConverter().read(Release.class, document);
+        if (release.getTaskStorage() == TaskStorage.BUCKETED && fields.includesTasks()) {
+            release.setTasks(bucketStore.findTasks(releaseId, fields.taskProjection()));
+        }
+        return Optional.of(release);
+    }
+
+    @Override
+    public List<ReleaseSummary> findSummaries(Boolean completed, String afterId, int limit) {
+        Document match = new Document();
+        if (completed != null) {
+            match.append("isCompleted", completed);
+        }
+        if (afterId != null) {
+            // Generated ids are stored as ObjectId, which sort after all string ids
+            match.append("$or", ObjectId.isValid(afterId)
+                    ? List.of(new Document("_id", new Document("$gt", new ObjectId(afterId))))
+                    : List.of(new Document("_id", new Document("$gt", afterId)),
+                              new Document("_id", new Document("$type", "objectId"))));
+        }
+        // Bucketed releases have no embedded tasks, their counters come from the release_progress view
+        Document bucketed = new Document("$eq", List.of("$taskStorage", TaskStorage.BUCKETED.name()));
+        Document project = new Document("title", 1)
+                .append("isCompleted", 1)
+                .append("version", 1)
+                .append("totalTasks", new Document("$cond", List.of(bucketed,
+                        new Document("$add", List.of(progressCount(TaskStatus.TODO), progressCount(TaskStatus.IN_PROCESS),
+                                progressCount(TaskStatus.COMPLETED))),
+                        new Document("$size", tasksOrEmpty()))))
+                .append("completedTasks", new Document("$cond", List.of(bucketed,
+                        progressCount(TaskStatus.COMPLETED), countTasksWithStatus(TaskStatus.COMPLETED))))
+                .append("inProcessTasks", new Document("$cond", List.of(bucketed,
+                        progressCount(TaskStatus.IN_PROCESS), countTasksWithStatus(TaskStatus.IN_PROCESS))));
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                context -> new Document("$match", match),
+                Aggregation.sort(Sort.by("_id")),
+                Aggregation.limit(limit),
+                context -> new Document("$lookup", new Document("from", "release_progress")
+                        .append("localField", "_id")
+                        .append("foreignField", "_id")
+                        .append("as", "progress")),
+                context -> new Document("$project", project));
+        return mongoTemplate.aggregate(aggregation, Release.class, ReleaseSummary.class).getMappedResults();
+    }
+
+    @Override
+    public List<DeveloperTask> findDeveloperTasks(String developerId, TaskStatus status, DeveloperTask.SortBy sortBy,
+                                                  DeveloperTaskCursor after, int limit) {
+        Document task = new Document("developerId", developerId);
+        if (status != null) {
+            task.append("status", status.name());
+        }
+        Document project = new Document("_id", 0)
+                .append("taskId", new Document("$toString", "$tasks._id"))
+                .append("title", "$tasks.title")
+                .append("status", "$tasks.status")
+                .append("orderIndex", "$tasks.orderIndex")
+                .append("startedAt", "$tasks.startedAt")
+                .append("completedAt", "$tasks.completedAt");
+        // Same order as DeveloperTaskCursor, computed on the flattened tasks
+        Document sortKeys = new Document("rank", sortBy == DeveloperTask.SortBy.STATUS
+                        ? new Document("$switch", new Document("branches", Arrays.stream(TaskStatus.values())
+                                .map(s -> new Document("case", new Document("$eq", List.of("$status", s.name())))
+                                        .append("then", DeveloperTaskCursor.rankOf(s)))
+                                .toList()).append("default", 0))
+                        : new Document("$literal", 0))
+                .append("startedKey", new Document("$multiply", List.of(-1L, new Document("$toLong",
+                        new Document("$ifNull", List.of("$startedAt", new Date(0)))))))
+                .append("key", new Document("$concat", List.of("$releaseId", "/", "$taskId")));
+
+        List<Document> stages = new ArrayList<>(unwindTasks(task,
+                new Document(project).append("releaseId", new Document("$toString", "$_id"))));
+        stages.add(new Document("$unionWith", new Document("coll", "release_tasks")
+                .append("pipeline", unwindTasks(task, new Document(project).append("releaseId", "$releaseId")))));
+        stages.add(new Document("$addFields", sortKeys));
+        if (after != null) {
+            stages.add(new Document("$match", new Document("$or", List.of(
+                    new Document("rank", new Document("$gt", after.getRank())),
+                    new Document("rank", after.getRank()).append("startedKey", new Document("$gt", after.getStartedKey())),
+                    new Document("rank", after.getRank()).append("startedKey", after.getStartedKey())
+                            .append("key", new Document("$gt", after.getKey()))))));
+        }
+        stages.add(new Document("$sort", new Document("rank", 1).append("startedKey", 1).append("key", 1)));
+        stages.add(new Document("$limit", limit));
+        return mongoTemplate.aggregate(pipeline(stages), Release.class, DeveloperTask.class).getMappedResults();
+    }
+
+    @Override
+    public List<DeveloperWorkloadSummary> findDeveloperWorkloads(String afterDeveloperId, int limit) {
+        // Range on the multikey index, also skips unassigned tasks
+        Document task = new Document("developerId", new Document("$gt", afterDeveloperId != null ? afterDeveloperId : ""));
+        Document project = new Document("_id", 0)
+                .append("developerId", "$tasks.developerId")
+                .append("status", "$tasks.status");
+        List<Document> stages = new ArrayList<>(unwindTasks(task, project));
+        stages.add(new Document("$unionWith", new Document("coll", "release_tasks")
+                .append("pipeline", unwindTasks(task, project))));
+        stages.add(new Document("$group", new Document("_id", "$developerId")
+                .append("todoTasks", countIfStatus(TaskStatus.TODO))
+                .append("inProcessTasks", countIfStatus(TaskStatus.IN_PROCESS))
+                .append("completedTasks", countIfStatus(TaskStatus.COMPLETED))));
+        stages.add(new Document("$sort", new Document("_id", 1)));
+        stages.add(new Document("$limit", limit));
+        stages.add(new Document("$lookup", new Document("from", "developer_workload")
+                .append("localField", "_id")
+                .append("foreignField", "_id")
+                .append("as", "current")));
+        stages.add(new Document("$project", new Document("_id", 0)
+                .append("developerId", "$_id")
+                .append("todoTasks", 1)
+                .append("inProcessTasks", 1)
+                .append("completedTasks", 1)
+                .append("currentReleaseId", new Document("$first", "$current.releaseId"))
+                .append("currentTaskId", new Document("$first", "$current.taskId"))
+                .append("claimedAt", new Document("$first", "$current.claimedAt"))));
+        return mongoTemplate.aggregate(pipeline(stages), Release.class, DeveloperWorkloadSummary.class).getMappedResults();
+    }
+
+    @Override
+    public List<Release> findWithPendingOutbox(int limit) {
+        Query query = Query.query(Criteria.where("outbox.createdAt").exists(true))
+                .with(Sort.by("outbox.createdAt"))
+                .limit(limit);
+        query.fields().include("outbox");
+        return mongoTemplate.find(query, Release.class);
+    }
+
+    @Override
+    public List<Release> findWithPendingHistory(LocalDateTime before, int limit) {
+        Query query = Query.query(Criteria.where("history.at").lt(before))
+                .with(Sort.by("history.at"))
+                .limit(limit);
+        query.fields().include("history");
+        return mongoTemplate.find(query, Release.class);
+    }
+
+    @Override
+    public void removeHistoryEntries(Map<String, List<String>> entryIdsByRelease) {
+        if (entryIdsByRelease.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Release.class);
+        entryIdsByRelease.forEach((releaseId, entryIds) -> bulk.updateOne(
+                Query.query(Criteria.where("_id").is(releaseId)),
+                new Update().pull("history", new Document("_id", new Document("$in", entryIds)))));
+        bulk.execute();
+    }
+
+    @Override
+    public void removeOutboxEvents(Map<String, List<String>> eventIdsByRelease) {
+        if (eventIdsByRelease.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Release.class);
+        eventIdsByRelease.forEach((releaseId, eventIds) -> bulk.updateOne(
+                Query.query(Criteria.where("_id").is(releaseId)),
+                new Update().pull("outbox", new Document("_id", new Document("$in", eventIds)))));
+        bulk.execute();
+    }
+
+    @Override
+    public void recordOutboxFailures(Map<String, String> eventIdByRelease) {
+        if (eventIdByRelease.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Release.class);
+        eventIdByRelease.forEach((releaseId, eventId) -> bulk.updateOne(
+                Query.query(Criteria.where("_id").is(releaseId).and("outbox._id").is(eventId)),
+                new Update().inc("outbox.$.attempts", 1)));
+        bulk.execute();
+    }
+
+    @Override
+    public void deadLetterOutboxEvents(Map<String, List<OutboxEvent>> eventsByRelease) {
+        if (eventsByRelease.isEmpty()) {
+            return;
+        }
+        // Saved by event id before the pull, so a crash in between at worst saves it again on the next run
+        Map<String, List<String>> eventIds = new HashMap<>();
+        eventsByRelease.forEach((releaseId, events) -> {
+            events.forEach(event -> mongoTemplate.save(DeadLetterEvent.of(releaseId, event)));
+            eventIds.put(releaseId, events.stream().map(OutboxEvent::getId).toList());
+        });
+        removeOutboxEvents(eventIds);
+    }
+
+    /**
+     * Flattens the tasks matching {@code task} into one document each. Works for releases and for
+     * release_tasks buckets alike, the first match selects the documents through the tasks.developerId index.
+     */
+    private static List<Document> unwindTasks(Document task, Document project) {
+        Document unwound = new Document();
+        task.forEach((field, value) -> unwound.append("tasks." + field, value));
+        return List.of(
+                new Document("$match", new Document("tasks", new Document("$elemMatch", task))),
+                new Document("$unwind", "$tasks"),
+                new Document("$match", unwound),
+                new Document("$project", project));
+    }
+
+    // Raw stages, the computed fields are not properties of Release
+    private static Aggregation pipeline(List<Document> stages) {
+        return Aggregation.newAggregation(stages.stream()
+                .map(stage -> (AggregationOperation) context -> stage)
+                .toList());
+    }
+
+    private static Document countIfStatus(TaskStatus status) {
+        return new Document("$sum", new Document("$cond", List.of(
+                new Document("$eq", List.of("$status", status.name())), 1L, 0L)));
+    }
+
+    private static Document tasksOrEmpty() {
+        return new Document("$ifNull", List.of("$tasks", List.of()));
+    }
+
+    private static Document progressCount(TaskStatus status) {
+        return new Document("$ifNull", List.of(
+                new Document("$first", "$progress." + ReleaseProgress.countField(status)), 0));
+    }
+
+    private static Document countTasksWithStatus(TaskStatus status) {
+        return new Document("$size", new Document("$filter", new Document("input", tasksOrEmpty())
+                .append("cond", new Document("$eq", List.of("$$this.status", status.name())))));
+    }
+
+    // Every change goes through here, so the version and the change log are updated together with the outbox
+    // and history pushes
+    private Update withOutbox(Update update, List<OutboxEvent> events, List<TaskEvent> history, ReleaseChange change) {
+        ReleaseChangeLog.record(update, change, releaseEventsConfig.getChangeLogSize());
+        if (events != null && !events.isEmpty()) {
+            update.push("outbox").each(events.toArray());
+        }
+        if (history != null && !history.isEmpty()) {
+            update.push("history").each(history.toArray());
+        }
+        return update;
+    }
+
+    /**
+     * Applies a task update to an embedded release, or to the bucket holding the task if the release is bucketed.
+     * Bucketed releases never match the embedded filter, so their storage is only looked up when nothing matched.
+     * @param taskId the target task, recorded in the change log
+     * @param task guard on the target task
+     * @param requiredTask guard on another task that must exist, or null
+     * @param taskUpdate the change of the target task, built twice since an Update is mutable
+     */
+    private Optional<Release> updateTask(String releaseId, String taskId, Criteria task, Criteria requiredTask,
+                                         Supplier<Update> taskUpdate, List<OutboxEvent> events,
+                                         List<TaskEvent> history) {
+        ReleaseChange change = ReleaseChange.ofTasks(List.of(taskId));
+        Criteria criteria = requiredTask == null
+                ? Criteria.where("tasks").elemMatch(task)
+                : new Criteria().andOperator(Criteria.where("tasks").elemMatch(task),
+                        Criteria.where("tasks").elemMatch(requiredTask));
+        Optional<Release> release = modify(embedded(releaseId).addCriteria(criteria), withOutbox(taskUpdate.get(), events, history, change));
+        if (release.isPresent() || !bucketStore.isBucketed(releaseId)) {
+            return release;
+        }
+        return bucketStore.updateTask(releaseId, task, requiredTask, taskUpdate.get(), withOutbox(new Update(), events, history, change));
+    }
+
+    private static Query embedded(String releaseId) {
+        return Query.query(Criteria.where("_id").is(releaseId).and("taskStorage").ne(TaskStorage.BUCKETED.name()));
+    }
+
+    private Optional<Release> modify(Query query, Update update) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Release.class));
+    }
+}
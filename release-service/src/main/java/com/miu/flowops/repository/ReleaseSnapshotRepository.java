@@ -0,0 +1,16 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.ReleaseSnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ReleaseSnapshotRepository extends MongoRepository<ReleaseSnapshot, String> {
+
+    Optional<ReleaseSnapshot> findFirstByReleaseIdAndChunkNoAndTakenAtLessThanEqualOrderByTakenAtDesc(
+            String releaseId, int chunkNo, LocalDateTime takenAt);
+
+    List<ReleaseSnapshot> findByReleaseIdAndVersionOrderByChunkNoAsc(String releaseId, long version);
+}
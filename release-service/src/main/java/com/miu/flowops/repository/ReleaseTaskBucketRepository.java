@@ -0,0 +1,48 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.dto.StaleTaskCandidate;
+import com.miu.flowops.model.DeveloperWorkload;
+import com.miu.flowops.model.ReleaseProgress;
+import com.miu.flowops.model.ReleaseTaskBucket;
+import com.miu.flowops.model.TaskStatus;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The task scans of {@link ReleaseRepository} for the tasks of bucketed releases.
+ * Writes go through {@link ReleaseTaskBucketStore}.
+ */
+public interface ReleaseTaskBucketRepository extends MongoRepository<ReleaseTaskBucket, String> {
+
+    @Aggregation(pipeline = {
+            "{ $match: { 'tasks.status': 'IN_PROCESS' } }",
+            "{ $unwind: '$tasks' }",
+            "{ $match: { 'tasks.status': 'IN_PROCESS', 'tasks.developerId': { $ne: null } } }",
+            "{ $sort: { 'tasks.startedAt': 1 } }",
+            "{ $group: { _id: '$tasks.developerId', releaseId: { $first: '$releaseId' }, taskId: { $first: '$tasks._id' }, claimedAt: { $first: '$tasks.startedAt' } } }"
+    })
+    List<DeveloperWorkload> findActiveWorkloads();
+
+    @Aggregation(pipeline = {
+            "{ $match: { 'tasks': { $elemMatch: { 'status': ?0, 'startedAt': { $lte: ?1 } } } } }",
+            "{ $unwind: '$tasks' }",
+            "{ $match: { 'tasks.status': ?0, 'tasks.startedAt': { $lte: ?1 } } }",
+            "{ $project: { _id: 0, releaseId: '$releaseId', taskId: '$tasks._id', taskTitle: '$tasks.title', developerId: '$tasks.developerId', startedAt: '$tasks.startedAt' } }"
+    })
+    Stream<StaleTaskCandidate> streamTasksByStatusAndStartedBefore(TaskStatus status, LocalDateTime time);
+
+    // $min ignores the nulls produced for completed tasks
+    @Aggregation(pipeline = {
+            "{ $unwind: '$tasks' }",
+            "{ $group: { _id: '$releaseId', "
+                    + "todo: { $sum: { $cond: [{ $eq: ['$tasks.status', 'TODO'] }, 1, 0] } }, "
+                    + "inProcess: { $sum: { $cond: [{ $eq: ['$tasks.status', 'IN_PROCESS'] }, 1, 0] } }, "
+                    + "completed: { $sum: { $cond: [{ $eq: ['$tasks.status', 'COMPLETED'] }, 1, 0] } }, "
+                    + "nextOrderIndex: { $min: { $cond: [{ $ne: ['$tasks.status', 'COMPLETED'] }, '$tasks.orderIndex', null] } } } }"
+    })
+    Stream<ReleaseProgress> streamProgress();
+}
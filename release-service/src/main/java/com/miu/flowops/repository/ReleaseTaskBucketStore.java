@@ -0,0 +1,268 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.config.ReleaseEventsConfig;
+import com.miu.flowops.config.TaskStorageConfig;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseChange;
+import com.miu.flowops.model.ReleaseTaskBucket;
+import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.model.TaskStorage;
+import com.miu.flowops.util.TaskOrder;
+import com.mongodb.MongoException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Task writes of bucketed releases, the counterpart of the embedded updates in {@link ReleaseRepositoryCustomImpl}.
+ * The bucket holding the task is updated with the same guards, and the release header gets the version bump
+ * and the outbox events in the same transaction, so both stay consistent like a single embedded update.
+ * Write conflicts with a concurrent transaction are reported as an empty result, like a guard that did not match.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReleaseTaskBucketStore {
+
+    private final MongoTemplate mongoTemplate;
+    private final TransactionTemplate mongoTransactionTemplate;
+    private final TaskStorageConfig taskStorageConfig;
+    private final ReleaseEventsConfig releaseEventsConfig;
+
+    public boolean isBucketed(String releaseId) {
+        return mongoTemplate.exists(Query.query(Criteria.where("_id").is(releaseId)
+                .and("taskStorage").is(TaskStorage.BUCKETED.name())), Release.class);
+    }
+
+    /**
+     * Lazy task list of a bucketed release, only the bucket sizes are read here.
+     */
+    public BucketedTaskList viewOf(String releaseId) {
+        Query query = bucketsOf(releaseId).with(Sort.by("bucketNo"));
+        query.fields().include("bucketNo", "size");
+        List<ReleaseTaskBucket> buckets = mongoTemplate.find(query, ReleaseTaskBucket.class);
+        int[] bucketNos = buckets.stream().mapToInt(ReleaseTaskBucket::getBucketNo).toArray();
+        int[] sizes = buckets.stream().mapToInt(ReleaseTaskBucket::getSize).toArray();
+        return new BucketedTaskList(bucketNos, sizes, bucketNo -> loadBucket(releaseId, bucketNo));
+    }
+
+    /**
+     * All tasks of a bucketed release in order, with only the given fields loaded.
+     * @param taskFields projection on the tasks array, e.g. tasks._id
+     */
+    public List<Task> findTasks(String releaseId, String... taskFields) {
+        Query query = bucketsOf(releaseId).with(Sort.by("bucketNo"));
+        query.fields().include(taskFields);
+        List<Task> tasks = new ArrayList<>();
+        for (ReleaseTaskBucket bucket : mongoTemplate.find(query, ReleaseTaskBucket.class)) {
+            if (bucket.getTasks() != null) {
+                tasks.addAll(bucket.getTasks());
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Updates one task of the release.
+     * @param task guard on the target task, its bucket is the one updated
+     * @param requiredTask guard on another task that must exist in any bucket, or null
+     */
+    public Optional<Release> updateTask(String releaseId, Criteria task, Criteria requiredTask,
+                                        Update taskUpdate, Update releaseUpdate) {
+        return inTransaction(status -> {
+            // A required task in another bucket is read in the same snapshot
+            if (requiredTask != null && !mongoTemplate.exists(bucketsOf(releaseId)
+                    .addCriteria(Criteria.where("tasks").elemMatch(requiredTask)), ReleaseTaskBucket.class)) {
+                return Optional.empty();
+            }
+            Query query = bucketsOf(releaseId).addCriteria(Criteria.where("tasks").elemMatch(task));
+            if (mongoTemplate.updateFirst(query, taskUpdate, ReleaseTaskBucket.class).getMatchedCount() == 0) {
+                return Optional.empty();
+            }
+            return modifyRelease(Query.query(Criteria.where("_id").is(releaseId)), releaseUpdate);
+        }, Optional.empty());
+    }
+
+    /**
+     * Inserts a task, appended to the last bucket or to a new one when it is full,
+     * or put in the bucket of {@code beforeTaskId}, which may then grow past the bucket size.
+     */
+    public Optional<Release> insertTask(String releaseId, Task task, String beforeTaskId, Update releaseUpdate) {
+        return inTransaction(status -> {
+            if (mongoTemplate.exists(bucketsOf(releaseId).addCriteria(Criteria.where("tasks")
+                    .elemMatch(Criteria.where("orderIndex").is(task.getOrderIndex()))), ReleaseTaskBucket.class)) {
+                return Optional.empty();
+            }
+            Query target;
+            if (beforeTaskId != null) {
+                target = bucketsOf(releaseId).addCriteria(Criteria.where("tasks").elemMatch(
+                        Criteria.where("_id").is(beforeTaskId).and("status").is(TaskStatus.TODO.name())));
+            } else {
+                Query last = bucketsOf(releaseId).with(Sort.by(Sort.Direction.DESC, "bucketNo"));
+                last.fields().include("bucketNo", "size");
+                ReleaseTaskBucket lastBucket = mongoTemplate.findOne(last, ReleaseTaskBucket.class);
+                if (lastBucket == null || lastBucket.getSize() >= taskStorageConfig.getBucketSize()) {
+                    int bucketNo = lastBucket != null ? lastBucket.getBucketNo() + 1 : 0;
+                    mongoTemplate.insert(bucket(releaseId, bucketNo, List.of(task)));
+                    return modifyRelease(Query.query(Criteria.where("_id").is(releaseId)), releaseUpdate);
+                }
+                target = Query.query(Criteria.where("_id").is(lastBucket.getId()));
+            }
+            Update update = new Update().inc("size", 1);
+            update.push("tasks").sort(Sort.by("orderIndex")).each(task);
+            if (mongoTemplate.updateFirst(target, update, ReleaseTaskBucket.class).getMatchedCount() == 0) {
+                return Optional.empty();
+            }
+            return modifyRelease(Query.query(Criteria.where("_id").is(releaseId)), releaseUpdate);
+        }, Optional.empty());
+    }
+
+    /**
+     * Writes the task list if the release is still at {@code expectedVersion}.
+     * For the lazy view of the release only the buckets that were read are rewritten, any other list replaces all buckets.
+     */
+    public Optional<Release> replaceTasks(String releaseId, Long expectedVersion, List<Task> tasks, Update releaseUpdate) {
+        return inTransaction(status -> {
+            Query release = Query.query(Criteria.where("_id").is(releaseId).and("version").is(expectedVersion));
+            if (!mongoTemplate.exists(release, Release.class)) {
+                return Optional.empty();
+            }
+            if (tasks instanceof BucketedTaskList view) {
+                view.loadedBuckets().forEach((bucketNo, bucketTasks) -> mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(ReleaseTaskBucket.idOf(releaseId, bucketNo))),
+                        Update.update("tasks", bucketTasks).set("size", bucketTasks.size()),
+                        ReleaseTaskBucket.class));
+            } else {
+                writeBuckets(releaseId, tasks);
+            }
+            Optional<Release> updated = modifyRelease(release, releaseUpdate);
+            if (updated.isEmpty()) {
+                status.setRollbackOnly();
+            }
+            return updated;
+        }, Optional.empty());
+    }
+
+    /**
+     * @param releaseUpdate the completion, with its change log entry and history
+     */
+    public boolean markCompletedIfAllTasksDone(String releaseId, Update releaseUpdate) {
+        return inTransaction(status -> {
+            if (mongoTemplate.exists(bucketsOf(releaseId).addCriteria(Criteria.where("tasks")
+                    .elemMatch(Criteria.where("status").ne(TaskStatus.COMPLETED.name()))), ReleaseTaskBucket.class)) {
+                return false;
+            }
+            Query query = Query.query(Criteria.where("_id").is(releaseId).and("isCompleted").ne(true));
+            return mongoTemplate.updateFirst(query, releaseUpdate, Release.class).getModifiedCount() == 1;
+        }, false);
+    }
+
+    /**
+     * Moves the embedded tasks of a release to buckets, only if nobody changed the release meanwhile.
+     * @return false if the release does not exist, is already bucketed or was modified concurrently
+     */
+    public boolean migrate(String releaseId) {
+        return inTransaction(status -> {
+            Release release = mongoTemplate.findOne(Query.query(Criteria.where("_id").is(releaseId)
+                    .and("taskStorage").ne(TaskStorage.BUCKETED.name())), Release.class);
+            if (release == null) {
+                return false;
+            }
+            List<Task> tasks = release.getTasks() != null ? release.getTasks() : List.of();
+            writeBuckets(releaseId, tasks);
+            // The tasks are unchanged, only the storage is
+            Update update = ReleaseChangeLog.record(new Update()
+                    .unset("tasks")
+                    .set("taskStorage", TaskStorage.BUCKETED)
+                    .set("tailOrderIndex", TaskOrder.tailOf(tasks)), ReleaseChange.ofRelease(), releaseEventsConfig.getChangeLogSize());
+            boolean migrated = mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(releaseId)
+                    .and("version").is(release.getVersion())), update, Release.class).getModifiedCount() == 1;
+            if (!migrated) {
+                status.setRollbackOnly();
+            }
+            return migrated;
+        }, false);
+    }
+
+    /**
+     * Removes every bucket of a release, for a release that is deleted.
+     */
+    public void deleteTasks(String releaseId) {
+        mongoTemplate.remove(bucketsOf(releaseId), ReleaseTaskBucket.class);
+    }
+
+    /**
+     * Ids of embedded releases holding more than {@code threshold} tasks.
+     */
+    public List<String> findMigrationCandidates(int threshold, int limit) {
+        // tasks.N exists only if the array has more than N elements
+        Query query = Query.query(Criteria.where("taskStorage").ne(TaskStorage.BUCKETED.name())
+                .and("tasks." + threshold).exists(true))
+                .limit(limit);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Release.class).stream().map(Release::getId).toList();
+    }
+
+    private List<Task> loadBucket(String releaseId, int bucketNo) {
+        ReleaseTaskBucket bucket = mongoTemplate.findById(ReleaseTaskBucket.idOf(releaseId, bucketNo), ReleaseTaskBucket.class);
+        return bucket != null && bucket.getTasks() != null ? bucket.getTasks() : List.of();
+    }
+
+    // Replaces every bucket of the release with the tasks cut in bucket-size slices
+    private void writeBuckets(String releaseId, List<Task> tasks) {
+        deleteTasks(releaseId);
+        int bucketSize = taskStorageConfig.getBucketSize();
+        List<ReleaseTaskBucket> buckets = new ArrayList<>();
+        for (int from = 0; from < tasks.size(); from += bucketSize) {
+            buckets.add(bucket(releaseId, buckets.size(),
+                    new ArrayList<>(tasks.subList(from, Math.min(from + bucketSize, tasks.size())))));
+        }
+        if (!buckets.isEmpty()) {
+            mongoTemplate.insertAll(buckets);
+        }
+    }
+
+    private static ReleaseTaskBucket bucket(String releaseId, int bucketNo, List<Task> tasks) {
+        return ReleaseTaskBucket.builder()
+                .id(ReleaseTaskBucket.idOf(releaseId, bucketNo))
+                .releaseId(releaseId)
+                .bucketNo(bucketNo)
+                .size(tasks.size())
+                .tasks(new ArrayList<>(tasks))
+                .build();
+    }
+
+    private static Query bucketsOf(String releaseId) {
+        return Query.query(Criteria.where("releaseId").is(releaseId));
+    }
+
+    private Optional<Release> modifyRelease(Query query, Update update) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Release.class));
+    }
+
+    private <T> T inTransaction(Function<TransactionStatus, T> work, T onConflict) {
+        try {
+            return mongoTransactionTemplate.execute(work::apply);
+        } catch (DataAccessException e) {
+            if (e.getCause() instanceof MongoException mongoException
+                    && mongoException.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return onConflict;
+            }
+            throw e;
+        }
+    }
+}
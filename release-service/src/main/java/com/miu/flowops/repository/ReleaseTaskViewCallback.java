@@ -0,0 +1,29 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.TaskStorage;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives every bucketed release read from the database a lazy task view, so callers keep using {@link Release#getTasks()}.
+ * Partial reads that do not load the taskStorage field are left untouched.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReleaseTaskViewCallback implements AfterConvertCallback<Release> {
+
+    // Looked up lazily, the store depends on the MongoTemplate that invokes this callback
+    private final ObjectProvider<ReleaseTaskBucketStore> bucketStore;
+
+    @Override
+    public Release onAfterConvert(Release release, Document document, String collection) {
+        if (release.getTaskStorage() == TaskStorage.BUCKETED && release.getTasks() == null) {
+            release.setTasks(bucketStore.getObject().viewOf(release.getId()));
+        }
+        return release;
+    }
+}
@@ -0,0 +1,7 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.SchedulerLock;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface SchedulerLockRepository extends MongoRepository<SchedulerLock, String>, SchedulerLockRepositoryCustom {
+}
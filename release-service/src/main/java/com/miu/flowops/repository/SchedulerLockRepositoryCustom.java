@@ -0,0 +1,14 @@
+package com.miu.flowops.repository;
+
+import java.time.LocalDateTime;
+
+public interface SchedulerLockRepositoryCustom {
+
+    /**
+     * Takes or extends the lease if it is expired or already held by {@code owner}.
+     * @return true if {@code owner} holds the lease until {@code lockedUntil}
+     */
+    boolean tryAcquire(String name, String owner, LocalDateTime now, LocalDateTime lockedUntil);
+
+    void release(String name, String owner, LocalDateTime now);
+}
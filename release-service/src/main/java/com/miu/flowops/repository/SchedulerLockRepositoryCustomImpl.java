@@ -0,0 +1,39 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.SchedulerLock;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+@RequiredArgsConstructor
+public class SchedulerLockRepositoryCustomImpl implements SchedulerLockRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean tryAcquire(String name, String owner, LocalDateTime now, LocalDateTime lockedUntil) {
+        Query query = Query.query(Criteria.where("_id").is(name)
+                .orOperator(Criteria.where("lockedUntil").lte(now), Criteria.where("owner").is(owner)));
+        Update update = new Update()
+                .set("owner", owner)
+                .set("lockedUntil", lockedUntil);
+        try {
+            // When another owner holds a live lease the filter misses and the upsert collides on _id
+            mongoTemplate.upsert(query, update, SchedulerLock.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void release(String name, String owner, LocalDateTime now) {
+        Query query = Query.query(Criteria.where("_id").is(name).and("owner").is(owner));
+        mongoTemplate.updateFirst(query, Update.update("lockedUntil", now), SchedulerLock.class);
+    }
+}
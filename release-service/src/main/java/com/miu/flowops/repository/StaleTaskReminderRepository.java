@@ -0,0 +1,7 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.StaleTaskReminder;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface StaleTaskReminderRepository extends MongoRepository<StaleTaskReminder, String> {
+}
@@ -0,0 +1,21 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.TaskEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TaskEventRepository extends MongoRepository<TaskEvent, String> {
+
+    @Query("{ 'releaseId': ?0, 'at': { $gte: ?1, $lt: ?2 } }")
+    List<TaskEvent> findByReleaseIdAndAtInRange(String releaseId, LocalDateTime from, LocalDateTime to, Sort sort, Limit limit);
+
+    // Entries after a snapshot taken at version ?1 and time ?2, up to time ?3
+    @Query("{ 'releaseId': ?0, 'at': { $lte: ?3 }, $or: [ { 'version': { $gt: ?1 } }, { 'version': null, 'at': { $gt: ?2 } } ] }")
+    List<TaskEvent> findReplayTail(String releaseId, long snapshotVersion, LocalDateTime snapshotTakenAt,
+                                   LocalDateTime until, Sort sort);
+}
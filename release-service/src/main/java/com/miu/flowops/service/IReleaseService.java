@@ -1,13 +1,20 @@
 package com.miu.flowops.service;
 
+import com.miu.flowops.dto.CursorPage;
+import com.miu.flowops.dto.ReleaseChanges;
+import com.miu.flowops.dto.ReleaseSummary;
 import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseProgress;
 import com.miu.flowops.model.Task;
 
 public interface IReleaseService {
     Release createRelease(Release release);
     Release getRelease(String id);
+    ReleaseProgress getProgress(String releaseId);
+    ReleaseChanges getChanges(String releaseId, long since);
+    CursorPage<ReleaseSummary> listReleases(Boolean completed, String cursor, int limit);
     Task assignDeveloper(String releaseId, String taskId, String developerId);
-    void addHotfixTask(String releaseId, Task newTask);
+    void addHotfixTask(String releaseId, Task newTask, String beforeTaskId);
     Release completeRelease(String releaseId);
     void deleteRelease(String releaseId);
 }
@@ -1,6 +1,10 @@
 package com.miu.flowops.service;
 
+import com.miu.flowops.dto.TaskBatchRequest;
+import com.miu.flowops.dto.TaskBatchResponse;
+
 public interface ITaskService {
     void startTask(String releaseId, String taskId, String developerId);
     void completeTask(String releaseId, String taskId, String developerId);
+    TaskBatchResponse applyBatch(String releaseId, TaskBatchRequest request);
 }
@@ -1,42 +1,142 @@
 package com.miu.flowops.service;
 
-import com.miu.flowops.dto.HotfixTaskAddedEvent;
+import com.miu.flowops.dto.ReleaseChangedEvent;
+import com.miu.flowops.dto.ReleaseTaskChangesEvent;
 import com.miu.flowops.dto.StaleTaskDetectedEvent;
-import com.miu.flowops.dto.TaskAssignedEvent;
-import com.miu.flowops.dto.TaskCompletedEvent;
+import com.miu.flowops.model.OutboxEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.RetriableException;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.miu.flowops.util.KafkaTopics.*;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class KafkaProducerService {
 
+    private static final long SEND_TIMEOUT_SECONDS = 10;
+
     private final KafkaTemplate<String, Object> kafkaTemplate;
-    private static final String TOPIC_TASK_ASSIGNED = "task-assigned-topic";
-    private static final String TOPIC_TASK_COMPLETED = "task-completed-topic";
-    private static final String TOPIC_HOTFIX_ADDED = "hotfix-task-added-topic";
-    private static final String TOPIC_STALE_TASK_REMINDER = "stale-task-reminder-topic";
+    private final MeterRegistry meterRegistry;
 
-    public void sendTaskAssignedEvent(TaskAssignedEvent event) {
-        log.info("Publishing TaskAssignedEvent: {}", event);
-        kafkaTemplate.send(TOPIC_TASK_ASSIGNED, event);
+    public void sendStaleTaskDetectedEvent(StaleTaskDetectedEvent event) {
+        log.info("Publishing StaleTaskDetectedEvent: {}", event);
+        send(STALE_TASK_REMINDER, event.getReleaseId(), event);
     }
 
-    public void sendTaskCompletedEvent(TaskCompletedEvent event) {
-        log.info("Publishing TaskCompletedEvent: {}", event);
-        kafkaTemplate.send(TOPIC_TASK_COMPLETED, event);
+    public void sendReleaseChangedEvent(ReleaseChangedEvent event) {
+        log.debug("Publishing ReleaseChangedEvent: {}", event);
+        send(RELEASE_CHANGED, event.getReleaseId(), event);
     }
 
-    public void sendHotfixTaskAddedEvent(HotfixTaskAddedEvent event) {
-        log.info("Publishing HotfixTaskAddedEvent: {}", event);
-        kafkaTemplate.send(TOPIC_HOTFIX_ADDED, event);
+    public void sendReleaseTaskChangesEvent(ReleaseTaskChangesEvent event) {
+        log.debug("Publishing ReleaseTaskChangesEvent for release {} at version {}", event.getReleaseId(), event.getVersion());
+        send(RELEASE_TASK_CHANGES, event.getReleaseId(), event);
     }
 
-    public void sendStaleTaskDetectedEvent(StaleTaskDetectedEvent event) {
-        log.info("Publishing StaleTaskDetectedEvent: {}", event);
-        kafkaTemplate.send(TOPIC_STALE_TASK_REMINDER, event);
+    /**
+     * Outcome of {@link #publish(List)}.
+     * @param delivered ids of the events that were acknowledged
+     * @param rejected ids of the events that failed with an error retrying will not fix, e.g. a payload that cannot be
+     *                 serialized or is too large. Events failing with retriable errors, like an unavailable broker, are in neither set
+     */
+    public record PublishResult(Set<String> delivered, Set<String> rejected) {
+    }
+
+    /**
+     * Sends the events as one producer batch and waits for the broker acknowledgements.
+     * An event that cannot be sent does not stop the others.
+     */
+    public PublishResult publish(List<OutboxEvent> events) {
+        Map<String, CompletableFuture<SendResult<String, Object>>> futures = new LinkedHashMap<>();
+        Set<String> rejected = new HashSet<>();
+        for (OutboxEvent event : events) {
+            try {
+                futures.put(event.getId(), send(event.getTopic(), event.getKey(), event.getPayload()));
+            } catch (RuntimeException e) {
+                log.warn("Failed to send outbox event {}: {}", event.getId(), e.getMessage());
+                if (!isRetriable(e)) {
+                    rejected.add(event.getId());
+                }
+            }
+        }
+        kafkaTemplate.flush();
+
+        Set<String> delivered = new HashSet<>();
+        for (Map.Entry<String, CompletableFuture<SendResult<String, Object>>> entry : futures.entrySet()) {
+            try {
+                entry.getValue().get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                delivered.add(entry.getKey());
+            } catch (ExecutionException e) {
+                log.warn("Failed to publish outbox event {}: {}", entry.getKey(), e.getMessage());
+                if (!isRetriable(e.getCause())) {
+                    rejected.add(entry.getKey());
+                }
+            } catch (TimeoutException e) {
+                log.warn("Failed to publish outbox event {}: {}", entry.getKey(), e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.info("Published {}/{} outbox events, {} rejected", delivered.size(), events.size(), rejected.size());
+        return new PublishResult(delivered, rejected);
+    }
+
+    // Keyed by releaseId so all events of a release land on the same partition and keep their order
+    private CompletableFuture<SendResult<String, Object>> send(String topic, String key, Object payload) {
+        long start = System.nanoTime();
+        CompletableFuture<SendResult<String, Object>> future;
+        try {
+            future = kafkaTemplate.send(topic, key, payload);
+        } catch (RuntimeException e) {
+            // Serialization and metadata errors are thrown before the record is queued
+            recordSend(topic, start, e);
+            throw e;
+        }
+        return future.whenComplete((result, ex) -> {
+            recordSend(topic, start, ex);
+            if (ex != null) {
+                log.error("Failed to send record to {} with key {}: {}", topic, key, ex.getMessage());
+            }
+        });
+    }
+
+    // Kafka marks the errors that may go away on their own, e.g. a leader election or a timeout
+    private static boolean isRetriable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordSend(String topic, long start, Throwable ex) {
+        Timer.builder("release.kafka.send")
+                .description("Time until the broker acknowledged a record")
+                .tag("topic", topic)
+                .tag("outcome", ex == null ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (ex != null) {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            meterRegistry.counter("release.kafka.send.errors",
+                    "topic", topic, "exception", cause.getClass().getSimpleName()).increment();
+        }
     }
 }
@@ -0,0 +1,63 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.dto.CursorPage;
+import com.miu.flowops.dto.DeveloperTask;
+import com.miu.flowops.dto.DeveloperTaskCursor;
+import com.miu.flowops.dto.DeveloperWorkloadSummary;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.exceptions.ResourceNotFoundException;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Tasks per developer across releases, read with one aggregation over the tasks.developerId index
+ * instead of loading every release and filtering its tasks.
+ */
+@Service
+@RequiredArgsConstructor
+public class DeveloperTaskService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ReleaseRepository releaseRepository;
+    private final UserRepository userRepository;
+
+    public CursorPage<DeveloperTask> getTasks(String developerId, TaskStatus status, DeveloperTask.SortBy sortBy,
+                                              String cursor, int limit) {
+        checkLimit(limit);
+        if (!userRepository.existsById(developerId)) {
+            throw new ResourceNotFoundException("Developer not found");
+        }
+        DeveloperTaskCursor after = cursor != null ? DeveloperTaskCursor.decode(cursor) : null;
+        // One extra row tells whether there is a next page
+        List<DeveloperTask> tasks = releaseRepository.findDeveloperTasks(developerId, status, sortBy, after, limit + 1);
+        boolean hasMore = tasks.size() > limit;
+        List<DeveloperTask> items = hasMore ? tasks.subList(0, limit) : tasks;
+        return CursorPage.<DeveloperTask>builder()
+                .items(items)
+                .nextCursor(hasMore ? DeveloperTaskCursor.of(items.get(items.size() - 1), sortBy).encode() : null)
+                .build();
+    }
+
+    public CursorPage<DeveloperWorkloadSummary> getWorkload(String cursor, int limit) {
+        checkLimit(limit);
+        List<DeveloperWorkloadSummary> workloads = releaseRepository.findDeveloperWorkloads(cursor, limit + 1);
+        boolean hasMore = workloads.size() > limit;
+        List<DeveloperWorkloadSummary> items = hasMore ? workloads.subList(0, limit) : workloads;
+        return CursorPage.<DeveloperWorkloadSummary>builder()
+                .items(items)
+                .nextCursor(hasMore ? items.get(items.size() - 1).getDeveloperId() : null)
+                .build();
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.IdempotencyConfig;
+import com.miu.flowops.exceptions.ConflictException;
+import com.miu.flowops.model.IdempotencyRecord;
+import com.miu.flowops.repository.IdempotencyRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Executes a request at most once per Idempotency-Key and replays the stored response to its retries.
+ * Duplicates arriving on this instance while the first one runs wait for its response instead of executing,
+ * duplicates on other instances see the claim in the store and poll it until the response is stored.
+ * Responses with a 5xx status and 409 conflicts are not stored, the claim is dropped so a retry executes the request again.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final IdempotencyConfig idempotencyConfig;
+
+    // Identifies this replica as claim owner
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Map<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface Execution {
+        /**
+         * @return the response to store, only its status, content type and body are used
+         */
+        IdempotencyRecord run() throws Exception;
+    }
+
+    /**
+     * @return the stored response if the request was already executed, or null if {@code execution} ran for this call
+     */
+    public IdempotencyRecord execute(String id, Execution execution) throws Exception {
+        long deadline = System.currentTimeMillis() + idempotencyConfig.getWaitMillis();
+        while (true) {
+            CompletableFuture<IdempotencyRecord> mine = new CompletableFuture<>();
+            CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(id, mine);
+            if (running != null) {
+                IdempotencyRecord response = await(running, deadline);
+                if (response != null) {
+                    return response;
+                }
+                // The first request failed, its claim was dropped
+                continue;
+            }
+            try {
+                IdempotencyRecord stored = claimOrAwaitStored(id, deadline);
+                if (stored != null) {
+                    mine.complete(stored);
+                    return stored;
+                }
+                // Waiters get null and execute the request themselves if the response is not stored
+                mine.complete(run(id, execution));
+                return null;
+            } catch (Exception e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(id, mine);
+            }
+        }
+    }
+
+    // Returns the stored response, or null if the request failed and its claim was dropped
+    private IdempotencyRecord run(String id, Execution execution) throws Exception {
+        IdempotencyRecord response;
+        try {
+            response = execution.run();
+        } catch (Exception e) {
+            idempotencyRecordRepository.abandon(id, instanceId);
+            throw e;
+        }
+        // A conflict with a concurrent write asks the client to retry, replaying it would fail every retry
+        if (response.getStatusCode() >= 500 || response.getStatusCode() == HttpStatus.CONFLICT.value()) {
+            idempotencyRecordRepository.abandon(id, instanceId);
+            return null;
+        }
+        idempotencyRecordRepository.complete(id, instanceId, response.getStatusCode(),
+                response.getContentType(), response.getBody());
+        return response;
+    }
+
+    // Returns the response stored by another instance, or null once this instance holds the claim
+    private IdempotencyRecord claimOrAwaitStored(String id, long deadline) {
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            if (idempotencyRecordRepository.tryClaim(id, instanceId, now, now.plusSeconds(idempotencyConfig.getLeaseSeconds()))) {
+                return null;
+            }
+            IdempotencyRecord record = idempotencyRecordRepository.findById(id).orElse(null);
+            if (record != null && record.isCompleted()) {
+                return record;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new ConflictException("A request with this Idempotency-Key is still in progress, please retry.");
+            }
+            sleep(idempotencyConfig.getPollMillis());
+        }
+    }
+
+    private IdempotencyRecord await(CompletableFuture<IdempotencyRecord> running, long deadline) {
+        try {
+            return running.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ConflictException("A request with this Idempotency-Key is still in progress, please retry.");
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Interrupted while waiting for a request with the same Idempotency-Key.");
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Interrupted while waiting for a request with the same Idempotency-Key.");
+        }
+    }
+}
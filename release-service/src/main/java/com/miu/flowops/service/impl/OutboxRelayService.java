@@ -0,0 +1,86 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.OutboxConfig;
+import com.miu.flowops.model.OutboxEvent;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.SchedulerLockRepository;
+import com.miu.flowops.service.KafkaProducerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Publishes the events stored in the release outbox and removes them once Kafka acknowledged them.
+ * Delivery is at-least-once: an event is only removed after the broker confirmed it.
+ * An event the broker keeps rejecting is dead-lettered after {@link OutboxConfig#getMaxAttempts()} runs,
+ * so it does not block its release forever. Retriable failures, like an unavailable broker, are retried without limit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelayService {
+
+    private static final String OUTBOX_RELAY_LOCK = "outbox-relay";
+    private static final long LEASE_SECONDS = 30;
+    private static final int RELEASE_BATCH_SIZE = 100;
+
+    private final ReleaseRepository releaseRepository;
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final KafkaProducerService kafkaProducerService;
+    private final OutboxConfig outboxConfig;
+
+    // Identifies this replica as lease owner, the lease is renewed on every run so one replica keeps relaying
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Scheduled(fixedDelay = 1000)
+    public void relay() {
+        LocalDateTime now = LocalDateTime.now();
+        if (!schedulerLockRepository.tryAcquire(OUTBOX_RELAY_LOCK, instanceId, now, now.plusSeconds(LEASE_SECONDS))) {
+            return;
+        }
+        List<Release> releases = releaseRepository.findWithPendingOutbox(RELEASE_BATCH_SIZE);
+        if (releases.isEmpty()) {
+            return;
+        }
+        List<OutboxEvent> events = releases.stream()
+                .flatMap(release -> release.getOutbox().stream())
+                .toList();
+        KafkaProducerService.PublishResult result = kafkaProducerService.publish(events);
+
+        // Only remove the delivered prefix of each outbox, so a failed event is retried before the ones after it
+        Map<String, List<String>> published = new HashMap<>();
+        Map<String, String> rejected = new HashMap<>();
+        Map<String, List<OutboxEvent>> deadLetters = new HashMap<>();
+        for (Release release : releases) {
+            List<String> eventIds = new ArrayList<>();
+            for (OutboxEvent event : release.getOutbox()) {
+                if (result.delivered().contains(event.getId())) {
+                    eventIds.add(event.getId());
+                    continue;
+                }
+                if (result.rejected().contains(event.getId())) {
+                    event.setAttempts(event.getAttempts() + 1);
+                    if (event.getAttempts() >= outboxConfig.getMaxAttempts()) {
+                        log.error("Outbox event {} of release {} to {} was rejected {} times, moving it to the dead letters",
+                                event.getId(), release.getId(), event.getTopic(), event.getAttempts());
+                        deadLetters.computeIfAbsent(release.getId(), id -> new ArrayList<>()).add(event);
+                        continue;
+                    }
+                    rejected.put(release.getId(), event.getId());
+                }
+                break;
+            }
+            if (!eventIds.isEmpty()) {
+                published.put(release.getId(), eventIds);
+            }
+        }
+        releaseRepository.recordOutboxFailures(rejected);
+        releaseRepository.deadLetterOutboxEvents(deadLetters);
+        releaseRepository.removeOutboxEvents(published);
+    }
+}
@@ -0,0 +1,159 @@
+package com.miu.flowops.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.miu.flowops.config.CacheConfig;
+import com.miu.flowops.dto.EncodedRelease;
+import com.miu.flowops.dto.ReleaseChangedEvent;
+import com.miu.flowops.dto.ReleaseChanges;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.Task;
+import com.miu.flowops.repository.BucketedTaskList;
+import com.miu.flowops.service.KafkaProducerService;
+import com.miu.flowops.util.KafkaTopics;
+import com.miu.flowops.util.ReleaseFields;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Near-cache of releases, bounded by the number of tasks it holds.
+ * Callers always get a copy, so in-memory changes made before a write never leak into the cache.
+ * Completed releases are also kept as encoded JSON, bounded by bytes, since they are served far more often than written.
+ * Every write path evicts the release here and on the other replicas through the release-changed topic.
+ */
+@Component
+@Slf4j
+public class ReleaseCache {
+
+    private final Cache<String, Release> cache;
+    private final Cache<String, EncodedRelease> completed;
+    private final KafkaProducerService kafkaProducerService;
+    private final JsonMapper jsonMapper;
+    private final int gzipMinBytes;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public ReleaseCache(CacheConfig cacheConfig, KafkaProducerService kafkaProducerService, JsonMapper jsonMapper,
+                        MeterRegistry meterRegistry) {
+        this.kafkaProducerService = kafkaProducerService;
+        this.jsonMapper = jsonMapper;
+        this.gzipMinBytes = cacheConfig.getCompletedRelease().getGzipMinBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(cacheConfig.getRelease().getMaxWeight())
+                .weigher((String id, Release release) -> weightOf(release))
+                .expireAfterWrite(Duration.ofSeconds(cacheConfig.getRelease().getTtlSeconds()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "release");
+        this.completed = Caffeine.newBuilder()
+                .maximumWeight(cacheConfig.getCompletedRelease().getMaxBytes())
+                .weigher((String id, EncodedRelease body) -> body.size())
+                .expireAfterWrite(Duration.ofMinutes(cacheConfig.getCompletedRelease().getTtlMinutes()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "completed-release");
+    }
+
+    /**
+     * @param loader reads the release from the database, may return null if it does not exist
+     * @return a copy of the cached release, or null
+     */
+    public Release get(String releaseId, Function<String, Release> loader) {
+        // An eviction racing with the load waits for it and then drops the loaded value
+        Release release = cache.get(releaseId, loader);
+        return release != null ? copyOf(release) : null;
+    }
+
+    /**
+     * Encoded body of a completed release, encoded once and then served from memory until the release is written again.
+     * @param loader reads the release, returns null if it is not completed
+     * @return the cached body, or null if the release is not completed
+     */
+    public EncodedRelease getCompleted(String releaseId, Function<String, Release> loader) {
+        return completed.get(releaseId, id -> {
+            Release release = loader.apply(id);
+            return release != null ? encode(release, true) : null;
+        });
+    }
+
+    public EncodedRelease encode(Release release, boolean compress) {
+        byte[] json = jsonMapper.writeValueAsBytes(release);
+        return new EncodedRelease(release.getVersion() != null ? release.getVersion() : 0, json,
+                compress && json.length >= gzipMinBytes ? gzip(json) : null);
+    }
+
+    // Sparse responses are not cached, each field selection would be a separate entry
+    public EncodedRelease encode(Release release, ReleaseFields fields) {
+        return new EncodedRelease(release.getVersion() != null ? release.getVersion() : 0,
+                fields.write(release, jsonMapper), null);
+    }
+
+    public byte[] encodeChanges(ReleaseChanges changes, ReleaseFields fields) {
+        return fields.write(changes, jsonMapper);
+    }
+
+    public void evict(String releaseId) {
+        cache.invalidate(releaseId);
+        completed.invalidate(releaseId);
+        kafkaProducerService.sendReleaseChangedEvent(ReleaseChangedEvent.builder()
+                .releaseId(releaseId)
+                .origin(instanceId)
+                .build());
+    }
+
+    // Every replica listens in its own group, only new events matter for a cache
+    @KafkaListener(topics = KafkaTopics.RELEASE_CHANGED,
+            groupId = "release-cache-#{T(java.util.UUID).randomUUID().toString()}",
+            properties = "auto.offset.reset=latest")
+    public void onReleaseChanged(ReleaseChangedEvent event) {
+        if (!instanceId.equals(event.getOrigin())) {
+            log.debug("Evicting release {} changed on another instance", event.getReleaseId());
+            cache.invalidate(event.getReleaseId());
+            completed.invalidate(event.getReleaseId());
+        }
+    }
+
+    // Only embedded tasks are held in memory
+    private static int weightOf(Release release) {
+        return release.getTasks() == null || release.getTasks() instanceof BucketedTaskList
+                ? 1
+                : 1 + release.getTasks().size();
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static Release copyOf(Release release) {
+        List<Task> tasks;
+        if (release.getTasks() instanceof BucketedTaskList view) {
+            // Bucketed tasks are not cached, each copy reads them lazily
+            tasks = view.detached();
+        } else {
+            tasks = release.getTasks() == null ? null : release.getTasks().stream()
+                    .map(task -> task.toBuilder().build())
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        return release.toBuilder().tasks(tasks).build();
+    }
+}
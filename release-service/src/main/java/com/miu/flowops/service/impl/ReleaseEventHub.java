@@ -0,0 +1,262 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.ReleaseEventsConfig;
+import com.miu.flowops.dto.ReleaseTaskChangesEvent;
+import com.miu.flowops.service.KafkaProducerService;
+import com.miu.flowops.util.KafkaTopics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out of release changes to the SSE subscribers of GET /releases/{id}/events.
+ * Each subscriber has a bounded queue drained by its own virtual thread, so a slow client never blocks a write;
+ * when its queue is full it is disconnected and resumes with Last-Event-ID from the history kept per release.
+ * Changes made on other replicas arrive through the release-task-changes topic.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReleaseEventHub {
+
+    static final String CHANGE_EVENT = "change";
+    static final String RESYNC_EVENT = "resync";
+
+    private final ReleaseEventsConfig config;
+    private final KafkaProducerService kafkaProducerService;
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * Delivers the event to the local subscribers and to those of the other replicas.
+     */
+    public void publish(ReleaseTaskChangesEvent event) {
+        event.setOrigin(instanceId);
+        deliver(event);
+        kafkaProducerService.sendReleaseTaskChangesEvent(event);
+    }
+
+    // Every replica listens in its own group, only new events matter for live subscribers
+    @KafkaListener(topics = KafkaTopics.RELEASE_TASK_CHANGES,
+            groupId = "release-events-#{T(java.util.UUID).randomUUID().toString()}",
+            properties = "auto.offset.reset=latest")
+    public void onReleaseTaskChanges(ReleaseTaskChangesEvent event) {
+        if (!instanceId.equals(event.getOrigin())) {
+            deliver(event);
+        }
+    }
+
+    /**
+     * @param lastEventId version of the last event the client received, or null for a new stream
+     * @param currentVersion version of the release when subscribing
+     */
+    public SseEmitter subscribe(String releaseId, Long lastEventId, Long currentVersion) {
+        SseEmitter emitter = createEmitter();
+        Subscriber subscriber = new Subscriber(releaseId, emitter);
+        Channel channel = channels.computeIfAbsent(releaseId, id -> new Channel());
+        // Replay and registration under the channel lock, so no event is missed or sent twice in between
+        synchronized (channel) {
+            if (lastEventId != null) {
+                if (channel.covers(lastEventId)) {
+                    for (ReleaseTaskChangesEvent event : channel.history) {
+                        // More missed events than the buffer holds, a reload is cheaper anyway
+                        if (event.getVersion() > lastEventId && !subscriber.offer(event)) {
+                            subscriber.offerResync(currentVersion);
+                            break;
+                        }
+                    }
+                } else if (!lastEventId.equals(currentVersion)) {
+                    subscriber.offerResync(currentVersion);
+                }
+            }
+            channel.subscribers.add(subscriber);
+            channel.lastActivity = System.nanoTime();
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        Thread.ofVirtual().name("release-events-" + releaseId).start(subscriber::drain);
+        return emitter;
+    }
+
+    // Drops the history of releases nobody watched for a while, their subscribers will resync
+    @Scheduled(fixedDelay = 1000 * 60)
+    public void evictIdleChannels() {
+        long idleNanos = TimeUnit.MINUTES.toNanos(config.getHistoryTtlMinutes());
+        long now = System.nanoTime();
+        channels.entrySet().removeIf(entry -> {
+            Channel channel = entry.getValue();
+            synchronized (channel) {
+                return channel.subscribers.isEmpty() && now - channel.lastActivity > idleNanos;
+            }
+        });
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(TimeUnit.MINUTES.toMillis(config.getTimeoutMinutes()));
+    }
+
+    int subscriberCount(String releaseId) {
+        Channel channel = channels.get(releaseId);
+        if (channel == null) {
+            return 0;
+        }
+        synchronized (channel) {
+            return channel.subscribers.size();
+        }
+    }
+
+    private void deliver(ReleaseTaskChangesEvent event) {
+        Channel channel = channels.computeIfAbsent(event.getReleaseId(), id -> new Channel());
+        synchronized (channel) {
+            if (event.getVersion() != null) {
+                channel.record(event, config.getHistorySize());
+            }
+            for (Iterator<Subscriber> it = channel.subscribers.iterator(); it.hasNext(); ) {
+                Subscriber subscriber = it.next();
+                if (!subscriber.offer(event)) {
+                    subscriber.end();
+                    it.remove();
+                } else if (event.isDeleted()) {
+                    subscriber.endAfterPending();
+                    it.remove();
+                }
+            }
+            channel.lastActivity = System.nanoTime();
+        }
+        if (event.isDeleted()) {
+            channels.remove(event.getReleaseId(), channel);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        Channel channel = channels.get(subscriber.releaseId);
+        if (channel != null) {
+            synchronized (channel) {
+                channel.subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    // Guarded by its own monitor
+    private static class Channel {
+        // Sorted by version, events from other replicas may arrive out of order
+        private final ArrayDeque<ReleaseTaskChangesEvent> history = new ArrayDeque<>();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private long lastActivity = System.nanoTime();
+
+        void record(ReleaseTaskChangesEvent event, int historySize) {
+            if (history.isEmpty() || history.peekLast().getVersion() < event.getVersion()) {
+                history.addLast(event);
+            } else {
+                List<ReleaseTaskChangesEvent> sorted = new ArrayList<>(history);
+                int at = 0;
+                while (at < sorted.size() && sorted.get(at).getVersion() < event.getVersion()) {
+                    at++;
+                }
+                if (at < sorted.size() && sorted.get(at).getVersion().equals(event.getVersion())) {
+                    return;
+                }
+                sorted.add(at, event);
+                history.clear();
+                history.addAll(sorted);
+            }
+            while (history.size() > historySize) {
+                history.removeFirst();
+            }
+        }
+
+        // Versions are not contiguous (completion writes have no event), so the history only has to reach back far enough
+        boolean covers(long lastEventId) {
+            return !history.isEmpty() && history.peekFirst().getVersion() <= lastEventId + 1;
+        }
+    }
+
+    private class Subscriber {
+        private static final SseEmitter.SseEventBuilder END = SseEmitter.event();
+
+        private final String releaseId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private volatile boolean closed;
+
+        Subscriber(String releaseId, SseEmitter emitter) {
+            this.releaseId = releaseId;
+            this.emitter = emitter;
+            // One extra slot so the end marker always fits
+            this.queue = new ArrayBlockingQueue<>(config.getBufferSize() + 1);
+        }
+
+        boolean offer(ReleaseTaskChangesEvent event) {
+            SseEmitter.SseEventBuilder sse = SseEmitter.event().name(CHANGE_EVENT).data(event);
+            if (event.getVersion() != null) {
+                sse.id(event.getVersion().toString());
+            }
+            return queue.size() < config.getBufferSize() && queue.offer(sse);
+        }
+
+        void offerResync(Long currentVersion) {
+            queue.clear();
+            SseEmitter.SseEventBuilder sse = SseEmitter.event().name(RESYNC_EVENT).data("");
+            if (currentVersion != null) {
+                sse.id(currentVersion.toString());
+            }
+            queue.offer(sse);
+        }
+
+        // Pending events are dropped, the client gets them again from the history when it reconnects
+        void end() {
+            queue.clear();
+            queue.offer(END);
+        }
+
+        void endAfterPending() {
+            queue.offer(END);
+        }
+
+        void drain() {
+            long heartbeatMillis = TimeUnit.SECONDS.toMillis(config.getHeartbeatSeconds());
+            try {
+                while (!closed) {
+                    SseEmitter.SseEventBuilder sse = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    if (sse == END) {
+                        emitter.complete();
+                        return;
+                    }
+                    emitter.send(sse != null ? sse : SseEmitter.event().comment("heartbeat"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Subscriber of release {} disconnected: {}", releaseId, e.getMessage());
+                emitter.completeWithError(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                emitter.complete();
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                unsubscribe(this);
+            }
+        }
+    }
+}
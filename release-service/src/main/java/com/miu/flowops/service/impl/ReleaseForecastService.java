@@ -0,0 +1,124 @@
+package com.miu.flowops.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.miu.flowops.config.ForecastConfig;
+import com.miu.flowops.dto.ReleaseForecast;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.util.CompletionSimulation;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Completion forecast of a release, simulated from the cycle times of its own completed tasks.
+ * Forecasts are cached per release version, so only the first request after a write runs the simulation.
+ */
+@Service
+public class ReleaseForecastService {
+
+    private final ReleaseService releaseService;
+    private final ForecastConfig config;
+    private final ForkJoinPool pool;
+    private final Cache<String, ReleaseForecast> forecasts;
+
+    public ReleaseForecastService(ReleaseService releaseService, ForecastConfig config) {
+        this.releaseService = releaseService;
+        this.config = config;
+        this.pool = new ForkJoinPool(config.getParallelism() > 0
+                ? config.getParallelism()
+                : Runtime.getRuntime().availableProcessors());
+        this.forecasts = Caffeine.newBuilder()
+                .maximumSize(config.getCacheSize())
+                .expireAfterWrite(Duration.ofMinutes(config.getCacheTtlMinutes()))
+                .build();
+    }
+
+    public ReleaseForecast getForecast(String releaseId) {
+        Release release = releaseService.getRelease(releaseId);
+        long version = release.getVersion() != null ? release.getVersion() : 0;
+        return forecasts.get(releaseId + ":" + version, key -> forecast(release, version));
+    }
+
+    ReleaseForecast forecast(Release release, long version) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Task> tasks = release.getTasks() != null ? release.getTasks() : List.of();
+        int n = tasks.size();
+        double[] cycles = new double[n];
+        double[] gaps = new double[n];
+        int cycleCount = 0;
+        int gapCount = 0;
+        int todo = 0;
+        double inProcessElapsed = -1;
+        Task previous = null;
+        // Tasks are sorted by order index, which is also the order they are worked on
+        for (Task task : tasks) {
+            if (task.getStatus() == TaskStatus.COMPLETED && task.getStartedAt() != null && task.getCompletedAt() != null) {
+                cycles[cycleCount++] = secondsBetween(task.getStartedAt(), task.getCompletedAt());
+            }
+            if (previous != null && previous.getCompletedAt() != null && task.getStartedAt() != null) {
+                gaps[gapCount++] = secondsBetween(previous.getCompletedAt(), task.getStartedAt());
+            }
+            if (task.getStatus() == TaskStatus.TODO) {
+                todo++;
+            } else if (task.getStatus() == TaskStatus.IN_PROCESS) {
+                inProcessElapsed = task.getStartedAt() != null ? secondsBetween(task.getStartedAt(), now) : 0;
+            }
+            previous = task;
+        }
+        int remaining = todo + (inProcessElapsed >= 0 ? 1 : 0);
+        ReleaseForecast.ReleaseForecastBuilder forecast = ReleaseForecast.builder()
+                .releaseId(release.getId())
+                .version(version)
+                .remainingTasks(remaining)
+                .sampleSize(cycleCount)
+                .computedAt(now);
+        if (remaining == 0) {
+            LocalDateTime finishedAt = tasks.stream()
+                    .map(Task::getCompletedAt)
+                    .filter(Objects::nonNull)
+                    .max(Comparator.naturalOrder())
+                    .orElse(now);
+            return forecast.p50FinishAt(finishedAt).p85FinishAt(finishedAt).p95FinishAt(finishedAt).build();
+        }
+        if (cycleCount < config.getMinSamples()) {
+            throw new BadRequestException("At least " + config.getMinSamples()
+                    + " completed tasks are needed to forecast the release, it has " + cycleCount);
+        }
+        CompletionSimulation simulation = new CompletionSimulation(Arrays.copyOf(cycles, cycleCount),
+                Arrays.copyOf(gaps, gapCount), inProcessElapsed, todo, config.getExactTaskLimit());
+        // Seeded by release and version, so a forecast recomputed after eviction gives the same answer
+        double[] results = simulation.run(pool, config.getTrials(), release.getId().hashCode() * 31L + version);
+        long p50 = Math.round(CompletionSimulation.percentile(results, 0.50));
+        long p85 = Math.round(CompletionSimulation.percentile(results, 0.85));
+        long p95 = Math.round(CompletionSimulation.percentile(results, 0.95));
+        return forecast
+                .trials(config.getTrials())
+                .p50Seconds(p50)
+                .p85Seconds(p85)
+                .p95Seconds(p95)
+                .p50FinishAt(now.plusSeconds(p50))
+                .p85FinishAt(now.plusSeconds(p85))
+                .p95FinishAt(now.plusSeconds(p95))
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private static double secondsBetween(LocalDateTime from, LocalDateTime to) {
+        return Math.max(0, Duration.between(from, to).toMillis() / 1000.0);
+    }
+}
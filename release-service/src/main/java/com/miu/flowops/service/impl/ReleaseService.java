@@ -1,76 +1,224 @@
 package com.miu.flowops.service.impl;
 
+import com.miu.flowops.dto.CursorPage;
+import com.miu.flowops.dto.EncodedRelease;
 import com.miu.flowops.dto.HotfixTaskAddedEvent;
+import com.miu.flowops.dto.ReleaseChanges;
+import com.miu.flowops.dto.ReleaseSummary;
+import com.miu.flowops.dto.ReleaseTaskChangesEvent;
 import com.miu.flowops.dto.TaskAssignedEvent;
+import com.miu.flowops.dto.TaskDelta;
 import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.exceptions.ConflictException;
 import com.miu.flowops.exceptions.ResourceNotFoundException;
+import com.miu.flowops.model.OutboxEvent;
 import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseChange;
+import com.miu.flowops.model.ReleaseProgress;
 import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskEvent;
 import com.miu.flowops.model.TaskStatus;
 import com.miu.flowops.model.User;
+import com.miu.flowops.repository.DeveloperWorkloadRepository;
+import com.miu.flowops.repository.ReleaseProgressRepository;
 import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.ReleaseTaskBucketStore;
 import com.miu.flowops.repository.UserRepository;
 import com.miu.flowops.service.IReleaseService;
-import com.miu.flowops.service.KafkaProducerService;
+import com.miu.flowops.util.KafkaTopics;
+import com.miu.flowops.util.ReleaseFields;
+import com.miu.flowops.util.TaskOrder;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.LongPredicate;
 
 @Service
 @RequiredArgsConstructor
 public class ReleaseService implements IReleaseService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ReleaseRepository releaseRepository;
     private final UserRepository userRepository;
-    private final KafkaProducerService kafkaProducerService;
+    private final ReleaseProgressRepository releaseProgressRepository;
+    private final ReleaseCache releaseCache;
+    private final ReleaseEventHub releaseEventHub;
+    private final TaskHistoryService taskHistoryService;
+    private final ReleaseTaskBucketStore bucketStore;
+    private final DeveloperWorkloadRepository developerWorkloadRepository;
 
     @Override
+    @Timed(value = "release.create", histogram = true)
     public Release createRelease(Release release) {
+        // Task storage and tail are maintained by the server, whatever the request body carries
+        release.setTaskStorage(null);
+        release.setTailOrderIndex(null);
 
         if (release.getTasks() != null && !release.getTasks().isEmpty()) {
-            int order = 1;
+            int position = 0;
             for (Task task : release.getTasks()) {
                 // Assign ID if missing
                 if (task.getId() == null) {
                     task.setId(UUID.randomUUID().toString());
                 }
-                // Auto-assign orderIndex
-                task.setOrderIndex(order++);
+                // Auto-assign gapped orderIndex keys
+                task.setOrderIndex(TaskOrder.keyAt(position++));
                 if (task.getStatus() == null) {
                     task.setStatus(TaskStatus.TODO);
                 }
             }
             // sort by orderIndex
             release.getTasks().sort(Comparator.comparing(Task::getOrderIndex));
+            release.setTailOrderIndex(TaskOrder.keyAt(position - 1));
         }
         // Set release completed flag
         release.setIsCompleted(false);
-        return releaseRepository.save(release);
+        release.setVersion(0L);
+        Release savedRelease = releaseRepository.save(release);
+        releaseProgressRepository.save(ReleaseProgress.of(savedRelease));
+        releaseChanged(savedRelease.getId());
+        taskHistoryService.recordCreated(savedRelease.getId());
+        return savedRelease;
     }
 
     @Override
+    @Timed(value = "release.get", histogram = true)
     public Release getRelease(String id) {
-        return releaseRepository.findById(id)
+        Release release = releaseCache.get(id, key -> releaseRepository.findById(key).orElse(null));
+        if (release == null) {
+            throw new ResourceNotFoundException("Release not found");
+        }
+        return release;
+    }
+
+    /**
+     * Body of GET /releases/{id}. Completed releases are encoded once and served from the cache,
+     * others are encoded on every call unless the client already holds their version.
+     * @param clientHasVersion tests the version against the client's If-None-Match, only used before encoding
+     * @return the body, or null if the client's copy is current
+     */
+    @Timed(value = "release.get.encoded", histogram = true)
+    public EncodedRelease getEncodedRelease(String id, LongPredicate clientHasVersion) {
+        Release[] notCompleted = new Release[1];
+        EncodedRelease completed = releaseCache.getCompleted(id, key -> {
+            Release release = getRelease(key);
+            if (Boolean.TRUE.equals(release.getIsCompleted())) {
+                return release;
+            }
+            notCompleted[0] = release;
+            return null;
+        });
+        if (completed != null) {
+            return completed;
+        }
+        Release release = notCompleted[0];
+        long version = release.getVersion() != null ? release.getVersion() : 0;
+        return clientHasVersion.test(version) ? null : releaseCache.encode(release, false);
+    }
+
+    /**
+     * Body of GET /releases/{id}?fields=, only the selected fields are read and encoded.
+     * @return the body, or null if the client's copy is current
+     */
+    @Timed(value = "release.get.fields", histogram = true)
+    public EncodedRelease getEncodedRelease(String id, ReleaseFields fields, LongPredicate clientHasVersion) {
+        Release release = releaseRepository.findWithFields(id, fields)
                 .orElseThrow(() -> new ResourceNotFoundException("Release not found"));
+        long version = release.getVersion() != null ? release.getVersion() : 0;
+        return clientHasVersion.test(version) ? null : releaseCache.encode(release, fields);
     }
 
     @Override
+    @Timed(value = "release.progress", histogram = true)
+    public ReleaseProgress getProgress(String releaseId) {
+        return releaseProgressRepository.findById(releaseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Release not found"));
+    }
+
+    @Override
+    @Timed(value = "release.changes", histogram = true)
+    public ReleaseChanges getChanges(String releaseId, long since) {
+        Release release = getRelease(releaseId);
+        long version = release.getVersion() != null ? release.getVersion() : 0;
+        List<ReleaseChange> log = release.getChanges() != null ? release.getChanges() : List.of();
+        ReleaseChanges.ReleaseChangesBuilder changes = ReleaseChanges.builder()
+                .releaseId(releaseId)
+                .since(since)
+                .version(version)
+                .isCompleted(release.getIsCompleted())
+                .tasks(List.of());
+        if (since == version) {
+            return changes.build();
+        }
+        // The last entry produced the current version, so the log covers the versions after version - log.size()
+        long first = version - log.size() + 1;
+        if (since > version || since + 1 < first) {
+            return changes.resync(true).build();
+        }
+        Set<String> taskIds = new HashSet<>();
+        for (ReleaseChange change : log.subList((int) (since + 1 - first), log.size())) {
+            if (change.isResync()) {
+                return changes.resync(true).build();
+            }
+            taskIds.addAll(change.getTaskIds());
+        }
+        if (taskIds.isEmpty()) {
+            return changes.build();
+        }
+        return changes.tasks(release.getTasks().stream()
+                        .filter(task -> taskIds.contains(task.getId()))
+                        .toList())
+                .build();
+    }
+
+    /**
+     * Body of GET /releases/{id}/changes?fields=, the changed tasks hold only the selected task fields.
+     */
+    @Timed(value = "release.changes.fields", histogram = true)
+    public byte[] getEncodedChanges(String releaseId, long since, ReleaseFields fields) {
+        if (!fields.selectsOnlyTasks()) {
+            throw new BadRequestException("Only task fields can be selected for changes, e.g. tasks.id,tasks.status");
+        }
+        return releaseCache.encodeChanges(getChanges(releaseId, since), fields);
+    }
+
+    @Override
+    @Timed(value = "release.list", histogram = true)
+    public CursorPage<ReleaseSummary> listReleases(Boolean completed, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        // One extra row tells whether there is a next page
+        List<ReleaseSummary> summaries = releaseRepository.findSummaries(completed, cursor, limit + 1);
+        boolean hasMore = summaries.size() > limit;
+        List<ReleaseSummary> items = hasMore ? summaries.subList(0, limit) : summaries;
+        return CursorPage.<ReleaseSummary>builder()
+                .items(items)
+                .nextCursor(hasMore ? items.get(items.size() - 1).getId() : null)
+                .build();
+    }
+
+    @Override
+    @Timed(value = "release.assign", histogram = true)
     public Task assignDeveloper(String releaseId, String taskId, String developerId) {
         User developer = userRepository.findById(developerId)
                 .orElseThrow(() -> new ResourceNotFoundException("Developer not found"));
-        Release release = releaseRepository.findById(releaseId)
-                .orElseThrow(() -> new ResourceNotFoundException("Release not found"));
-        Task task = release.getTasks().stream()
-                .filter(t -> t.getId().equals(taskId))
-                .findFirst()
-                .orElseThrow(() -> new ResourceNotFoundException("Task not found"));
-        task.setDeveloperId(developer.getId());
+        Task task = findTask(getRelease(releaseId), taskId);
+        if (task.getStatus() != TaskStatus.TODO) {
+            throw new BadRequestException("Task must be in TODO state to assign.");
+        }
 
-        // publish TaskAssignedEvent to Kafka here
-        kafkaProducerService.sendTaskAssignedEvent(TaskAssignedEvent.builder()
+        // Only the developerId of the matching task is written, the event is stored in the outbox by the same update
+        OutboxEvent event = OutboxEvent.of(KafkaTopics.TASK_ASSIGNED, releaseId, TaskAssignedEvent.builder()
                 .developerId(developerId)
                 .email(developer.getEmail())
                 .releaseId(releaseId)
@@ -78,17 +226,24 @@ public class ReleaseService implements IReleaseService {
                 .message("Task assigned to you")
                 .taskTitle(task.getTitle())
                 .build());
-
-        Release savedRelease = releaseRepository.save(release);
-        return savedRelease.getTasks()
-                .stream()
-                .filter(t -> t.getId().equals(taskId))
-                .findFirst()
-                .orElseThrow(() -> new ResourceNotFoundException("Task Not found"));
+        List<TaskEvent> history = List.of(TaskEvent.taskChanged(releaseId,
+                task.toBuilder().developerId(developer.getId()).build()));
+        Release release = releaseRepository.assignTaskDeveloper(releaseId, taskId, developer.getId(), List.of(event), history)
+                .orElseThrow(() -> new ConflictException("Task was modified concurrently, please retry."));
+        taskHistoryService.written(releaseId, release.getVersion(), history);
+        releaseChanged(releaseId);
+        Task assigned = findTask(release, taskId);
+        releaseEventHub.publish(ReleaseTaskChangesEvent.builder()
+                .releaseId(releaseId)
+                .version(release.getVersion())
+                .tasks(List.of(TaskDelta.of(assigned)))
+                .build());
+        return assigned;
     }
 
     @Override
-    public void addHotfixTask(String releaseId, Task newTask) {
+    @Timed(value = "release.hotfix", histogram = true)
+    public void addHotfixTask(String releaseId, Task newTask, String beforeTaskId) {
         Release release = getRelease(releaseId);
         if (!release.getIsCompleted()) {
             // Depending on requirements, maybe allow adding tasks to active releases too,
@@ -103,39 +258,94 @@ public class ReleaseService implements IReleaseService {
             newTask.setId(UUID.randomUUID().toString());
         }
         newTask.setStatus(TaskStatus.TODO);
-        // Determine order index (append to end)
-        int maxOrder = release.getTasks().stream()
-                .mapToInt(Task::getOrderIndex)
-                .max()
-                .orElse(0);
-
-        newTask.setOrderIndex(maxOrder + 1);
-        release.getTasks().add(newTask);
-        releaseRepository.save(release);
+        // Determine order index, right after the tail or between the target task and its predecessor
+        List<Task> tasks = release.getTasks();
+        int position;
+        Integer orderIndex;
+        if (beforeTaskId == null) {
+            position = tasks.size();
+            orderIndex = TaskOrder.keyAfter(release.getTailOrderIndex() != null
+                    ? release.getTailOrderIndex()
+                    : TaskOrder.tailOf(tasks));
+        } else {
+            position = TaskOrder.indexOf(tasks, beforeTaskId);
+            if (position < 0) {
+                throw new ResourceNotFoundException("Task not found in release");
+            }
+            Task beforeTask = tasks.get(position);
+            if (beforeTask.getStatus() != TaskStatus.TODO) {
+                throw new BadRequestException("A hotfix can only be inserted before a task in TODO state.");
+            }
+            Task previousTask = TaskOrder.predecessor(tasks, position);
+            orderIndex = TaskOrder.keyBetween(previousTask != null ? previousTask.getOrderIndex() : null,
+                    beforeTask.getOrderIndex());
+        }
 
         // Publish Event
+        List<OutboxEvent> events = new ArrayList<>();
         if (newTask.getDeveloperId() != null) {
-            kafkaProducerService.sendHotfixTaskAddedEvent(HotfixTaskAddedEvent.builder()
+            events.add(OutboxEvent.of(KafkaTopics.HOTFIX_ADDED, releaseId, HotfixTaskAddedEvent.builder()
                     .developerId(newTask.getDeveloperId())
                     .releaseId(releaseId)
+                    .taskId(newTask.getId())
                     .taskTitle(newTask.getTitle())
-                    .build());
+                    .build()));
         }
+        ReleaseTaskChangesEvent.ReleaseTaskChangesEventBuilder change = ReleaseTaskChangesEvent.builder()
+                .releaseId(releaseId)
+                .completed(false);
+        if (orderIndex != null) {
+            newTask.setOrderIndex(orderIndex);
+            List<TaskEvent> history = List.of(TaskEvent.taskAdded(releaseId, newTask, false));
+            Release updated = releaseRepository.insertTask(releaseId, newTask, beforeTaskId, events, history)
+                    .orElseThrow(() -> new ConflictException("Release was modified concurrently, please retry."));
+            taskHistoryService.written(releaseId, updated.getVersion(), history);
+            releaseProgressRepository.recordTaskAdded(releaseId, orderIndex);
+            change.version(updated.getVersion()).tasks(List.of(TaskDelta.of(newTask)));
+        } else {
+            // No free key left between the two neighbours, renumber the whole list once
+            List<Task> renumbered = new ArrayList<>(tasks);
+            renumbered.add(position, newTask);
+            TaskOrder.renumber(renumbered);
+            List<TaskEvent> history = List.of(TaskEvent.taskAdded(releaseId, newTask, true));
+            Release updated = releaseRepository.replaceTasks(releaseId, release.getVersion(), renumbered, null, false,
+                            events, history)
+                    .orElseThrow(() -> new ConflictException("Release was modified concurrently, please retry."));
+            taskHistoryService.written(releaseId, updated.getVersion(), history);
+            releaseProgressRepository.applyTransitions(releaseId, Map.of(TaskStatus.TODO, 1),
+                    ReleaseProgress.nextOrderIndexOf(renumbered));
+            // Every orderIndex changed, subscribers reload the release instead
+            change.version(updated.getVersion()).resync(true);
+        }
+        releaseChanged(releaseId);
+        releaseEventHub.publish(change.build());
     }
 
     @Override
+    @Timed(value = "release.complete", histogram = true)
     public Release completeRelease(String releaseId) {
         Release release = getRelease(releaseId);
         if (Boolean.TRUE.equals(release.getIsCompleted())) {
             throw new BadRequestException("Release is already completed");
         }
-        boolean allTasksDone = release.getTasks() == null ||
-                release.getTasks().isEmpty() ||
-                    release.getTasks().stream()
-                            .allMatch(t -> t.getStatus() == TaskStatus.COMPLETED);
+        // Read from the progress counters instead of scanning the tasks
+        boolean allTasksDone = releaseProgressRepository.findById(releaseId)
+                .orElseGet(() -> ReleaseProgress.of(release))
+                .isAllTasksDone();
         if (allTasksDone) {
+            // Conditional update instead of a save, so tasks and pending outbox events written meanwhile are kept
+            List<TaskEvent> completion = List.of(TaskEvent.ofRelease(releaseId, TaskEvent.Type.RELEASE_COMPLETED));
+            if (!releaseRepository.markCompletedIfAllTasksDone(releaseId, completion)) {
+                throw new ConflictException("Release was modified concurrently, please retry.");
+            }
+            taskHistoryService.written(releaseId, null, completion);
+            releaseChanged(releaseId);
+            releaseEventHub.publish(ReleaseTaskChangesEvent.builder()
+                    .releaseId(releaseId)
+                    .completed(true)
+                    .build());
             release.setIsCompleted(true);
-            return releaseRepository.save(release);
+            return release;
         }
         else {
             throw new IllegalStateException("Cannot complete release: Not all tasks are completed.");
@@ -143,11 +353,35 @@ public class ReleaseService implements IReleaseService {
     }
 
     @Override
+    @Timed(value = "release.delete", histogram = true)
     public void deleteRelease(String releaseId) {
         if (!releaseRepository.existsById(releaseId)) {
             throw new ResourceNotFoundException("Release not found");
         }
-        releaseRepository.deleteById(releaseId);
+        TaskEvent deleted = taskHistoryService.recordDeleted(releaseId);
+        try {
+            releaseRepository.deleteById(releaseId);
+        } catch (RuntimeException e) {
+            taskHistoryService.discard(deleted);
+            throw e;
+        }
+        // Buckets of a bucketed release would otherwise still show up in the cross-release task queries
+        bucketStore.deleteTasks(releaseId);
+        releaseProgressRepository.deleteById(releaseId);
+        // Developers working on a task of the release could not start another one
+        developerWorkloadRepository.deleteByReleaseId(releaseId);
+        releaseChanged(releaseId);
+        releaseEventHub.publish(ReleaseTaskChangesEvent.builder()
+                .releaseId(releaseId)
+                .deleted(true)
+                .build());
+    }
+
+    /**
+     * Must be called after every successful write to a release.
+     */
+    protected void releaseChanged(String releaseId) {
+        releaseCache.evict(releaseId);
     }
 
     protected Task findTask(Release release, String taskId) {
@@ -157,19 +391,20 @@ public class ReleaseService implements IReleaseService {
                 .orElseThrow(() -> new ResourceNotFoundException("Task not found in release"));
     }
 
-    protected void validateSequentialExecution(Release release, Task currentTask) {
-        // Sort tasks by order index
-        List<Task> sortedTasks = release.getTasks().stream()
-                .sorted(Comparator.comparingInt(Task::getOrderIndex))
-                .toList();
-
-        int currentIndex = sortedTasks.indexOf(currentTask);
-        if (currentIndex > 0) {
-            Task previousTask = sortedTasks.get(currentIndex - 1);
+    /**
+     * Ensures the task right before {@code currentTask} is completed.
+     * @return the previous task, or null if {@code currentTask} is the first one
+     */
+    protected Task validateSequentialExecution(Release release, Task currentTask) {
+        // Tasks are stored sorted by order index, the predecessor is the previous element
+        Task previousTask = TaskOrder.predecessor(release.getTasks(), TaskOrder.indexOf(release.getTasks(), currentTask.getId()));
+        if (previousTask != null) {
             if (previousTask.getStatus() != TaskStatus.COMPLETED) {
                 throw new ResourceNotFoundException("Previous task '" + previousTask.getTitle() + "' is not completed.");
             }
+            return previousTask;
         }
+        return null;
     }
 
     protected void checkAndCompleteRelease(Release release) {
@@ -0,0 +1,372 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.ReleaseTransferConfig;
+import com.miu.flowops.dto.ReleaseImportResult;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.model.DeveloperWorkload;
+import com.miu.flowops.model.ReleaseProgress;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.model.TaskStorage;
+import com.miu.flowops.repository.ReleaseProgressRepository;
+import com.miu.flowops.util.NdjsonLineReader;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonInvalidOperationException;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonParseException;
+import org.bson.json.JsonWriterSettings;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Export and import of the releases and their task buckets as newline-delimited extended JSON, one document per line.
+ * Documents are copied as BSON without the entity mapping, so every field round-trips as stored.
+ * The export streams from a cursor, and the import writes each bounded batch before it reads further,
+ * so memory stays flat whatever the size of the data and a slow database slows the upload down instead of buffering it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReleaseTransferService {
+
+    public enum ImportMode {
+        // Documents whose _id already exists are kept and counted as skipped
+        INSERT,
+        // Documents whose _id already exists are replaced
+        UPSERT
+    }
+
+    private static final String RELEASES = "releases";
+    private static final String TASK_BUCKETS = "release_tasks";
+    private static final int DUPLICATE_KEY = 11000;
+    private static final JsonWriterSettings JSON = JsonWriterSettings.builder().outputMode(JsonMode.RELAXED).build();
+
+    private final MongoTemplate mongoTemplate;
+    private final ReleaseProgressRepository releaseProgressRepository;
+    private final ReleaseService releaseService;
+    private final ReleaseTransferConfig config;
+
+    public void exportTo(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long exported = 0;
+        // Releases first, so an import creates every release before its buckets
+        for (String collection : List.of(RELEASES, TASK_BUCKETS)) {
+            try (MongoCursor<RawBsonDocument> cursor = mongoTemplate.getCollection(collection)
+                    .withDocumentClass(RawBsonDocument.class)
+                    .find()
+                    .batchSize(config.getExportBatchSize())
+                    .iterator()) {
+                while (cursor.hasNext()) {
+                    writer.write(cursor.next().toJson(JSON));
+                    writer.write('\n');
+                    exported++;
+                }
+            }
+        }
+        writer.flush();
+        log.info("Exported {} release documents", exported);
+    }
+
+    /**
+     * Lines holding a releaseId and a bucketNo are task buckets, any other line is a release.
+     * The release_progress counters and the developer_workload claims of the imported releases are rebuilt;
+     * pending outbox events and history entries are dropped, they belong to the environment the releases were exported from.
+     * An upsert replacing a stored release also drops its old claims and task buckets, and moves its version past
+     * the stored one with a resync change, so ETags and since= clients pick the imported release up.
+     * A malformed line stops the import, the lines before it stay imported.
+     */
+    public ReleaseImportResult importFrom(InputStream in, ImportMode mode) throws IOException {
+        NdjsonLineReader reader = new NdjsonLineReader(new InputStreamReader(in, StandardCharsets.UTF_8),
+                config.getMaxLineLength());
+        ReleaseImportResult result = new ReleaseImportResult();
+        // One entry per imported release, the tasks themselves are never kept
+        Map<String, ReleaseProgress> progress = new HashMap<>();
+        // Releases whose buckets were imported, a release line after them must not drop them again
+        Set<String> importedBuckets = new HashSet<>();
+        List<Document> releases = new ArrayList<>();
+        List<Document> buckets = new ArrayList<>();
+        long batchBytes = 0;
+        String line;
+        try {
+            while ((line = readLine(reader)) != null) {
+                result.setLines(reader.getLineNumber());
+                if (line.isBlank()) {
+                    continue;
+                }
+                Document document = parse(line, reader.getLineNumber());
+                validateTasks(document, reader.getLineNumber());
+                if (document.containsKey("releaseId") && document.containsKey("bucketNo")) {
+                    buckets.add(document);
+                } else {
+                    document.remove("outbox");
+                    document.remove("history");
+                    releases.add(document);
+                }
+                batchBytes += line.length();
+                if (releases.size() + buckets.size() >= config.getImportBatchSize()
+                        || batchBytes >= config.getImportBatchBytes()) {
+                    flush(releases, buckets, mode, progress, importedBuckets, result);
+                    batchBytes = 0;
+                }
+            }
+        } catch (BadRequestException e) {
+            // The lines before the malformed one are imported all the same
+            flush(releases, buckets, mode, progress, importedBuckets, result);
+            throw e;
+        }
+        flush(releases, buckets, mode, progress, importedBuckets, result);
+        log.info("Imported {} releases and {} task buckets, {} documents skipped",
+                result.getReleases(), result.getTaskBuckets(), result.getSkipped());
+        return result;
+    }
+
+    private void flush(List<Document> releases, List<Document> buckets, ImportMode mode,
+                       Map<String, ReleaseProgress> progress, Set<String> importedBuckets, ReleaseImportResult result) {
+        Set<String> changed = new LinkedHashSet<>();
+        List<DeveloperWorkload> claims = new ArrayList<>();
+
+        if (mode == ImportMode.UPSERT) {
+            replaceStored(releases, importedBuckets);
+        }
+        Set<Integer> skippedReleases = write(RELEASES, releases, mode);
+        for (int i = 0; i < releases.size(); i++) {
+            if (skippedReleases.contains(i)) {
+                continue;
+            }
+            Document release = releases.get(i);
+            String releaseId = String.valueOf(release.get("_id"));
+            ReleaseProgress counters = ReleaseProgress.builder().releaseId(releaseId).build();
+            progress.put(releaseId, counters);
+            // Bucketed releases are counted when their buckets are read
+            if (!TaskStorage.BUCKETED.name().equals(release.getString("taskStorage"))) {
+                count(releaseId, release.getList("tasks", Document.class), counters, claims);
+            }
+            changed.add(releaseId);
+        }
+
+        Set<Integer> skippedBuckets = write(TASK_BUCKETS, buckets, mode);
+        for (int i = 0; i < buckets.size(); i++) {
+            if (skippedBuckets.contains(i)) {
+                continue;
+            }
+            String releaseId = buckets.get(i).getString("releaseId");
+            importedBuckets.add(releaseId);
+            ReleaseProgress counters = progress.computeIfAbsent(releaseId,
+                    id -> ReleaseProgress.builder().releaseId(id).build());
+            count(releaseId, buckets.get(i).getList("tasks", Document.class), counters, claims);
+            changed.add(releaseId);
+        }
+
+        // Saved with every batch, so the releases written so far have their counters if a later batch fails
+        if (!changed.isEmpty()) {
+            releaseProgressRepository.saveAll(changed.stream().map(progress::get).toList());
+        }
+        claim(claims);
+        changed.forEach(releaseService::releaseChanged);
+        result.setReleases(result.getReleases() + releases.size() - skippedReleases.size());
+        result.setTaskBuckets(result.getTaskBuckets() + buckets.size() - skippedBuckets.size());
+        result.setSkipped(result.getSkipped() + skippedReleases.size() + skippedBuckets.size());
+        releases.clear();
+        buckets.clear();
+    }
+
+    /**
+     * Prepares the release documents that replace stored releases. The claims and buckets of the stored release
+     * are removed, the imported lines rebuild them, and the version is moved past the stored one. The change log
+     * is reset to one resync entry, the imported one describes versions of another environment.
+     */
+    private void replaceStored(List<Document> releases, Set<String> importedBuckets) {
+        if (releases.isEmpty()) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("_id").in(releases.stream().map(release -> release.get("_id")).toList()));
+        query.fields().include("version");
+        Map<Object, Long> storedVersions = new HashMap<>();
+        for (Document stored : mongoTemplate.find(query, Document.class, RELEASES)) {
+            storedVersions.put(stored.get("_id"), stored.get("version") instanceof Number version ? version.longValue() : 0L);
+        }
+        if (storedVersions.isEmpty()) {
+            return;
+        }
+        List<String> replaced = new ArrayList<>();
+        for (Document release : releases) {
+            Long storedVersion = storedVersions.get(release.get("_id"));
+            if (storedVersion == null) {
+                continue;
+            }
+            long imported = release.get("version") instanceof Number version ? version.longValue() : 0;
+            release.put("version", Math.max(imported, storedVersion + 1));
+            release.put("changes", List.of(new Document("taskIds", List.of()).append("resync", true)));
+            replaced.add(String.valueOf(release.get("_id")));
+        }
+        mongoTemplate.remove(Query.query(Criteria.where("releaseId").in(replaced)), DeveloperWorkload.class);
+        List<String> dropBuckets = replaced.stream().filter(releaseId -> !importedBuckets.contains(releaseId)).toList();
+        if (!dropBuckets.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("releaseId").in(dropBuckets)), TASK_BUCKETS);
+        }
+    }
+
+    /**
+     * @return indexes of the documents skipped because their _id already exists
+     */
+    private Set<Integer> write(String collection, List<Document> documents, ImportMode mode) {
+        if (documents.isEmpty()) {
+            return Set.of();
+        }
+        MongoCollection<Document> target = mongoTemplate.getCollection(collection);
+        try {
+            if (mode == ImportMode.INSERT) {
+                target.insertMany(documents, new InsertManyOptions().ordered(false));
+            } else {
+                target.bulkWrite(documents.stream()
+                        .map(document -> new ReplaceOneModel<>(Filters.eq("_id", document.get("_id")), document,
+                                new ReplaceOptions().upsert(true)))
+                        .toList(), new BulkWriteOptions().ordered(false));
+            }
+            return Set.of();
+        } catch (MongoBulkWriteException e) {
+            Set<Integer> skipped = new HashSet<>();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (mode != ImportMode.INSERT || error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+                skipped.add(error.getIndex());
+            }
+            return skipped;
+        }
+    }
+
+    private static void count(String releaseId, List<Document> tasks, ReleaseProgress counters, List<DeveloperWorkload> claims) {
+        if (tasks == null) {
+            return;
+        }
+        for (Document task : tasks) {
+            if (task.getString("status") == null) {
+                continue;
+            }
+            TaskStatus status = TaskStatus.valueOf(task.getString("status"));
+            switch (status) {
+                case TODO -> counters.setTodo(counters.getTodo() + 1);
+                case IN_PROCESS -> counters.setInProcess(counters.getInProcess() + 1);
+                case COMPLETED -> counters.setCompleted(counters.getCompleted() + 1);
+            }
+            if (status != TaskStatus.COMPLETED) {
+                Integer orderIndex = task.getInteger("orderIndex");
+                if (orderIndex != null && (counters.getNextOrderIndex() == null || orderIndex < counters.getNextOrderIndex())) {
+                    counters.setNextOrderIndex(orderIndex);
+                }
+            }
+            if (status == TaskStatus.IN_PROCESS && task.getString("developerId") != null) {
+                Date startedAt = task.getDate("startedAt");
+                claims.add(DeveloperWorkload.builder()
+                        .developerId(task.getString("developerId"))
+                        .releaseId(releaseId)
+                        .taskId(String.valueOf(task.get("_id")))
+                        .claimedAt(startedAt != null
+                                ? LocalDateTime.ofInstant(startedAt.toInstant(), ZoneId.systemDefault())
+                                : LocalDateTime.now())
+                        .build());
+            }
+        }
+    }
+
+    // A developer who already holds a task keeps it, like the startup reconciliation the first claim wins
+    private void claim(List<DeveloperWorkload> claims) {
+        if (claims.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DeveloperWorkload.class).insert(claims).execute();
+        } catch (BulkOperationException e) {
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+        }
+    }
+
+    private static String readLine(NdjsonLineReader reader) throws IOException {
+        try {
+            return reader.readLine();
+        } catch (NdjsonLineReader.LineTooLongException e) {
+            throw new BadRequestException(e.getMessage() + ", the lines before it were imported.");
+        }
+    }
+
+    private static Document parse(String line, long lineNumber) {
+        Document document;
+        try {
+            document = Document.parse(line);
+        } catch (JsonParseException | BsonInvalidOperationException e) {
+            throw new BadRequestException("Line " + lineNumber + " is not a JSON document, the lines before it were imported.");
+        }
+        if (!document.containsKey("_id")) {
+            throw new BadRequestException("Line " + lineNumber + " has no _id, the lines before it were imported.");
+        }
+        return document;
+    }
+
+    // Checks the task fields the counters and claims are rebuilt from, before anything of the line is written
+    private static void validateTasks(Document document, long lineNumber) {
+        Object tasks = document.get("tasks");
+        if (tasks == null) {
+            return;
+        }
+        if (!(tasks instanceof List<?> list) || !list.stream().allMatch(ReleaseTransferService::isValidTask)) {
+            throw new BadRequestException("Line " + lineNumber + " has a task with an unknown status or a malformed field, "
+                    + "the lines before it were imported.");
+        }
+    }
+
+    private static boolean isValidTask(Object task) {
+        if (!(task instanceof Document document)) {
+            return false;
+        }
+        Object status = document.get("status");
+        if (status != null && (!(status instanceof String name)
+                || Arrays.stream(TaskStatus.values()).noneMatch(value -> value.name().equals(name)))) {
+            return false;
+        }
+        return isNullOr(document.get("orderIndex"), Integer.class)
+                && isNullOr(document.get("developerId"), String.class)
+                && isNullOr(document.get("startedAt"), Date.class);
+    }
+
+    private static boolean isNullOr(Object value, Class<?> type) {
+        return value == null || type.isInstance(value);
+    }
+}
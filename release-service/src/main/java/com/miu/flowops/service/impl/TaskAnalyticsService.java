@@ -0,0 +1,102 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.dto.CycleTimeStats;
+import com.miu.flowops.dto.TaskCompletedEvent;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.model.CycleTimeRollup;
+import com.miu.flowops.model.ProcessedTaskCompletion;
+import com.miu.flowops.repository.CycleTimeRollupRepository;
+import com.miu.flowops.repository.ProcessedTaskCompletionRepository;
+import com.miu.flowops.util.CycleTimeSketch;
+import com.miu.flowops.util.KafkaTopics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cycle time and throughput rollups per developer and per release, fed by the TaskCompletedEvents.
+ * Every event updates two small documents in place, so the queries read one document instead of scanning releases.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TaskAnalyticsService {
+
+    private static final int MAX_DAYS = 366;
+
+    private final CycleTimeRollupRepository cycleTimeRollupRepository;
+    private final ProcessedTaskCompletionRepository processedTaskCompletionRepository;
+
+    // One group for all replicas, each event is counted by one of them
+    @KafkaListener(topics = KafkaTopics.TASK_COMPLETED, groupId = "release-analytics")
+    public void onTaskCompleted(TaskCompletedEvent event) {
+        // Events published before the timestamps were added to them cannot be measured
+        if (event.getStartedAt() == null || event.getCompletedAt() == null) {
+            log.debug("Skipping completion of task {} without timestamps", event.getTaskId());
+            return;
+        }
+        // Marked first, a crash before the rollups are updated loses the task rather than counting it twice
+        try {
+            processedTaskCompletionRepository.insert(ProcessedTaskCompletion.builder()
+                    .taskId(event.getTaskId())
+                    .processedAt(LocalDateTime.now())
+                    .build());
+        } catch (DuplicateKeyException e) {
+            log.debug("Completion of task {} already counted", event.getTaskId());
+            return;
+        }
+        long seconds = Math.max(0, Duration.between(event.getStartedAt(), event.getCompletedAt()).getSeconds());
+        LocalDate completedOn = event.getCompletedAt().toLocalDate();
+        if (event.getDeveloperId() != null) {
+            cycleTimeRollupRepository.record(CycleTimeRollup.Scope.DEVELOPER, event.getDeveloperId(), seconds, completedOn);
+        }
+        cycleTimeRollupRepository.record(CycleTimeRollup.Scope.RELEASE, event.getReleaseId(), seconds, completedOn);
+    }
+
+    public CycleTimeStats getDeveloperStats(String developerId, int days) {
+        return statsOf(CycleTimeRollup.Scope.DEVELOPER, developerId, days);
+    }
+
+    public CycleTimeStats getReleaseStats(String releaseId, int days) {
+        return statsOf(CycleTimeRollup.Scope.RELEASE, releaseId, days);
+    }
+
+    /**
+     * @param days number of days of throughput, ending today
+     */
+    private CycleTimeStats statsOf(CycleTimeRollup.Scope scope, String key, int days) {
+        if (days < 1 || days > MAX_DAYS) {
+            throw new BadRequestException("days must be between 1 and " + MAX_DAYS);
+        }
+        // Nothing completed yet reads as an empty rollup
+        CycleTimeRollup rollup = cycleTimeRollupRepository.findById(CycleTimeRollup.idOf(scope, key))
+                .orElseGet(() -> CycleTimeRollup.builder().scope(scope).key(key).build());
+        Map<String, Long> daily = rollup.getDaily() != null ? rollup.getDaily() : Map.of();
+        List<CycleTimeStats.DailyThroughput> throughput = new ArrayList<>(days);
+        LocalDate today = LocalDate.now();
+        for (LocalDate day = today.minusDays(days - 1); !day.isAfter(today); day = day.plusDays(1)) {
+            throughput.add(new CycleTimeStats.DailyThroughput(day, daily.getOrDefault(day.toString(), 0L)));
+        }
+        boolean empty = rollup.getCount() == 0;
+        return CycleTimeStats.builder()
+                .scope(scope)
+                .key(key)
+                .completedTasks(rollup.getCount())
+                .meanSeconds(empty ? null : rollup.getTotalSeconds() / rollup.getCount())
+                .p50Seconds(CycleTimeSketch.quantile(rollup.getSketch(), 0.5))
+                .p90Seconds(CycleTimeSketch.quantile(rollup.getSketch(), 0.9))
+                .p99Seconds(CycleTimeSketch.quantile(rollup.getSketch(), 0.99))
+                .maxSeconds(empty ? null : rollup.getMaxSeconds())
+                .throughput(throughput)
+                .build();
+    }
+}
@@ -0,0 +1,76 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.TaskStorageConfig;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.exceptions.ConflictException;
+import com.miu.flowops.model.TaskStorage;
+import com.miu.flowops.repository.ReleaseTaskBucketStore;
+import com.miu.flowops.repository.SchedulerLockRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Online migration of releases from embedded to bucketed task storage.
+ * Each release is switched in one transaction that only commits if the release was not changed meanwhile,
+ * so the service keeps serving writes while releases are moved one by one.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TaskBucketMigrationService {
+
+    private static final String MIGRATION_LOCK = "task-bucket-migration";
+    private static final long LEASE_MINUTES = 5;
+    private static final int RELEASE_BATCH_SIZE = 10;
+
+    private final ReleaseTaskBucketStore bucketStore;
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final TaskStorageConfig taskStorageConfig;
+    private final ReleaseService releaseService;
+
+    // Identifies this replica as lease owner
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public void migrate(String releaseId) {
+        if (releaseService.getRelease(releaseId).getTaskStorage() == TaskStorage.BUCKETED) {
+            throw new BadRequestException("Release tasks are already stored in buckets.");
+        }
+        if (!bucketStore.migrate(releaseId)) {
+            throw new ConflictException("Release was modified concurrently, please retry.");
+        }
+        releaseService.releaseChanged(releaseId);
+    }
+
+    @Scheduled(fixedDelay = 1000 * 60)
+    public void migrateLargeReleases() {
+        if (!taskStorageConfig.isMigrationEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (!schedulerLockRepository.tryAcquire(MIGRATION_LOCK, instanceId, now, now.plusMinutes(LEASE_MINUTES))) {
+            return;
+        }
+        try {
+            List<String> candidates = bucketStore.findMigrationCandidates(taskStorageConfig.getMigrateAbove(), RELEASE_BATCH_SIZE);
+            int migrated = 0;
+            for (String releaseId : candidates) {
+                // A release changed during its migration is picked up again on the next run
+                if (bucketStore.migrate(releaseId)) {
+                    releaseService.releaseChanged(releaseId);
+                    migrated++;
+                }
+            }
+            if (migrated > 0) {
+                log.info("Moved the tasks of {} releases to buckets", migrated);
+            }
+        } finally {
+            schedulerLockRepository.release(MIGRATION_LOCK, instanceId, LocalDateTime.now());
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.TaskHistoryConfig;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.exceptions.ResourceNotFoundException;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseSnapshot;
+import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskEvent;
+import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.ReleaseSnapshotRepository;
+import com.miu.flowops.repository.SchedulerLockRepository;
+import com.miu.flowops.repository.TaskEventRepository;
+import com.miu.flowops.util.TaskOrder;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * History of the tasks of every release: each write appends its task states to task_events,
+ * and every {@code snapshotEvery} versions the whole release is copied to release_snapshots.
+ * A release as of any time is the last snapshot taken before it plus the entries written after that snapshot,
+ * so a rebuild never replays more than about {@code snapshotEvery} entries.
+ * Entries are built before a write and pushed to the release by the same update, like the outbox events, so an
+ * entry exists if and only if the write does. The write then moves them to task_events with its version, and
+ * {@link #relay()} moves the ones it left behind.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TaskHistoryService {
+
+    private static final Sort BY_TIME = Sort.by("at", "version");
+    private static final String HISTORY_RELAY_LOCK = "task-history-relay";
+    private static final long LEASE_SECONDS = 30;
+    private static final long RELAY_AFTER_SECONDS = 30;
+    private static final int RELEASE_BATCH_SIZE = 100;
+
+    private final TaskEventRepository taskEventRepository;
+    private final ReleaseSnapshotRepository releaseSnapshotRepository;
+    private final ReleaseRepository releaseRepository;
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final TaskHistoryConfig config;
+
+    // Identifies this replica as owner of the relay lease
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // Snapshots read and copy whole releases, they are taken off the request thread
+    private final ExecutorService snapshots = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Moves the entries pushed by a write to task_events, now that the version the write produced is known.
+     * Entries left pending by a failure here are moved by {@link #relay()} instead.
+     * @param version the version after the write, or null if it is not known
+     */
+    public void written(String releaseId, Long version, List<TaskEvent> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        entries.forEach(entry -> entry.setVersion(version));
+        try {
+            // Saved by id, an entry the relay moved first only gets its version
+            taskEventRepository.saveAll(entries);
+            releaseRepository.removeHistoryEntries(Map.of(releaseId, entries.stream().map(TaskEvent::getId).toList()));
+        } catch (RuntimeException e) {
+            log.warn("Could not move {} history entries of release {}, the relay moves them: {}",
+                    entries.size(), releaseId, e.getMessage());
+            return;
+        }
+        if (version != null && version % config.getSnapshotEvery() == 0) {
+            snapshotLater(releaseId);
+        }
+    }
+
+    /**
+     * Stores the deletion before the release is removed, the entry cannot be pushed to a release that is gone.
+     * @return the entry, to {@link #discard(TaskEvent)} if the deletion fails
+     */
+    public TaskEvent recordDeleted(String releaseId) {
+        return taskEventRepository.insert(TaskEvent.ofRelease(releaseId, TaskEvent.Type.RELEASE_DELETED));
+    }
+
+    public void discard(TaskEvent entry) {
+        taskEventRepository.deleteById(entry.getId());
+    }
+
+    /**
+     * Moves the entries a write pushed but did not move itself, e.g. because the service stopped right after it.
+     * They keep a null version and are replayed by time. Entries already stored are only removed from the release.
+     */
+    @Scheduled(fixedDelay = 1000 * 10)
+    public void relay() {
+        LocalDateTime now = LocalDateTime.now();
+        if (!schedulerLockRepository.tryAcquire(HISTORY_RELAY_LOCK, instanceId, now, now.plusSeconds(LEASE_SECONDS))) {
+            return;
+        }
+        // Recent entries are still being moved by their write
+        LocalDateTime before = now.minusSeconds(RELAY_AFTER_SECONDS);
+        Map<String, List<String>> moved = new HashMap<>();
+        for (Release release : releaseRepository.findWithPendingHistory(before, RELEASE_BATCH_SIZE)) {
+            List<TaskEvent> entries = release.getHistory().stream()
+                    .filter(entry -> entry.getAt().isBefore(before))
+                    .toList();
+            Set<String> stored = new HashSet<>();
+            taskEventRepository.findAllById(entries.stream().map(TaskEvent::getId).toList())
+                    .forEach(entry -> stored.add(entry.getId()));
+            List<TaskEvent> missing = entries.stream().filter(entry -> !stored.contains(entry.getId())).toList();
+            try {
+                if (!missing.isEmpty()) {
+                    taskEventRepository.insert(missing);
+                }
+            } catch (DuplicateKeyException e) {
+                // Moved by the write meanwhile, the next run only removes them
+                continue;
+            }
+            moved.put(release.getId(), entries.stream().map(TaskEvent::getId).toList());
+        }
+        releaseRepository.removeHistoryEntries(moved);
+        if (!moved.isEmpty()) {
+            log.info("Moved pending history entries of {} releases", moved.size());
+        }
+    }
+
+    // A new release starts its history with a snapshot
+    public void recordCreated(String releaseId) {
+        snapshotLater(releaseId);
+    }
+
+    /**
+     * Entries of the release written in [from, to), oldest first. Defaults to the last day.
+     */
+    public List<TaskEvent> getHistory(String releaseId, LocalDateTime from, LocalDateTime to, int limit) {
+        if (to == null) {
+            to = LocalDateTime.now();
+        }
+        if (from == null) {
+            from = to.minusDays(1);
+        }
+        if (limit < 1 || limit > config.getMaxEvents()) {
+            throw new BadRequestException("limit must be between 1 and " + config.getMaxEvents());
+        }
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("from must be before to");
+        }
+        return taskEventRepository.findByReleaseIdAndAtInRange(releaseId, from, to, BY_TIME, Limit.of(limit));
+    }
+
+    /**
+     * Rebuilds the release as it was at {@code at} from the last snapshot before it and the entries written since.
+     */
+    public Release getReleaseAsOf(String releaseId, LocalDateTime at) {
+        ReleaseSnapshot head = releaseSnapshotRepository
+                .findFirstByReleaseIdAndChunkNoAndTakenAtLessThanEqualOrderByTakenAtDesc(releaseId, 0, at)
+                .orElseThrow(() -> new ResourceNotFoundException("No history of the release at " + at));
+        Map<String, Task> tasks = new LinkedHashMap<>();
+        for (ReleaseSnapshot chunk : releaseSnapshotRepository.findByReleaseIdAndVersionOrderByChunkNoAsc(releaseId, head.getVersion())) {
+            if (chunk.getTasks() != null) {
+                chunk.getTasks().forEach(task -> tasks.put(task.getId(), task));
+            }
+        }
+        Release release = Release.builder()
+                .id(releaseId)
+                .title(head.getTitle())
+                .isCompleted(head.getIsCompleted())
+                .version(head.getVersion())
+                .build();
+        for (TaskEvent event : taskEventRepository.findReplayTail(releaseId, head.getVersion(), head.getTakenAt(), at, BY_TIME)) {
+            apply(release, tasks, event);
+        }
+        release.setTasks(sorted(tasks.values()));
+        return release;
+    }
+
+    private static List<Task> sorted(Collection<Task> tasks) {
+        List<Task> sorted = new ArrayList<>(tasks);
+        sorted.sort(Comparator.comparing(Task::getOrderIndex, Comparator.nullsLast(Comparator.naturalOrder())));
+        return sorted;
+    }
+
+    private static void apply(Release release, Map<String, Task> tasks, TaskEvent event) {
+        if (event.getVersion() != null && event.getVersion() > release.getVersion()) {
+            release.setVersion(event.getVersion());
+        }
+        switch (event.getType()) {
+            case TASK_ADDED -> {
+                Task added = Task.builder()
+                        .id(event.getTaskId())
+                        .title(event.getTitle())
+                        .description(event.getDescription())
+                        .build();
+                setState(added, event);
+                if (Boolean.TRUE.equals(event.getRenumbered())) {
+                    // Inserted at the position its key was given for, then every key re-spaced like the write did
+                    List<Task> sorted = sorted(tasks.values());
+                    sorted.add(Math.min(event.getOrderIndex() / TaskOrder.GAP - 1, sorted.size()), added);
+                    TaskOrder.renumber(sorted);
+                    tasks.clear();
+                    sorted.forEach(task -> tasks.put(task.getId(), task));
+                } else {
+                    tasks.put(added.getId(), added);
+                }
+                release.setIsCompleted(false);
+            }
+            case TASK_CHANGED -> {
+                Task task = tasks.get(event.getTaskId());
+                if (task != null) {
+                    setState(task, event);
+                }
+            }
+            case RELEASE_COMPLETED -> release.setIsCompleted(true);
+            case RELEASE_DELETED -> throw new ResourceNotFoundException("Release was deleted at " + event.getAt());
+        }
+    }
+
+    private static void setState(Task task, TaskEvent event) {
+        task.setStatus(event.getStatus());
+        task.setDeveloperId(event.getDeveloperId());
+        task.setOrderIndex(event.getOrderIndex());
+        task.setStartedAt(event.getStartedAt());
+        task.setCompletedAt(event.getCompletedAt());
+    }
+
+    private void snapshotLater(String releaseId) {
+        snapshots.execute(() -> {
+            try {
+                snapshot(releaseId);
+            } catch (RuntimeException e) {
+                log.error("Could not snapshot release {}", releaseId, e);
+            }
+        });
+    }
+
+    /**
+     * Copies the release as currently stored. The version and tasks of an embedded release are read together;
+     * the buckets of a bucketed release are read after its header, they may include later writes, which replaying
+     * the entries after the snapshot version sets again.
+     */
+    void snapshot(String releaseId) {
+        Release release = releaseRepository.findById(releaseId).orElse(null);
+        if (release == null) {
+            return;
+        }
+        long version = release.getVersion() != null ? release.getVersion() : 0;
+        List<Task> tasks = release.getTasks() != null ? release.getTasks() : List.of();
+        int chunkSize = config.getChunkSize();
+        int chunks = Math.max(1, (tasks.size() + chunkSize - 1) / chunkSize);
+        LocalDateTime takenAt = LocalDateTime.now();
+        // Chunk 0 last, a snapshot is only found once all its chunks are stored
+        for (int chunkNo = chunks - 1; chunkNo >= 0; chunkNo--) {
+            int from = chunkNo * chunkSize;
+            releaseSnapshotRepository.save(ReleaseSnapshot.builder()
+                    .id(ReleaseSnapshot.idOf(releaseId, version, chunkNo))
+                    .releaseId(releaseId)
+                    .version(version)
+                    .takenAt(takenAt)
+                    .chunkNo(chunkNo)
+                    .chunks(chunks)
+                    .title(release.getTitle())
+                    .isCompleted(release.getIsCompleted())
+                    .tasks(new ArrayList<>(tasks.subList(Math.min(from, tasks.size()), Math.min(from + chunkSize, tasks.size()))))
+                    .build());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        snapshots.shutdown();
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.TaskMailboxConfig;
+import com.miu.flowops.dto.TaskBatchRequest;
+import com.miu.flowops.dto.TaskBatchResponse;
+import com.miu.flowops.dto.TaskCommand;
+import com.miu.flowops.dto.TaskCommandResult;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.exceptions.ConflictException;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.service.ITaskService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Single-writer execution of task commands. Commands of a release are queued in its mailbox,
+ * which is drained by one virtual thread while it is not empty, so transitions of a release never race
+ * each other on this instance while different releases are still applied in parallel.
+ * Everything queued since the last write is applied to the release held in memory and persisted
+ * with one conditional update (group commit). The release is reloaded and the commands applied again
+ * only if it was changed outside the mailbox, so contention no longer fails requests with a conflict.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TaskMailboxService implements ITaskService {
+
+    private final TaskService taskService;
+    private final ReleaseService releaseService;
+    private final TaskMailboxConfig taskMailboxConfig;
+
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ExecutorService drainers = Executors.newVirtualThreadPerTaskExecutor();
+
+    public boolean isEnabled() {
+        return taskMailboxConfig.isEnabled();
+    }
+
+    @Override
+    public void startTask(String releaseId, String taskId, String developerId) {
+        applyOne(releaseId, TaskCommand.builder().type(TaskCommand.Type.START).taskId(taskId).developerId(developerId).build());
+    }
+
+    @Override
+    public void completeTask(String releaseId, String taskId, String developerId) {
+        applyOne(releaseId, TaskCommand.builder().type(TaskCommand.Type.COMPLETE).taskId(taskId).developerId(developerId).build());
+    }
+
+    @Override
+    public TaskBatchResponse applyBatch(String releaseId, TaskBatchRequest request) {
+        List<TaskCommand> operations = request.getOperations() != null ? request.getOperations() : List.of();
+        if (operations.isEmpty()) {
+            throw new BadRequestException("At least one operation is required.");
+        }
+        List<TaskCommandResult> results = submit(releaseId, operations);
+        return TaskBatchResponse.builder()
+                .releaseId(releaseId)
+                .applied((int) results.stream().filter(TaskCommandResult::isSuccess).count())
+                .results(results)
+                .build();
+    }
+
+    private void applyOne(String releaseId, TaskCommand command) {
+        TaskCommandResult result = submit(releaseId, List.of(command)).get(0);
+        if (!result.isSuccess()) {
+            throw result.getError();
+        }
+    }
+
+    // Blocks the caller until the commands are written or rejected
+    private List<TaskCommandResult> submit(String releaseId, List<TaskCommand> commands) {
+        Submission submission = new Submission(commands);
+        Mailbox[] created = new Mailbox[1];
+        mailboxes.compute(releaseId, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+                created[0] = mailbox;
+            }
+            mailbox.queue.add(submission);
+            return mailbox;
+        });
+        if (created[0] != null) {
+            drainers.execute(() -> drain(releaseId, created[0]));
+        }
+        try {
+            return submission.results.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void drain(String releaseId, Mailbox mailbox) {
+        // The mailbox is removed in the same atomic step that sees it empty, so a new submission starts a new drainer
+        do {
+            List<Submission> batch = new ArrayList<>();
+            int size = 0;
+            Submission next;
+            while (size < taskMailboxConfig.getMaxBatchSize() && (next = mailbox.queue.poll()) != null) {
+                batch.add(next);
+                size += next.commands.size();
+            }
+            commit(releaseId, mailbox, batch);
+        } while (mailboxes.computeIfPresent(releaseId, (id, current) -> current.queue.isEmpty() ? null : current) != null);
+    }
+
+    private void commit(String releaseId, Mailbox mailbox, List<Submission> batch) {
+        List<TaskCommand> commands = batch.stream().flatMap(submission -> submission.commands.stream()).toList();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                Release release = mailbox.release != null ? mailbox.release : releaseService.getRelease(releaseId);
+                TaskService.AppliedBatch applied = taskService.applyCommands(release, commands);
+                mailbox.release = applied.getRelease();
+                if (applied.getRelease() != null) {
+                    complete(batch, applied.getResponse().getResults());
+                    return;
+                }
+                if (attempt >= taskMailboxConfig.getMaxAttempts()) {
+                    throw new ConflictException("Release was modified concurrently, please retry.");
+                }
+                log.debug("Release {} changed outside its mailbox, applying {} commands again", releaseId, commands.size());
+            }
+        } catch (RuntimeException e) {
+            // The in-memory release may hold changes that were not written
+            mailbox.release = null;
+            batch.forEach(submission -> submission.results.completeExceptionally(e));
+        }
+    }
+
+    // Hands every submission its own results, indexed from 0 like a batch of its own
+    private static void complete(List<Submission> batch, List<TaskCommandResult> results) {
+        int offset = 0;
+        for (Submission submission : batch) {
+            List<TaskCommandResult> own = new ArrayList<>(results.subList(offset, offset + submission.commands.size()));
+            for (int i = 0; i < own.size(); i++) {
+                own.get(i).setIndex(i);
+            }
+            offset += own.size();
+            submission.results.complete(own);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Waits for the queued commands to be written
+        drainers.close();
+    }
+
+    private static class Mailbox {
+        private final Queue<Submission> queue = new ConcurrentLinkedQueue<>();
+        // Only accessed by the drainer, null until loaded or after a failed write
+        private Release release;
+    }
+
+    private static class Submission {
+        private final List<TaskCommand> commands;
+        private final CompletableFuture<List<TaskCommandResult>> results = new CompletableFuture<>();
+
+        private Submission(List<TaskCommand> commands) {
+            this.commands = commands;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.model.DeveloperWorkload;
+import com.miu.flowops.repository.DeveloperWorkloadRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Task lifecycle meters.
+ * The time a task spent IN_PROCESS is recorded when it completes. The tasks currently IN_PROCESS are counted
+ * from the developer workloads, one per such task, and bucketed by how long they have been in that state.
+ * These gauges describe the whole system, every instance reports the same values.
+ */
+@Component
+public class TaskMetrics {
+
+    private static final List<Duration> AGE_BUCKETS = List.of(
+            Duration.ofHours(1), Duration.ofHours(8), Duration.ofDays(1), Duration.ofDays(3), Duration.ofDays(7));
+
+    private final DeveloperWorkloadRepository developerWorkloadRepository;
+    private final Timer inProcessTime;
+    private final AtomicLong inProcessTasks = new AtomicLong();
+    // Tasks IN_PROCESS for at most the key, the last bucket counts everything older
+    private final Map<String, AtomicLong> inProcessAges = new LinkedHashMap<>();
+
+    public TaskMetrics(DeveloperWorkloadRepository developerWorkloadRepository, MeterRegistry meterRegistry) {
+        this.developerWorkloadRepository = developerWorkloadRepository;
+        this.inProcessTime = Timer.builder("release.task.time.in.state")
+                .description("Time a task spent IN_PROCESS, recorded when it is completed")
+                .tag("state", "IN_PROCESS")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofDays(30))
+                .register(meterRegistry);
+        Gauge.builder("release.tasks.in.process", inProcessTasks, AtomicLong::get)
+                .description("Tasks currently IN_PROCESS")
+                .register(meterRegistry);
+        for (Duration bucket : AGE_BUCKETS) {
+            registerAgeBucket(meterRegistry, bucket.toString());
+        }
+        registerAgeBucket(meterRegistry, "+Inf");
+    }
+
+    public void recordInProcessTime(LocalDateTime startedAt, LocalDateTime completedAt) {
+        if (startedAt != null) {
+            inProcessTime.record(Duration.between(startedAt, completedAt));
+        }
+    }
+
+    @Scheduled(fixedDelay = 1000 * 30)
+    public void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Long> counts = new LinkedHashMap<>();
+        inProcessAges.keySet().forEach(bucket -> counts.put(bucket, 0L));
+        List<DeveloperWorkload> workloads = developerWorkloadRepository.findAll();
+        for (DeveloperWorkload workload : workloads) {
+            Duration age = workload.getClaimedAt() != null ? Duration.between(workload.getClaimedAt(), now) : Duration.ZERO;
+            String bucket = AGE_BUCKETS.stream()
+                    .filter(limit -> age.compareTo(limit) <= 0)
+                    .findFirst()
+                    .map(Duration::toString)
+                    .orElse("+Inf");
+            counts.merge(bucket, 1L, Long::sum);
+        }
+        inProcessTasks.set(workloads.size());
+        counts.forEach((bucket, count) -> inProcessAges.get(bucket).set(count));
+    }
+
+    private void registerAgeBucket(MeterRegistry meterRegistry, String bucket) {
+        AtomicLong count = new AtomicLong();
+        inProcessAges.put(bucket, count);
+        Gauge.builder("release.tasks.in.process.age", count, AtomicLong::get)
+                .description("Tasks currently IN_PROCESS by time spent in that state, up to the le bound")
+                .tag("le", bucket)
+                .register(meterRegistry);
+    }
+}
@@ -1,10 +1,14 @@
 package com.miu.flowops.service.impl;
 
+import com.miu.flowops.dto.StaleTaskCandidate;
 import com.miu.flowops.dto.StaleTaskDetectedEvent;
-import com.miu.flowops.model.Task;
+import com.miu.flowops.model.StaleTaskReminder;
 import com.miu.flowops.model.TaskStatus;
 import com.miu.flowops.model.User;
 import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.ReleaseTaskBucketRepository;
+import com.miu.flowops.repository.SchedulerLockRepository;
+import com.miu.flowops.repository.StaleTaskReminderRepository;
 import com.miu.flowops.repository.UserRepository;
 import com.miu.flowops.service.KafkaProducerService;
 import lombok.RequiredArgsConstructor;
@@ -13,47 +17,108 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TaskSchedulerService {
 
+    private static final String STALE_TASK_LOCK = "stale-task-detector";
+    private static final long LEASE_MINUTES = 30;
+    private static final long STALE_AFTER_HOURS = 48;
+    private static final int BATCH_SIZE = 200;
+    private static final String DEFAULT_EMAIL = "no-reply@opsflow.com";
+
     private final ReleaseRepository releaseRepository;
+    private final ReleaseTaskBucketRepository releaseTaskBucketRepository;
     private final UserRepository userRepository;
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final StaleTaskReminderRepository staleTaskReminderRepository;
     private final KafkaProducerService kafkaProducerService;
 
-    //@Scheduled(fixedRate = 1000 * 60 * 60 * 24)
+    // Identifies this replica as lease owner
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Scheduled(fixedRate = 1000 * 60 * 60)
     public void checkStaleTasks() {
-        log.info("Running scheduler to detect stale tasks with IN_PROCESS status for more than 48 hours");
-        LocalDateTime threshold = LocalDateTime.now().minusHours(48);
-        List<Task> matchingTasks = releaseRepository.findTasksByStatusAndStartedBefore(TaskStatus.IN_PROCESS, threshold);
-        log.info("Found {} stale tasks with IN_PROCESS tasks", matchingTasks.size());
-        for (Task task : matchingTasks) {
-            if (task != null) {
-                handleStaleTask(task);
+        LocalDateTime now = LocalDateTime.now();
+        if (!schedulerLockRepository.tryAcquire(STALE_TASK_LOCK, instanceId, now, now.plusMinutes(LEASE_MINUTES))) {
+            log.debug("Stale task detection is running on another instance, skipping");
+            return;
+        }
+        try {
+            log.info("Running scheduler to detect stale tasks with IN_PROCESS status for more than {} hours", STALE_AFTER_HOURS);
+            LocalDateTime threshold = now.minusHours(STALE_AFTER_HOURS);
+            int reminded = 0;
+            try (Stream<StaleTaskCandidate> candidates = Stream.concat(
+                    releaseRepository.streamTasksByStatusAndStartedBefore(TaskStatus.IN_PROCESS, threshold),
+                    releaseTaskBucketRepository.streamTasksByStatusAndStartedBefore(TaskStatus.IN_PROCESS, threshold))) {
+                List<StaleTaskCandidate> batch = new ArrayList<>(BATCH_SIZE);
+                Iterator<StaleTaskCandidate> iterator = candidates.iterator();
+                while (iterator.hasNext()) {
+                    batch.add(iterator.next());
+                    if (batch.size() == BATCH_SIZE) {
+                        reminded += handleStaleTasks(batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    reminded += handleStaleTasks(batch);
+                }
             }
+            log.info("Published {} stale task reminders", reminded);
+        } finally {
+            schedulerLockRepository.release(STALE_TASK_LOCK, instanceId, LocalDateTime.now());
         }
     }
 
-    private void handleStaleTask(Task task) {
-        String developerId = task.getDeveloperId();
-        String email = "no-reply@opsflow.com";
-        if (developerId != null) {
-            User developer = userRepository.findById(developerId).orElse(null);
-            if (developer != null) {
-                email = developer.getEmail();
-            }
+    private int handleStaleTasks(List<StaleTaskCandidate> batch) {
+        // Skip tasks that were already reminded on a previous run
+        Set<String> alreadyReminded = staleTaskReminderRepository.findAllById(batch.stream()
+                        .map(task -> StaleTaskReminder.idOf(task.getReleaseId(), task.getTaskId()))
+                        .toList())
+                .stream()
+                .map(StaleTaskReminder::getId)
+                .collect(Collectors.toSet());
+        List<StaleTaskCandidate> pending = batch.stream()
+                .filter(task -> !alreadyReminded.contains(StaleTaskReminder.idOf(task.getReleaseId(), task.getTaskId())))
+                .toList();
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        // Resolve all developer emails of the batch with a single $in query
+        Set<String> developerIds = pending.stream()
+                .map(StaleTaskCandidate::getDeveloperId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, User> developers = userRepository.findAllById(developerIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<StaleTaskReminder> reminders = new ArrayList<>(pending.size());
+        for (StaleTaskCandidate task : pending) {
+            User developer = task.getDeveloperId() != null ? developers.get(task.getDeveloperId()) : null;
+            kafkaProducerService.sendStaleTaskDetectedEvent(StaleTaskDetectedEvent.builder()
+                    .developerId(task.getDeveloperId())
+                    .releaseId(task.getReleaseId())
+                    .email(developer != null ? developer.getEmail() : DEFAULT_EMAIL)
+                    .taskId(task.getTaskId())
+                    .taskTitle(task.getTaskTitle())
+                    .message("Task has been in process for more than " + STALE_AFTER_HOURS + " hours.")
+                    .build());
+            reminders.add(StaleTaskReminder.builder()
+                    .id(StaleTaskReminder.idOf(task.getReleaseId(), task.getTaskId()))
+                    .releaseId(task.getReleaseId())
+                    .taskId(task.getTaskId())
+                    .developerId(task.getDeveloperId())
+                    .remindedAt(LocalDateTime.now())
+                    .build());
         }
-        StaleTaskDetectedEvent event = StaleTaskDetectedEvent.builder()
-                .developerId(developerId)
-                .email(email)
-                .taskId(task.getId())
-                .taskTitle(task.getTitle())
-                .message("Task has been in process for more than 48 hours.")
-                .build();
-
-        kafkaProducerService.sendStaleTaskDetectedEvent(event);
+        staleTaskReminderRepository.saveAll(reminders);
+        return reminders.size();
     }
 }
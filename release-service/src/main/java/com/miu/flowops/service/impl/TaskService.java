@@ -1,70 +1,92 @@
 package com.miu.flowops.service.impl;
 
-import com.miu.flowops.dto.TaskAssignedEvent;
-import com.miu.flowops.dto.TaskCompletedEvent;
+import com.miu.flowops.dto.*;
 import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.exceptions.ConflictException;
 import com.miu.flowops.exceptions.ResourceNotFoundException;
+import com.miu.flowops.model.DeveloperWorkload;
+import com.miu.flowops.model.OutboxEvent;
 import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseProgress;
 import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskEvent;
 import com.miu.flowops.model.TaskStatus;
 import com.miu.flowops.model.User;
+import com.miu.flowops.repository.DeveloperWorkloadRepository;
+import com.miu.flowops.repository.ReleaseProgressRepository;
 import com.miu.flowops.repository.ReleaseRepository;
 import com.miu.flowops.repository.UserRepository;
 import com.miu.flowops.service.ITaskService;
-import com.miu.flowops.service.KafkaProducerService;
+import com.miu.flowops.util.KafkaTopics;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class TaskService implements ITaskService {
     private final UserRepository userRepository;
     private final ReleaseRepository releaseRepository;
+    private final DeveloperWorkloadRepository developerWorkloadRepository;
+    private final ReleaseProgressRepository releaseProgressRepository;
     private final ReleaseService releaseService;
-    private final KafkaProducerService kafkaProducerService;
+    private final TaskMetrics taskMetrics;
+    private final ReleaseEventHub releaseEventHub;
+    private final TaskHistoryService taskHistoryService;
 
     @Override
+    @Timed(value = "release.task.start", histogram = true)
     public void startTask(String releaseId, String taskId, String developerId) {
-        // Check Global Constraint: Developer cannot have more than one IN_PROCESS task
         User developer = userRepository.findById(developerId)
                 .orElseThrow(() -> new ResourceNotFoundException("Developer not found"));
 
-        boolean hasActiveTask = releaseRepository.existsByDeveloperIdAndTaskStatus(developerId, TaskStatus.IN_PROCESS);
-        if (hasActiveTask) {
-            throw new BadRequestException("Developer already has an active task in process.");
-        }
-
         Release release = releaseService.getRelease(releaseId);
         Task task = releaseService.findTask(release, taskId);
 
-        // Validate Task State
-        if (task.getStatus() != TaskStatus.TODO) {
-            throw new BadRequestException("Task must be in TODO state to start.");
-        }
-        // Sequential Execution Enforcement
-        releaseService.validateSequentialExecution(release, task);
+        // Validate Task State and Sequential Execution
+        Task previousTask = validateStartable(release, task);
 
-        // Update Task
-        task.setStatus(TaskStatus.IN_PROCESS);
-        task.setDeveloperId(developer.getId());
-        task.setStartedAt(LocalDateTime.now());
-
-        releaseRepository.save(release);
+        // Check Global Constraint: Developer cannot have more than one IN_PROCESS task
+        claimWorkload(developer.getId(), releaseId, taskId);
 
-        // Publish Event
-        kafkaProducerService.sendTaskAssignedEvent(TaskAssignedEvent.builder()
+        // Update Task, the same guards are re-checked by the database so a concurrent transition cannot be lost
+        OutboxEvent event = taskAssignedEvent(releaseId, task, developer, "Developer started task");
+        LocalDateTime startedAt = LocalDateTime.now();
+        Task started = task.toBuilder()
+                .status(TaskStatus.IN_PROCESS)
                 .developerId(developer.getId())
-                .email(developer.getEmail())
+                .startedAt(startedAt)
+                .build();
+        List<TaskEvent> history = List.of(TaskEvent.taskChanged(releaseId, started));
+        Release updatedRelease;
+        try {
+            updatedRelease = releaseRepository.startTask(releaseId, taskId, developer.getId(),
+                            previousTask != null ? previousTask.getId() : null, startedAt, List.of(event), history)
+                    .orElseThrow(() -> new ConflictException("Task was modified concurrently, please retry."));
+        } catch (RuntimeException e) {
+            developerWorkloadRepository.deleteByDeveloperIdAndTaskId(developer.getId(), taskId);
+            throw e;
+        }
+        releaseProgressRepository.applyTransitions(releaseId, ReleaseProgress.transition(TaskStatus.TODO, TaskStatus.IN_PROCESS));
+        releaseService.releaseChanged(releaseId);
+        taskHistoryService.written(releaseId, updatedRelease.getVersion(), history);
+        releaseEventHub.publish(ReleaseTaskChangesEvent.builder()
                 .releaseId(releaseId)
-                .taskId(taskId)
-                .message("Developer started task")
-                .taskTitle(task.getTitle())
+                .version(updatedRelease.getVersion())
+                .tasks(List.of(TaskDelta.of(started)))
                 .build());
     }
 
     @Override
+    @Timed(value = "release.task.complete", histogram = true)
     public void completeTask(String releaseId, String taskId, String developerId) {
         Release release = releaseService.getRelease(releaseId);
         Task task = releaseService.findTask(release, taskId);
@@ -72,7 +94,210 @@ public class TaskService implements ITaskService {
         User developer = userRepository.findById(developerId)
                 .orElseThrow(() -> new ResourceNotFoundException("Developer not found"));
 
-        // Validate Task State
+        // Validate Task State and developer
+        validateCompletable(task, developer);
+
+        // Update Task
+        LocalDateTime completedAt = LocalDateTime.now();
+        OutboxEvent event = taskCompletedEvent(releaseId, task, developer, completedAt);
+        Task completed = task.toBuilder()
+                .status(TaskStatus.COMPLETED)
+                .developerId(developer.getId())
+                .completedAt(completedAt)
+                .build();
+        List<TaskEvent> history = List.of(TaskEvent.taskChanged(releaseId, completed));
+        Release updatedRelease = releaseRepository.completeTask(releaseId, taskId, developer.getId(), completedAt,
+                        List.of(event), history)
+                .orElseThrow(() -> new ConflictException("Task was modified concurrently, please retry."));
+        taskMetrics.recordInProcessTime(task.getStartedAt(), completedAt);
+
+        // Check Release Completion on the progress counters
+        ReleaseProgress progress = releaseProgressRepository.applyTransitions(releaseId,
+                        ReleaseProgress.transition(TaskStatus.IN_PROCESS, TaskStatus.COMPLETED),
+                        ReleaseProgress.nextOrderIndexOf(updatedRelease.getTasks()))
+                .orElseGet(() -> ReleaseProgress.of(updatedRelease));
+        taskHistoryService.written(releaseId, updatedRelease.getVersion(), history);
+        List<TaskEvent> completion = List.of(TaskEvent.ofRelease(releaseId, TaskEvent.Type.RELEASE_COMPLETED));
+        boolean releaseCompleted = progress.isAllTasksDone()
+                && releaseRepository.markCompletedIfAllTasksDone(releaseId, completion);
+        if (releaseCompleted) {
+            taskHistoryService.written(releaseId, null, completion);
+        }
+        releaseService.releaseChanged(releaseId);
+        developerWorkloadRepository.deleteByDeveloperIdAndTaskId(developer.getId(), taskId);
+        releaseEventHub.publish(ReleaseTaskChangesEvent.builder()
+                .releaseId(releaseId)
+                .version(updatedRelease.getVersion())
+                .tasks(List.of(TaskDelta.of(completed)))
+                .completed(releaseCompleted ? Boolean.TRUE : null)
+                .build());
+    }
+
+    @Override
+    @Timed(value = "release.task.batch", histogram = true)
+    public TaskBatchResponse applyBatch(String releaseId, TaskBatchRequest request) {
+        List<TaskCommand> operations = request.getOperations() != null ? request.getOperations() : List.of();
+        if (operations.isEmpty()) {
+            throw new BadRequestException("At least one operation is required.");
+        }
+        AppliedBatch batch = applyCommands(releaseService.getRelease(releaseId), operations);
+        if (batch.getRelease() == null) {
+            throw new ConflictException("Release was modified concurrently, please retry.");
+        }
+        return batch.getResponse();
+    }
+
+    /**
+     * Validates and applies the operations on {@code release}, which is modified in place,
+     * then writes all of them with a single conditional update on the version it was read at.
+     * @return the results, with no release if it was modified concurrently and nothing was written
+     */
+    protected AppliedBatch applyCommands(Release release, List<TaskCommand> operations) {
+        String releaseId = release.getId();
+        Long expectedVersion = release.getVersion();
+
+        // Resolve all developers of the batch with a single $in query
+        Map<String, User> developers = userRepository.findAllById(operations.stream()
+                        .map(TaskCommand::getDeveloperId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        // Operations are validated and applied on the loaded release, a failing one is reported and skipped
+        List<TaskCommandResult> results = new ArrayList<>(operations.size());
+        List<OutboxEvent> events = new ArrayList<>();
+        Map<String, String> startedBy = new LinkedHashMap<>();
+        Map<String, String> completedBy = new LinkedHashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            TaskCommand command = operations.get(i);
+            TaskCommandResult.TaskCommandResultBuilder result = TaskCommandResult.builder()
+                    .index(i)
+                    .type(command.getType())
+                    .taskId(command.getTaskId());
+            try {
+                events.add(applyCommand(release, command, developers, startedBy, completedBy));
+                results.add(result.success(true).build());
+            } catch (BadRequestException | ResourceNotFoundException e) {
+                results.add(result.success(false).message(e.getMessage()).error(e).build());
+            }
+        }
+
+        Release written = release;
+        if (!events.isEmpty()) {
+            releaseService.checkAndCompleteRelease(release);
+            List<String> changedTaskIds = results.stream()
+                    .filter(TaskCommandResult::isSuccess)
+                    .map(TaskCommandResult::getTaskId)
+                    .distinct()
+                    .toList();
+            List<TaskEvent> history = new ArrayList<>(changedTaskIds.size() + 1);
+            changedTaskIds.forEach(taskId ->
+                    history.add(TaskEvent.taskChanged(releaseId, releaseService.findTask(release, taskId))));
+            if (Boolean.TRUE.equals(release.getIsCompleted())) {
+                history.add(TaskEvent.ofRelease(releaseId, TaskEvent.Type.RELEASE_COMPLETED));
+            }
+            try {
+                written = releaseRepository.replaceTasks(releaseId, expectedVersion, release.getTasks(), changedTaskIds,
+                                Boolean.TRUE.equals(release.getIsCompleted()), events, history)
+                        .orElse(null);
+            } catch (RuntimeException e) {
+                releaseClaims(startedBy);
+                throw e;
+            }
+            if (written == null) {
+                releaseClaims(startedBy);
+                return new AppliedBatch(null, null);
+            }
+            taskHistoryService.written(releaseId, written.getVersion(), history);
+            Map<TaskStatus, Integer> deltas = new EnumMap<>(TaskStatus.class);
+            deltas.put(TaskStatus.TODO, -startedBy.size());
+            deltas.put(TaskStatus.IN_PROCESS, startedBy.size() - completedBy.size());
+            deltas.put(TaskStatus.COMPLETED, completedBy.size());
+            releaseProgressRepository.applyTransitions(releaseId, deltas, ReleaseProgress.nextOrderIndexOf(release.getTasks()));
+            releaseService.releaseChanged(releaseId);
+            completedBy.forEach((taskId, developerId) -> {
+                developerWorkloadRepository.deleteByDeveloperIdAndTaskId(developerId, taskId);
+                Task task = releaseService.findTask(release, taskId);
+                taskMetrics.recordInProcessTime(task.getStartedAt(), task.getCompletedAt());
+            });
+            releaseEventHub.publish(ReleaseTaskChangesEvent.builder()
+                    .releaseId(releaseId)
+                    .version(written.getVersion())
+                    .tasks(changedTaskIds.stream()
+                            .map(taskId -> TaskDelta.of(releaseService.findTask(release, taskId)))
+                            .toList())
+                    .completed(Boolean.TRUE.equals(release.getIsCompleted()) ? Boolean.TRUE : null)
+                    .build());
+        }
+
+        TaskBatchResponse response = TaskBatchResponse.builder()
+                .releaseId(releaseId)
+                .applied(events.size())
+                .results(results)
+                .build();
+        return new AppliedBatch(response, written);
+    }
+
+    // Undoes the workload claims of starts that were not written
+    private void releaseClaims(Map<String, String> startedBy) {
+        startedBy.forEach((taskId, developerId) ->
+                developerWorkloadRepository.deleteByDeveloperIdAndTaskId(developerId, taskId));
+    }
+
+    private OutboxEvent applyCommand(Release release, TaskCommand command, Map<String, User> developers,
+                                     Map<String, String> startedBy, Map<String, String> completedBy) {
+        if (command.getType() == null) {
+            throw new BadRequestException("Operation type is required.");
+        }
+        Task task = releaseService.findTask(release, command.getTaskId());
+        User developer = command.getDeveloperId() != null ? developers.get(command.getDeveloperId()) : null;
+        if (developer == null) {
+            throw new ResourceNotFoundException("Developer not found");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return switch (command.getType()) {
+            case ASSIGN -> {
+                validateAssignable(task);
+                task.setDeveloperId(developer.getId());
+                yield taskAssignedEvent(release.getId(), task, developer, "Task assigned to you");
+            }
+            case START -> {
+                validateStartable(release, task);
+                claimWorkload(developer.getId(), release.getId(), task.getId());
+                startedBy.put(task.getId(), developer.getId());
+                task.setStatus(TaskStatus.IN_PROCESS);
+                task.setDeveloperId(developer.getId());
+                task.setStartedAt(now);
+                yield taskAssignedEvent(release.getId(), task, developer, "Developer started task");
+            }
+            case COMPLETE -> {
+                validateCompletable(task, developer);
+                completedBy.put(task.getId(), developer.getId());
+                task.setStatus(TaskStatus.COMPLETED);
+                task.setCompletedAt(now);
+                yield taskCompletedEvent(release.getId(), task, developer, now);
+            }
+        };
+    }
+
+    // @return the previous task, or null if this is the first one
+    private Task validateStartable(Release release, Task task) {
+        if (task.getStatus() != TaskStatus.TODO) {
+            throw new BadRequestException("Task must be in TODO state to start.");
+        }
+        // Sequential Execution Enforcement
+        return releaseService.validateSequentialExecution(release, task);
+    }
+
+    // A started task stays with the developer holding its workload claim
+    private void validateAssignable(Task task) {
+        if (task.getStatus() != TaskStatus.TODO) {
+            throw new BadRequestException("Task must be in TODO state to assign.");
+        }
+    }
+
+    private void validateCompletable(Task task, User developer) {
         if (task.getStatus() != TaskStatus.IN_PROCESS) {
             throw new BadRequestException("Task must be IN_PROCESS to complete.");
         }
@@ -80,23 +305,51 @@ public class TaskService implements ITaskService {
         if (task.getDeveloperId() != null && !task.getDeveloperId().equals(developer.getId())) {
             throw new BadRequestException("Task is assigned to a different developer.");
         }
-        // Update Task
-        task.setStatus(TaskStatus.COMPLETED);
-        task.setCompletedAt(LocalDateTime.now());
+    }
+
+    // The insert fails on the unique developerId key if the developer already holds a task
+    private void claimWorkload(String developerId, String releaseId, String taskId) {
+        try {
+            developerWorkloadRepository.insert(DeveloperWorkload.builder()
+                    .developerId(developerId)
+                    .releaseId(releaseId)
+                    .taskId(taskId)
+                    .claimedAt(LocalDateTime.now())
+                    .build());
+        } catch (DuplicateKeyException e) {
+            throw new BadRequestException("Developer already has an active task in process.");
+        }
+    }
 
-        // Check Release Completion
-        releaseService.checkAndCompleteRelease(release);
-        releaseRepository.save(release);
+    private OutboxEvent taskAssignedEvent(String releaseId, Task task, User developer, String message) {
+        return OutboxEvent.of(KafkaTopics.TASK_ASSIGNED, releaseId, TaskAssignedEvent.builder()
+                .developerId(developer.getId())
+                .email(developer.getEmail())
+                .releaseId(releaseId)
+                .taskId(task.getId())
+                .message(message)
+                .taskTitle(task.getTitle())
+                .build());
+    }
 
-        // Publish Event
-        kafkaProducerService.sendTaskCompletedEvent(TaskCompletedEvent.builder()
-                .developerId(developerId)
+    private OutboxEvent taskCompletedEvent(String releaseId, Task task, User developer, LocalDateTime completedAt) {
+        return OutboxEvent.of(KafkaTopics.TASK_COMPLETED, releaseId, TaskCompletedEvent.builder()
+                .developerId(developer.getId())
                 .email(developer.getEmail())
                 .releaseId(releaseId)
-                .taskId(taskId)
+                .taskId(task.getId())
                 .message("Developer completed task")
                 .taskTitle(task.getTitle())
+                .startedAt(task.getStartedAt())
+                .completedAt(completedAt)
                 .build());
     }
 
+    @Getter
+    @AllArgsConstructor
+    public static class AppliedBatch {
+        private final TaskBatchResponse response;
+        // The release as written, the given one if no operation applied, or null on a concurrent modification
+        private final Release release;
+    }
 }
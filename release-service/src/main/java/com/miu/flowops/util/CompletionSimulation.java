@@ -0,0 +1,162 @@
+package com.miu.flowops.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Monte-Carlo simulation of the time left until the remaining tasks of a release are done.
+ * Tasks run one after the other, so a trial is the rest of the task in process plus, for every TODO task,
+ * a hand-off gap and a cycle time drawn from the history of the release.
+ * Trials are split over a fork/join pool, each slice with its own split random generator,
+ * so a given seed always gives the same result whatever the parallelism.
+ */
+public final class CompletionSimulation {
+
+    // Trials simulated by one fork/join leaf
+    private static final int LEAF_TRIALS = 4096;
+
+    private final double[] cycleSeconds;
+    private final double[] gapSeconds;
+    private final double inProcessElapsedSeconds;
+    private final int todoTasks;
+    private final int exactTaskLimit;
+
+    // For the normal approximation of long chains
+    private final double stepMean;
+    private final double stepStdDev;
+
+    /**
+     * @param cycleSeconds observed start to completion times, at least one
+     * @param gapSeconds observed times between the completion of a task and the start of the next one, may be empty
+     * @param inProcessElapsedSeconds time spent so far on the task in process, or a negative value if there is none
+     * @param todoTasks tasks not started yet
+     * @param exactTaskLimit above this many TODO tasks, their sum is drawn from its normal approximation
+     */
+    public CompletionSimulation(double[] cycleSeconds, double[] gapSeconds, double inProcessElapsedSeconds,
+                                int todoTasks, int exactTaskLimit) {
+        this.cycleSeconds = cycleSeconds.clone();
+        Arrays.sort(this.cycleSeconds);
+        this.gapSeconds = gapSeconds;
+        this.inProcessElapsedSeconds = inProcessElapsedSeconds;
+        this.todoTasks = todoTasks;
+        this.exactTaskLimit = exactTaskLimit;
+        this.stepMean = mean(this.cycleSeconds) + mean(gapSeconds);
+        this.stepStdDev = Math.sqrt(variance(this.cycleSeconds) + variance(gapSeconds));
+    }
+
+    /**
+     * @return the remaining seconds of every trial, sorted
+     */
+    public double[] run(ForkJoinPool pool, int trials, long seed) {
+        double[] results = new double[trials];
+        pool.invoke(new Trials(results, 0, trials, new SplittableRandom(seed)));
+        Arrays.parallelSort(results);
+        return results;
+    }
+
+    /**
+     * @param sorted trial results as returned by {@link #run}
+     * @param confidence between 0 and 1, e.g. 0.85 for the time 85% of the trials finish within
+     */
+    public static double percentile(double[] sorted, double confidence) {
+        int index = (int) Math.ceil(confidence * sorted.length) - 1;
+        return sorted[Math.clamp(index, 0, sorted.length - 1)];
+    }
+
+    private double trial(SplittableRandom random) {
+        double total = 0;
+        if (inProcessElapsedSeconds >= 0) {
+            total += residual(random);
+        }
+        if (todoTasks > exactTaskLimit) {
+            // Sum of many independent steps, drawing each one would make a trial linear in the chain length
+            total += Math.max(0, todoTasks * stepMean + Math.sqrt(todoTasks) * stepStdDev * random.nextGaussian());
+        } else {
+            for (int i = 0; i < todoTasks; i++) {
+                total += cycleSeconds[random.nextInt(cycleSeconds.length)];
+                if (gapSeconds.length > 0) {
+                    total += gapSeconds[random.nextInt(gapSeconds.length)];
+                }
+            }
+        }
+        return total;
+    }
+
+    // Rest of the task in process, drawn among the cycle times longer than what it already took
+    private double residual(SplittableRandom random) {
+        int from = upperBound(cycleSeconds, inProcessElapsedSeconds);
+        if (from == cycleSeconds.length) {
+            // Already longer than any task before, assumed about to finish
+            return 0;
+        }
+        return cycleSeconds[from + random.nextInt(cycleSeconds.length - from)] - inProcessElapsedSeconds;
+    }
+
+    private class Trials extends RecursiveAction {
+        private final double[] results;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        Trials(double[] results, int from, int to, SplittableRandom random) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_TRIALS) {
+                for (int i = from; i < to; i++) {
+                    results[i] = trial(random);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            // Split before forking, so each slice gets the same generator on every run
+            SplittableRandom right = random.split();
+            invokeAll(new Trials(results, from, middle, random), new Trials(results, middle, to, right));
+        }
+    }
+
+    // First index whose value is strictly greater than the key
+    private static int upperBound(double[] sorted, double key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static double mean(double[] values) {
+        if (values.length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double variance(double[] values) {
+        if (values.length < 2) {
+            return 0;
+        }
+        double mean = mean(values);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return sum / (values.length - 1);
+    }
+}
@@ -0,0 +1,58 @@
+package com.miu.flowops.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Log-bucketed histogram of durations with a bounded relative error, using the DDSketch bucket mapping.
+ * A duration is counted in the bucket of its index, so two sketches are merged by adding the counts of
+ * equal indexes, which is exactly what the $inc of the rollups does. From one second to one year there are
+ * fewer than 450 buckets, whatever the number of durations counted.
+ */
+public final class CycleTimeSketch {
+
+    // Every quantile is within 2% of the exact one
+    public static final double RELATIVE_ACCURACY = 0.02;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private CycleTimeSketch() {
+    }
+
+    // Durations under a second share the first bucket
+    public static int indexOf(long seconds) {
+        return (int) Math.ceil(Math.log(Math.max(seconds, 1)) / LOG_GAMMA);
+    }
+
+    /**
+     * @param sketch counts keyed by bucket index, as stored in the rollups
+     * @param quantile between 0 and 1
+     * @return the estimated duration in seconds, or null if nothing was counted
+     */
+    public static Long quantile(Map<String, Long> sketch, double quantile) {
+        if (sketch == null || sketch.isEmpty()) {
+            return null;
+        }
+        TreeMap<Integer, Long> buckets = new TreeMap<>();
+        long total = 0;
+        for (Map.Entry<String, Long> bucket : sketch.entrySet()) {
+            buckets.merge(Integer.parseInt(bucket.getKey()), bucket.getValue(), Long::sum);
+            total += bucket.getValue();
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                return Math.round(valueOf(bucket.getKey()));
+            }
+        }
+        return Math.round(valueOf(buckets.lastKey()));
+    }
+
+    // Value within the relative accuracy of every duration of the bucket
+    private static double valueOf(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+}
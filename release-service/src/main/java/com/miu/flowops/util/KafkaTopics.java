@@ -0,0 +1,17 @@
+package com.miu.flowops.util;
+
+// Topics are shared with notification-service, keep the names in sync
+public final class KafkaTopics {
+
+    public static final String TASK_ASSIGNED = "task-assigned-topic";
+    public static final String TASK_COMPLETED = "task-completed-topic";
+    public static final String HOTFIX_ADDED = "hotfix-task-added-topic";
+    public static final String STALE_TASK_REMINDER = "stale-task-reminder-topic";
+    // Internal to release-service, used to evict cached releases on every replica
+    public static final String RELEASE_CHANGED = "release-changed-topic";
+    // Internal to release-service, task deltas fanned out to the SSE subscribers of every replica
+    public static final String RELEASE_TASK_CHANGES = "release-task-changes-topic";
+
+    private KafkaTopics() {
+    }
+}
@@ -0,0 +1,71 @@
+package com.miu.flowops.util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads newline-delimited JSON one line at a time from a fixed-size buffer.
+ * Unlike BufferedReader.readLine a line is bounded, so a body without newlines cannot grow the heap without limit.
+ */
+public class NdjsonLineReader {
+
+    private final Reader reader;
+    private final int maxLineLength;
+    private final char[] buffer = new char[64 * 1024];
+    private final StringBuilder line = new StringBuilder();
+    private int position;
+    private int limit;
+    private long lineNumber;
+
+    public NdjsonLineReader(Reader reader, int maxLineLength) {
+        this.reader = reader;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * @return the next line without its line terminator, or null at the end of the input
+     * @throws LineTooLongException if the line is longer than the maximum length
+     */
+    public String readLine() throws IOException {
+        line.setLength(0);
+        while (true) {
+            if (position == limit) {
+                limit = reader.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (line.isEmpty()) {
+                        return null;
+                    }
+                    lineNumber++;
+                    return line.toString();
+                }
+            }
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            line.append(buffer, start, position - start);
+            if (line.length() > maxLineLength) {
+                throw new LineTooLongException(lineNumber + 1);
+            }
+            if (position < limit) {
+                position++;
+                lineNumber++;
+                int end = line.length();
+                return end > 0 && line.charAt(end - 1) == '\r' ? line.substring(0, end - 1) : line.toString();
+            }
+        }
+    }
+
+    // Number of the line last returned, starting at 1
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public static class LineTooLongException extends IOException {
+        public LineTooLongException(long lineNumber) {
+            super("Line " + lineNumber + " is too long");
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.miu.flowops.util;
+
+import com.miu.flowops.dto.ReleaseChanges;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.Task;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Sparse fieldset of a release, parsed from a {@code fields=} parameter such as
+ * {@code title,version,tasks.id,tasks.title,tasks.status}. {@code tasks} alone selects every task field.
+ * The same selection gives the Mongo projection and writes the response, so unselected fields are neither read nor encoded.
+ * GET /releases/{id}/changes takes a selection of task fields only, applied to the changed tasks.
+ */
+public final class ReleaseFields {
+
+    // In the order of the full response
+    private static final Map<String, Function<Release, Object>> RELEASE_FIELDS = new LinkedHashMap<>();
+    private static final Map<String, Function<Task, Object>> TASK_FIELDS = new LinkedHashMap<>();
+
+    static {
+        RELEASE_FIELDS.put("id", Release::getId);
+        RELEASE_FIELDS.put("title", Release::getTitle);
+        RELEASE_FIELDS.put("isCompleted", Release::getIsCompleted);
+        RELEASE_FIELDS.put("version", Release::getVersion);
+        RELEASE_FIELDS.put("taskStorage", Release::getTaskStorage);
+        RELEASE_FIELDS.put("tasks", Release::getTasks);
+        RELEASE_FIELDS.put("tailOrderIndex", Release::getTailOrderIndex);
+
+        TASK_FIELDS.put("id", Task::getId);
+        TASK_FIELDS.put("title", Task::getTitle);
+        TASK_FIELDS.put("description", Task::getDescription);
+        TASK_FIELDS.put("status", Task::getStatus);
+        TASK_FIELDS.put("developerId", Task::getDeveloperId);
+        TASK_FIELDS.put("orderIndex", Task::getOrderIndex);
+        TASK_FIELDS.put("startedAt", Task::getStartedAt);
+        TASK_FIELDS.put("completedAt", Task::getCompletedAt);
+    }
+
+    private final Set<String> releaseFields;
+    private final Set<String> taskFields;
+
+    private ReleaseFields(Set<String> releaseFields, Set<String> taskFields) {
+        this.releaseFields = releaseFields;
+        this.taskFields = taskFields;
+    }
+
+    public static ReleaseFields parse(String fields) {
+        Set<String> release = new LinkedHashSet<>();
+        Set<String> task = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            field = field.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (field.equals("tasks")) {
+                task.addAll(TASK_FIELDS.keySet());
+            } else if (field.startsWith("tasks.")) {
+                String taskField = field.substring("tasks.".length());
+                if (!TASK_FIELDS.containsKey(taskField)) {
+                    throw new BadRequestException("Unknown task field: " + taskField);
+                }
+                task.add(taskField);
+            } else if (RELEASE_FIELDS.containsKey(field)) {
+                release.add(field);
+            } else {
+                throw new BadRequestException("Unknown release field: " + field);
+            }
+        }
+        if (!task.isEmpty()) {
+            release.add("tasks");
+        }
+        if (release.isEmpty()) {
+            throw new BadRequestException("fields must select at least one field");
+        }
+        // Canonical order, so equal selections write the same response and ETag
+        return new ReleaseFields(ordered(release, RELEASE_FIELDS.keySet()), ordered(task, TASK_FIELDS.keySet()));
+    }
+
+    public boolean includesTasks() {
+        return !taskFields.isEmpty();
+    }
+
+    /**
+     * Fields to load from the releases collection. The version and the task storage are always loaded,
+     * the first for the ETag and the second to find the tasks of a bucketed release.
+     */
+    public String[] releaseProjection() {
+        List<String> projection = new ArrayList<>(List.of("version", "taskStorage"));
+        for (String field : releaseFields) {
+            if (field.equals("tasks")) {
+                projection.addAll(List.of(taskProjection()));
+            } else if (!field.equals("id")) {
+                projection.add(field);
+            }
+        }
+        return projection.toArray(String[]::new);
+    }
+
+    /**
+     * Fields to load from the tasks arrays, of releases and of release_tasks buckets alike.
+     */
+    public String[] taskProjection() {
+        if (taskFields.size() == TASK_FIELDS.size()) {
+            return new String[]{"tasks"};
+        }
+        return taskFields.stream()
+                .map(field -> field.equals("id") ? "tasks._id" : "tasks." + field)
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Writes only the selected fields, values are encoded by the mapper like in the full response.
+     */
+    public byte[] write(Release release, JsonMapper jsonMapper) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = jsonMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            for (String field : releaseFields) {
+                if (!field.equals("tasks")) {
+                    generator.writePOJOProperty(field, RELEASE_FIELDS.get(field).apply(release));
+                } else {
+                    writeTasks(generator, release.getTasks());
+                }
+            }
+            generator.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * True if only task fields are selected, the selection {@link #write(ReleaseChanges, JsonMapper)} accepts.
+     */
+    public boolean selectsOnlyTasks() {
+        return releaseFields.equals(Set.of("tasks"));
+    }
+
+    /**
+     * Writes the changes with only the selected fields of the changed tasks, the other fields are always written.
+     */
+    public byte[] write(ReleaseChanges changes, JsonMapper jsonMapper) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = jsonMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writePOJOProperty("releaseId", changes.getReleaseId());
+            generator.writePOJOProperty("since", changes.getSince());
+            generator.writePOJOProperty("version", changes.getVersion());
+            generator.writePOJOProperty("isCompleted", changes.getIsCompleted());
+            generator.writePOJOProperty("resync", changes.isResync());
+            writeTasks(generator, changes.getTasks());
+            generator.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    private void writeTasks(JsonGenerator generator, List<Task> tasks) {
+        if (tasks == null) {
+            generator.writeNullProperty("tasks");
+            return;
+        }
+        generator.writeArrayPropertyStart("tasks");
+        for (Task task : tasks) {
+            generator.writeStartObject();
+            for (String taskField : taskFields) {
+                generator.writePOJOProperty(taskField, TASK_FIELDS.get(taskField).apply(task));
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    @Override
+    public String toString() {
+        List<String> fields = new ArrayList<>(releaseFields);
+        fields.remove("tasks");
+        taskFields.forEach(field -> fields.add("tasks." + field));
+        return String.join(",", fields);
+    }
+
+    private static Set<String> ordered(Set<String> selected, Set<String> all) {
+        Set<String> ordered = new LinkedHashSet<>(all);
+        ordered.retainAll(selected);
+        return ordered;
+    }
+}
@@ -0,0 +1,77 @@
+package com.miu.flowops.util;
+
+import com.miu.flowops.model.Task;
+
+import java.util.List;
+
+/**
+ * Gapped order keys for the tasks of a release.
+ * Keys are spaced by {@link #GAP}, so a task can be inserted between two others by taking the middle key,
+ * and the task list is stored sorted by key, so the predecessor of a task is simply the previous element.
+ * Only when two neighbours run out of room is the whole list renumbered.
+ */
+public final class TaskOrder {
+
+    public static final int GAP = 1024;
+
+    private TaskOrder() {
+    }
+
+    public static int keyAt(int position) {
+        return (position + 1) * GAP;
+    }
+
+    public static int keyAfter(int key) {
+        return key + GAP;
+    }
+
+    /**
+     * @param before key of the preceding task, or null if the new task becomes the first one
+     * @return the middle key, or null if there is no free key left between the two
+     */
+    public static Integer keyBetween(Integer before, int after) {
+        int low = before != null ? before : 0;
+        return after - low > 1 ? low + (after - low) / 2 : null;
+    }
+
+    /**
+     * Re-spaces the keys of a sorted list in place.
+     * @return the key of the last task, i.e. the new tail
+     */
+    public static int renumber(List<Task> sortedTasks) {
+        for (int i = 0; i < sortedTasks.size(); i++) {
+            sortedTasks.get(i).setOrderIndex(keyAt(i));
+        }
+        return sortedTasks.isEmpty() ? 0 : keyAt(sortedTasks.size() - 1);
+    }
+
+    /**
+     * @return position of the task in the list, or -1
+     */
+    public static int indexOf(List<Task> tasks, String taskId) {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i).getId().equals(taskId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the task right before the one at {@code index} in the sorted list, or null if it is the first one
+     */
+    public static Task predecessor(List<Task> sortedTasks, int index) {
+        return index > 0 ? sortedTasks.get(index - 1) : null;
+    }
+
+    /**
+     * @return the highest key, for releases stored before the tail was maintained
+     */
+    public static int tailOf(List<Task> tasks) {
+        int tail = 0;
+        for (Task task : tasks) {
+            tail = Math.max(tail, task.getOrderIndex());
+        }
+        return tail;
+    }
+}
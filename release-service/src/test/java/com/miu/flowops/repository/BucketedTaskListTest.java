@@ -0,0 +1,113 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BucketedTaskListTest {
+
+    private final Map<Integer, List<Task>> buckets = Map.of(
+            0, tasks("a", "b"),
+            1, tasks(),
+            4, tasks("c", "d", "e"));
+
+    private final List<Integer> loads = new ArrayList<>();
+
+    private IntFunction<List<Task>> loader;
+
+    @BeforeEach
+    void setUp() {
+        loader = bucketNo -> {
+            loads.add(bucketNo);
+            // Fresh copies, like a read from the database
+            List<Task> tasks = new ArrayList<>();
+            buckets.get(bucketNo).forEach(task -> tasks.add(task.toBuilder().build()));
+            return tasks;
+        };
+    }
+
+    @Test
+    void size_ShouldSumBucketSizes_WithoutLoading() {
+        BucketedTaskList list = new BucketedTaskList(new int[]{0, 1, 4}, new int[]{2, 0, 3}, loader);
+
+        assertEquals(5, list.size());
+        assertTrue(loads.isEmpty());
+    }
+
+    @Test
+    void get_ShouldLoadOnlyTheBucketHoldingTheIndex() {
+        BucketedTaskList list = new BucketedTaskList(new int[]{0, 1, 4}, new int[]{2, 0, 3}, loader);
+
+        assertEquals("c", list.get(2).getId());
+        assertEquals("e", list.get(4).getId());
+
+        assertEquals(List.of(4), loads);
+        assertEquals(List.of(4), List.copyOf(list.loadedBuckets().keySet()));
+    }
+
+    @Test
+    void get_ShouldThrowException_WhenIndexOutOfRange() {
+        BucketedTaskList list = new BucketedTaskList(new int[]{0, 1, 4}, new int[]{2, 0, 3}, loader);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+        assertTrue(loads.isEmpty());
+    }
+
+    @Test
+    void iterator_ShouldWalkBucketsInOrder_LoadingEachOnce() {
+        BucketedTaskList list = new BucketedTaskList(new int[]{0, 1, 4}, new int[]{2, 0, 3}, loader);
+        list.get(0);
+
+        List<String> ids = list.stream().map(Task::getId).toList();
+
+        assertEquals(List.of("a", "b", "c", "d", "e"), ids);
+        assertEquals(List.of(0, 1, 4), loads);
+    }
+
+    @Test
+    void iterator_ShouldThrowException_WhenExhausted() {
+        var iterator = new BucketedTaskList(new int[]{1}, new int[]{0}, loader).iterator();
+
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    @Test
+    void loadedBuckets_ShouldExposeChangesMadeThroughTheView() {
+        BucketedTaskList list = new BucketedTaskList(new int[]{0, 1, 4}, new int[]{2, 0, 3}, loader);
+
+        list.get(3).setTitle("changed");
+
+        assertEquals("changed", list.loadedBuckets().get(4).get(1).getTitle());
+        assertThrows(UnsupportedOperationException.class, () -> list.loadedBuckets().remove(4));
+    }
+
+    @Test
+    void detached_ShouldShareNoLoadedBuckets() {
+        BucketedTaskList list = new BucketedTaskList(new int[]{0, 1, 4}, new int[]{2, 0, 3}, loader);
+        list.get(0).setTitle("changed");
+
+        BucketedTaskList detached = list.detached();
+
+        assertTrue(detached.loadedBuckets().isEmpty());
+        assertNull(detached.get(0).getTitle());
+        assertEquals(5, detached.size());
+    }
+
+    private static List<Task> tasks(String... ids) {
+        List<Task> tasks = new ArrayList<>();
+        for (String id : ids) {
+            tasks.add(Task.builder().id(id).build());
+        }
+        return tasks;
+    }
+}
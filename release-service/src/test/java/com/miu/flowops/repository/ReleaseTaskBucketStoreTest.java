@@ -0,0 +1,230 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.config.ReleaseEventsConfig;
+import com.miu.flowops.config.TaskStorageConfig;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseTaskBucket;
+import com.miu.flowops.model.Task;
+import com.mongodb.MongoException;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReleaseTaskBucketStoreTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private TransactionTemplate mongoTransactionTemplate;
+
+    @Mock
+    private TransactionStatus transactionStatus;
+
+    private final TaskStorageConfig taskStorageConfig = new TaskStorageConfig();
+
+    private ReleaseTaskBucketStore bucketStore;
+
+    private final Release updated = Release.builder().id("release-1").version(8L).build();
+
+    @BeforeEach
+    void setUp() {
+        taskStorageConfig.setBucketSize(2);
+        bucketStore = new ReleaseTaskBucketStore(mongoTemplate, mongoTransactionTemplate, taskStorageConfig,
+                new ReleaseEventsConfig());
+    }
+
+    @Test
+    void viewOf_ShouldReadBucketSizesOnly() {
+        when(mongoTemplate.find(any(Query.class), eq(ReleaseTaskBucket.class))).thenReturn(List.of(
+                ReleaseTaskBucket.builder().bucketNo(0).size(2).build(),
+                ReleaseTaskBucket.builder().bucketNo(3).size(1).build()));
+        when(mongoTemplate.findById("release-1:3", ReleaseTaskBucket.class)).thenReturn(
+                bucket(3, task("c", 3000)));
+
+        BucketedTaskList view = bucketStore.viewOf("release-1");
+
+        assertEquals(3, view.size());
+        assertEquals("c", view.get(2).getId());
+        verify(mongoTemplate, never()).findById("release-1:0", ReleaseTaskBucket.class);
+    }
+
+    @Test
+    void insertTask_ShouldAppendToLastBucket_WhenItHasRoom() {
+        inTransaction();
+        when(mongoTemplate.findOne(any(Query.class), eq(ReleaseTaskBucket.class)))
+                .thenReturn(ReleaseTaskBucket.builder().id("release-1:1").bucketNo(1).size(1).build());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ReleaseTaskBucket.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        releaseUpdated();
+
+        Optional<Release> result = bucketStore.insertTask("release-1", task("d", 4000), null, new Update());
+
+        assertSame(updated, result.orElseThrow());
+        ArgumentCaptor<Query> target = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(target.capture(), update.capture(), eq(ReleaseTaskBucket.class));
+        assertEquals("release-1:1", target.getValue().getQueryObject().get("_id"));
+        assertEquals(new Document("size", 1), update.getValue().getUpdateObject().get("$inc"));
+        verify(mongoTemplate, never()).insert(any(ReleaseTaskBucket.class));
+    }
+
+    @Test
+    void insertTask_ShouldOpenNextBucket_WhenLastIsFull() {
+        inTransaction();
+        when(mongoTemplate.findOne(any(Query.class), eq(ReleaseTaskBucket.class)))
+                .thenReturn(ReleaseTaskBucket.builder().id("release-1:1").bucketNo(1).size(2).build());
+        releaseUpdated();
+
+        bucketStore.insertTask("release-1", task("e", 5000), null, new Update());
+
+        ArgumentCaptor<ReleaseTaskBucket> inserted = ArgumentCaptor.forClass(ReleaseTaskBucket.class);
+        verify(mongoTemplate).insert(inserted.capture());
+        assertEquals("release-1:2", inserted.getValue().getId());
+        assertEquals(2, inserted.getValue().getBucketNo());
+        assertEquals(1, inserted.getValue().getSize());
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(ReleaseTaskBucket.class));
+    }
+
+    @Test
+    void insertTask_ShouldReturnEmpty_WhenOrderIndexTaken() {
+        inTransaction();
+        when(mongoTemplate.exists(any(Query.class), eq(ReleaseTaskBucket.class))).thenReturn(true);
+
+        Optional<Release> result = bucketStore.insertTask("release-1", task("d", 4000), null, new Update());
+
+        assertTrue(result.isEmpty());
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(Release.class));
+    }
+
+    @Test
+    void insertTask_ShouldReturnEmpty_WhenTransactionConflicts() {
+        MongoException conflict = new MongoException("WriteConflict");
+        conflict.addLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+        when(mongoTransactionTemplate.execute(any())).thenThrow(new UncategorizedMongoDbException("conflict", conflict));
+
+        assertTrue(bucketStore.insertTask("release-1", task("d", 4000), null, new Update()).isEmpty());
+    }
+
+    @Test
+    void replaceTasks_ShouldRewriteOnlyLoadedBuckets_WhenGivenTheView() {
+        inTransaction();
+        when(mongoTemplate.exists(any(Query.class), eq(Release.class))).thenReturn(true);
+        releaseUpdated();
+        BucketedTaskList view = new BucketedTaskList(new int[]{0, 1}, new int[]{2, 1},
+                bucketNo -> bucketNo == 0 ? tasks(task("a", 1000), task("b", 2000)) : tasks(task("c", 3000)));
+        view.get(2).setTitle("changed");
+
+        Optional<Release> result = bucketStore.replaceTasks("release-1", 7L, view, new Update());
+
+        assertSame(updated, result.orElseThrow());
+        ArgumentCaptor<Query> target = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(target.capture(), any(Update.class), eq(ReleaseTaskBucket.class));
+        assertEquals("release-1:1", target.getValue().getQueryObject().get("_id"));
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(ReleaseTaskBucket.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replaceTasks_ShouldResliceAllBuckets_WhenGivenRenumberedList() {
+        inTransaction();
+        when(mongoTemplate.exists(any(Query.class), eq(Release.class))).thenReturn(true);
+        releaseUpdated();
+        List<Task> renumbered = tasks(task("a", 1000), task("b", 2000), task("c", 3000), task("d", 4000), task("e", 5000));
+
+        bucketStore.replaceTasks("release-1", 7L, renumbered, new Update());
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(ReleaseTaskBucket.class));
+        assertEquals("release-1", removed.getValue().getQueryObject().get("releaseId"));
+        ArgumentCaptor<Collection<ReleaseTaskBucket>> inserted = ArgumentCaptor.forClass(Collection.class);
+        verify(mongoTemplate).insertAll(inserted.capture());
+        List<ReleaseTaskBucket> buckets = List.copyOf(inserted.getValue());
+        assertEquals(List.of("release-1:0", "release-1:1", "release-1:2"),
+                buckets.stream().map(ReleaseTaskBucket::getId).toList());
+        assertEquals(List.of(2, 2, 1), buckets.stream().map(ReleaseTaskBucket::getSize).toList());
+        assertEquals("e", buckets.get(2).getTasks().get(0).getId());
+    }
+
+    @Test
+    void replaceTasks_ShouldReturnEmpty_WhenVersionMoved() {
+        inTransaction();
+        when(mongoTemplate.exists(any(Query.class), eq(Release.class))).thenReturn(false);
+
+        Optional<Release> result = bucketStore.replaceTasks("release-1", 7L, tasks(task("a", 1000)), new Update());
+
+        assertTrue(result.isEmpty());
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(ReleaseTaskBucket.class));
+        verify(mongoTemplate, never()).insertAll(anyCollection());
+    }
+
+    @Test
+    void replaceTasks_ShouldRollBack_WhenReleaseUpdateMisses() {
+        inTransaction();
+        when(mongoTemplate.exists(any(Query.class), eq(Release.class))).thenReturn(true);
+
+        Optional<Release> result = bucketStore.replaceTasks("release-1", 7L, tasks(task("a", 1000)), new Update());
+
+        assertTrue(result.isEmpty());
+        verify(transactionStatus).setRollbackOnly();
+    }
+
+    @Test
+    void deleteTasks_ShouldRemoveEveryBucketOfTheRelease() {
+        when(mongoTemplate.remove(any(Query.class), eq(ReleaseTaskBucket.class))).thenReturn(DeleteResult.acknowledged(3));
+
+        bucketStore.deleteTasks("release-1");
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(ReleaseTaskBucket.class));
+        assertEquals(new Document("releaseId", "release-1"), removed.getValue().getQueryObject());
+    }
+
+    private void inTransaction() {
+        when(mongoTransactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(transactionStatus));
+    }
+
+    private void releaseUpdated() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Release.class))).thenReturn(updated);
+    }
+
+    private static ReleaseTaskBucket bucket(int bucketNo, Task... tasks) {
+        return ReleaseTaskBucket.builder().id(ReleaseTaskBucket.idOf("release-1", bucketNo))
+                .releaseId("release-1").bucketNo(bucketNo).size(tasks.length).tasks(tasks(tasks)).build();
+    }
+
+    private static List<Task> tasks(Task... tasks) {
+        return new ArrayList<>(List.of(tasks));
+    }
+
+    private static Task task(String id, int orderIndex) {
+        return Task.builder().id(id).orderIndex(orderIndex).build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.miu.flowops.repository;
+
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskStorage;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReleaseTaskViewCallbackTest {
+
+    @Mock
+    private ObjectProvider<ReleaseTaskBucketStore> bucketStoreProvider;
+
+    @Mock
+    private ReleaseTaskBucketStore bucketStore;
+
+    @InjectMocks
+    private ReleaseTaskViewCallback callback;
+
+    @Test
+    void onAfterConvert_ShouldAttachLazyView_WhenBucketed() {
+        BucketedTaskList view = new BucketedTaskList(new int[0], new int[0], bucketNo -> List.of());
+        when(bucketStoreProvider.getObject()).thenReturn(bucketStore);
+        when(bucketStore.viewOf("release-1")).thenReturn(view);
+        Release release = Release.builder().id("release-1").taskStorage(TaskStorage.BUCKETED).build();
+
+        Release converted = callback.onAfterConvert(release, new Document(), "releases");
+
+        assertSame(view, converted.getTasks());
+    }
+
+    @Test
+    void onAfterConvert_ShouldKeepTasks_WhenEmbedded() {
+        List<Task> tasks = new ArrayList<>(List.of(Task.builder().id("task-1").build()));
+        Release release = Release.builder().id("release-1").taskStorage(TaskStorage.EMBEDDED).tasks(tasks).build();
+
+        Release converted = callback.onAfterConvert(release, new Document(), "releases");
+
+        assertSame(tasks, converted.getTasks());
+        verifyNoInteractions(bucketStoreProvider);
+    }
+
+    @Test
+    void onAfterConvert_ShouldLeavePartialReadUntouched_WhenStorageNotLoaded() {
+        Release release = Release.builder().id("release-1").build();
+
+        Release converted = callback.onAfterConvert(release, new Document(), "releases");
+
+        assertNull(converted.getTasks());
+        verifyNoInteractions(bucketStoreProvider);
+    }
+
+    @Test
+    void onAfterConvert_ShouldKeepProjectedTasks_WhenAlreadySet() {
+        List<Task> tasks = new ArrayList<>();
+        Release release = Release.builder().id("release-1").taskStorage(TaskStorage.BUCKETED).tasks(tasks).build();
+
+        Release converted = callback.onAfterConvert(release, new Document(), "releases");
+
+        assertSame(tasks, converted.getTasks());
+        verifyNoInteractions(bucketStoreProvider);
+    }
+}
@@ -0,0 +1,67 @@
+package com.miu.flowops.service;
+
+import com.miu.flowops.model.OutboxEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaProducerServiceTest {
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    private KafkaProducerService kafkaProducerService;
+
+    @BeforeEach
+    void setUp() {
+        kafkaProducerService = new KafkaProducerService(kafkaTemplate, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void publish_ShouldKeepSending_WhenOneEventFailsSynchronously() {
+        OutboxEvent poison = event("poison");
+        OutboxEvent next = event("next");
+        when(kafkaTemplate.send("topic", "release-1", "poison")).thenThrow(new SerializationException("cannot serialize"));
+        when(kafkaTemplate.send("topic", "release-1", "next")).thenReturn(CompletableFuture.completedFuture(null));
+
+        KafkaProducerService.PublishResult result = kafkaProducerService.publish(List.of(poison, next));
+
+        assertEquals(Set.of(next.getId()), result.delivered());
+        assertEquals(Set.of(poison.getId()), result.rejected());
+        verify(kafkaTemplate, times(1)).flush();
+    }
+
+    @Test
+    void publish_ShouldOnlyRejectNonRetriableFailures() {
+        OutboxEvent tooLarge = event("too-large");
+        OutboxEvent timedOut = event("timed-out");
+        when(kafkaTemplate.send("topic", "release-1", "too-large"))
+                .thenReturn(CompletableFuture.failedFuture(new RecordTooLargeException("too large")));
+        when(kafkaTemplate.send("topic", "release-1", "timed-out"))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("no broker")));
+
+        KafkaProducerService.PublishResult result = kafkaProducerService.publish(List.of(tooLarge, timedOut));
+
+        assertTrue(result.delivered().isEmpty());
+        assertEquals(Set.of(tooLarge.getId()), result.rejected());
+    }
+
+    private static OutboxEvent event(String payload) {
+        return OutboxEvent.of("topic", "release-1", payload);
+    }
+}
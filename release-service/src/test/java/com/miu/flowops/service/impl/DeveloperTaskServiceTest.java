@@ -0,0 +1,115 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.dto.CursorPage;
+import com.miu.flowops.dto.DeveloperTask;
+import com.miu.flowops.dto.DeveloperTaskCursor;
+import com.miu.flowops.dto.DeveloperWorkloadSummary;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.exceptions.ResourceNotFoundException;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeveloperTaskServiceTest {
+
+    @Mock
+    private ReleaseRepository releaseRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private DeveloperTaskService developerTaskService;
+
+    @Test
+    void getTasks_ShouldReturnCursorOfLastTask_WhenMoreTasksExist() {
+        when(userRepository.existsById("user-1")).thenReturn(true);
+        DeveloperTask inProcess = task("release-1", "task-1", TaskStatus.IN_PROCESS, LocalDateTime.of(2026, 3, 2, 9, 0));
+        DeveloperTask todo = task("release-2", "task-7", TaskStatus.TODO, null);
+        when(releaseRepository.findDeveloperTasks("user-1", null, DeveloperTask.SortBy.STATUS, null, 2))
+                .thenReturn(List.of(inProcess, todo));
+
+        CursorPage<DeveloperTask> page = developerTaskService.getTasks("user-1", null, DeveloperTask.SortBy.STATUS, null, 1);
+
+        assertEquals(List.of(inProcess), page.getItems());
+        DeveloperTaskCursor cursor = DeveloperTaskCursor.decode(page.getNextCursor());
+        assertEquals(DeveloperTaskCursor.rankOf(TaskStatus.IN_PROCESS), cursor.getRank());
+        assertTrue(cursor.getStartedKey() < 0);
+        assertEquals("release-1/task-1", cursor.getKey());
+    }
+
+    @Test
+    void getTasks_ShouldContinueAfterCursor() {
+        when(userRepository.existsById("user-1")).thenReturn(true);
+        String cursor = new DeveloperTaskCursor(0, -1000, "release-1/task-1").encode();
+        when(releaseRepository.findDeveloperTasks(eq("user-1"), eq(TaskStatus.TODO), eq(DeveloperTask.SortBy.STARTED_AT), any(), eq(21)))
+                .thenReturn(List.of());
+
+        CursorPage<DeveloperTask> page = developerTaskService.getTasks("user-1", TaskStatus.TODO,
+                DeveloperTask.SortBy.STARTED_AT, cursor, 20);
+
+        ArgumentCaptor<DeveloperTaskCursor> after = ArgumentCaptor.forClass(DeveloperTaskCursor.class);
+        verify(releaseRepository).findDeveloperTasks(any(), any(), any(), after.capture(), anyInt());
+        assertEquals(new DeveloperTaskCursor(0, -1000, "release-1/task-1"), after.getValue());
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getTasks_ShouldRejectInvalidCursor() {
+        when(userRepository.existsById("user-1")).thenReturn(true);
+
+        assertThrows(BadRequestException.class, () -> developerTaskService.getTasks("user-1", null,
+                DeveloperTask.SortBy.STATUS, "not a cursor", 20));
+        verifyNoInteractions(releaseRepository);
+    }
+
+    @Test
+    void getTasks_ShouldThrow_WhenDeveloperNotFound() {
+        when(userRepository.existsById("user-1")).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> developerTaskService.getTasks("user-1", null,
+                DeveloperTask.SortBy.STATUS, null, 20));
+    }
+
+    @Test
+    void getWorkload_ShouldPageByDeveloperId() {
+        when(releaseRepository.findDeveloperWorkloads("user-1", 3)).thenReturn(List.of(
+                DeveloperWorkloadSummary.builder().developerId("user-2").todoTasks(3).build(),
+                DeveloperWorkloadSummary.builder().developerId("user-3").inProcessTasks(1).build(),
+                DeveloperWorkloadSummary.builder().developerId("user-4").build()));
+
+        CursorPage<DeveloperWorkloadSummary> page = developerTaskService.getWorkload("user-1", 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals("user-3", page.getNextCursor());
+    }
+
+    @Test
+    void getWorkload_ShouldRejectTooLargeLimit() {
+        assertThrows(BadRequestException.class, () -> developerTaskService.getWorkload(null, 1000));
+    }
+
+    private static DeveloperTask task(String releaseId, String taskId, TaskStatus status, LocalDateTime startedAt) {
+        return DeveloperTask.builder()
+                .releaseId(releaseId)
+                .taskId(taskId)
+                .status(status)
+                .startedAt(startedAt)
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.IdempotencyConfig;
+import com.miu.flowops.exceptions.ConflictException;
+import com.miu.flowops.model.IdempotencyRecord;
+import com.miu.flowops.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final String ID = "POST /releases/release-1/hotfix:key-1";
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Spy
+    private IdempotencyConfig idempotencyConfig = new IdempotencyConfig();
+
+    @InjectMocks
+    private IdempotencyService idempotencyService;
+
+    private static IdempotencyRecord response(int statusCode) {
+        return IdempotencyRecord.builder().statusCode(statusCode).contentType("text/plain").body("ok".getBytes()).build();
+    }
+
+    @Test
+    void execute_ShouldRunAndStoreResponse_WhenKeyIsNew() throws Exception {
+        when(idempotencyRecordRepository.tryClaim(eq(ID), anyString(), any(), any())).thenReturn(true);
+
+        IdempotencyRecord stored = idempotencyService.execute(ID, () -> response(200));
+
+        assertNull(stored);
+        verify(idempotencyRecordRepository, times(1)).complete(eq(ID), anyString(), eq(200), eq("text/plain"), any());
+    }
+
+    @Test
+    void execute_ShouldReplayStoredResponse_WhenAlreadyExecuted() throws Exception {
+        IdempotencyRecord completed = response(200);
+        completed.setCompleted(true);
+        when(idempotencyRecordRepository.tryClaim(eq(ID), anyString(), any(), any())).thenReturn(false);
+        when(idempotencyRecordRepository.findById(ID)).thenReturn(Optional.of(completed));
+
+        IdempotencyRecord stored = idempotencyService.execute(ID, () -> fail("must not execute twice"));
+
+        assertSame(completed, stored);
+    }
+
+    @Test
+    void execute_ShouldDropClaim_WhenServerError() throws Exception {
+        when(idempotencyRecordRepository.tryClaim(eq(ID), anyString(), any(), any())).thenReturn(true);
+
+        idempotencyService.execute(ID, () -> response(500));
+
+        verify(idempotencyRecordRepository, times(1)).abandon(eq(ID), anyString());
+        verify(idempotencyRecordRepository, never()).complete(any(), any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void execute_ShouldDropClaim_WhenConcurrentModificationConflict() throws Exception {
+        when(idempotencyRecordRepository.tryClaim(eq(ID), anyString(), any(), any())).thenReturn(true);
+
+        idempotencyService.execute(ID, () -> response(409));
+
+        verify(idempotencyRecordRepository, times(1)).abandon(eq(ID), anyString());
+        verify(idempotencyRecordRepository, never()).complete(any(), any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void execute_ShouldThrowConflict_WhenAnotherInstanceStillRuns() {
+        idempotencyConfig.setWaitMillis(0);
+        when(idempotencyRecordRepository.tryClaim(eq(ID), anyString(), any(), any())).thenReturn(false);
+        when(idempotencyRecordRepository.findById(ID)).thenReturn(Optional.of(IdempotencyRecord.builder().id(ID).build()));
+
+        assertThrows(ConflictException.class, () -> idempotencyService.execute(ID, () -> response(200)));
+    }
+
+    @Test
+    void execute_ShouldCoalesceConcurrentDuplicates() throws Exception {
+        IdempotencyRecord first = response(200);
+        first.setCompleted(true);
+        // A duplicate arriving after the first one finished reads the stored response instead
+        when(idempotencyRecordRepository.tryClaim(eq(ID), anyString(), any(), any())).thenReturn(true, false);
+        lenient().when(idempotencyRecordRepository.findById(ID)).thenReturn(Optional.of(first));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        CompletableFuture<IdempotencyRecord> original = CompletableFuture.supplyAsync(() -> {
+            try {
+                return idempotencyService.execute(ID, () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    release.await();
+                    return first;
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<IdempotencyRecord> duplicate = CompletableFuture.supplyAsync(() -> {
+            try {
+                return idempotencyService.execute(ID, () -> {
+                    executions.incrementAndGet();
+                    return response(200);
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        release.countDown();
+
+        assertNull(original.get(5, TimeUnit.SECONDS));
+        assertSame(first, duplicate.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+    }
+}
@@ -0,0 +1,95 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.OutboxConfig;
+import com.miu.flowops.model.OutboxEvent;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.SchedulerLockRepository;
+import com.miu.flowops.service.KafkaProducerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayServiceTest {
+
+    @Mock
+    private ReleaseRepository releaseRepository;
+
+    @Mock
+    private SchedulerLockRepository schedulerLockRepository;
+
+    @Mock
+    private KafkaProducerService kafkaProducerService;
+
+    @Spy
+    private OutboxConfig outboxConfig = new OutboxConfig();
+
+    @InjectMocks
+    private OutboxRelayService outboxRelayService;
+
+    private OutboxEvent first;
+    private OutboxEvent second;
+    private OutboxEvent third;
+
+    @BeforeEach
+    void setUp() {
+        first = OutboxEvent.of("topic", "release-1", "first");
+        second = OutboxEvent.of("topic", "release-1", "second");
+        third = OutboxEvent.of("topic", "release-1", "third");
+        Release release = Release.builder().id("release-1").outbox(new ArrayList<>(List.of(first, second, third))).build();
+        when(schedulerLockRepository.tryAcquire(anyString(), anyString(), any(), any())).thenReturn(true);
+        when(releaseRepository.findWithPendingOutbox(anyInt())).thenReturn(List.of(release));
+    }
+
+    @Test
+    void relay_ShouldRemoveDeliveredPrefixOnly_WhenEventFailsRetriably() {
+        when(kafkaProducerService.publish(anyList())).thenReturn(
+                new KafkaProducerService.PublishResult(Set.of(first.getId(), third.getId()), Set.of()));
+
+        outboxRelayService.relay();
+
+        verify(releaseRepository).removeOutboxEvents(Map.of("release-1", List.of(first.getId())));
+        verify(releaseRepository).recordOutboxFailures(Map.of());
+        verify(releaseRepository).deadLetterOutboxEvents(Map.of());
+    }
+
+    @Test
+    void relay_ShouldCountAttempt_WhenEventRejected() {
+        when(kafkaProducerService.publish(anyList())).thenReturn(
+                new KafkaProducerService.PublishResult(Set.of(first.getId(), third.getId()), Set.of(second.getId())));
+
+        outboxRelayService.relay();
+
+        verify(releaseRepository).recordOutboxFailures(Map.of("release-1", second.getId()));
+        verify(releaseRepository).removeOutboxEvents(Map.of("release-1", List.of(first.getId())));
+        verify(releaseRepository).deadLetterOutboxEvents(Map.of());
+    }
+
+    @Test
+    void relay_ShouldDeadLetterAndMovePast_WhenEventRejectedTooOften() {
+        second.setAttempts(outboxConfig.getMaxAttempts() - 1);
+        when(kafkaProducerService.publish(anyList())).thenReturn(
+                new KafkaProducerService.PublishResult(Set.of(first.getId(), third.getId()), Set.of(second.getId())));
+
+        outboxRelayService.relay();
+
+        verify(releaseRepository).deadLetterOutboxEvents(Map.of("release-1", List.of(second)));
+        assertEquals(outboxConfig.getMaxAttempts(), second.getAttempts());
+        verify(releaseRepository).removeOutboxEvents(Map.of("release-1", List.of(first.getId(), third.getId())));
+        verify(releaseRepository).recordOutboxFailures(Map.of());
+    }
+}
@@ -0,0 +1,165 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.CacheConfig;
+import com.miu.flowops.dto.EncodedRelease;
+import com.miu.flowops.dto.ReleaseChangedEvent;
+import com.miu.flowops.dto.ReleaseChanges;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.service.KafkaProducerService;
+import com.miu.flowops.util.ReleaseFields;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReleaseCacheTest {
+
+    @Mock
+    private KafkaProducerService kafkaProducerService;
+
+    private ReleaseCache releaseCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        CacheConfig cacheConfig = new CacheConfig();
+        cacheConfig.getCompletedRelease().setGzipMinBytes(64);
+        releaseCache = new ReleaseCache(cacheConfig, kafkaProducerService, JsonMapper.builder().build(), new SimpleMeterRegistry());
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void get_ShouldLoadOnceAndReturnCopies() {
+        Release first = releaseCache.get("release-1", this::load);
+        first.getTasks().get(0).setStatus(TaskStatus.COMPLETED);
+        first.getTasks().add(Task.builder().id("task-2").build());
+
+        Release second = releaseCache.get("release-1", this::load);
+
+        assertEquals(1, loads.get());
+        assertEquals(1, second.getTasks().size());
+        assertEquals(TaskStatus.TODO, second.getTasks().get(0).getStatus());
+    }
+
+    @Test
+    void get_ShouldReturnNull_WhenReleaseDoesNotExist() {
+        assertNull(releaseCache.get("invalid-id", id -> null));
+    }
+
+    @Test
+    void evict_ShouldReloadAndNotifyOtherInstances() {
+        releaseCache.get("release-1", this::load);
+
+        releaseCache.evict("release-1");
+        releaseCache.get("release-1", this::load);
+
+        assertEquals(2, loads.get());
+        ArgumentCaptor<ReleaseChangedEvent> event = ArgumentCaptor.forClass(ReleaseChangedEvent.class);
+        verify(kafkaProducerService, times(1)).sendReleaseChangedEvent(event.capture());
+        assertEquals("release-1", event.getValue().getReleaseId());
+
+        // The instance ignores its own broadcast
+        releaseCache.onReleaseChanged(event.getValue());
+        releaseCache.get("release-1", this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void onReleaseChanged_ShouldEvict_WhenChangedOnAnotherInstance() {
+        releaseCache.get("release-1", this::load);
+
+        releaseCache.onReleaseChanged(ReleaseChangedEvent.builder().releaseId("release-1").origin("other").build());
+        releaseCache.get("release-1", this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getCompleted_ShouldEncodeOnceUntilEvicted() throws Exception {
+        EncodedRelease first = releaseCache.getCompleted("release-1", this::load);
+        EncodedRelease second = releaseCache.getCompleted("release-1", this::load);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertTrue(new String(first.getJson(), StandardCharsets.UTF_8).contains("\"title\":\"Release 1.0\""));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(first.getGzip()))) {
+            assertArrayEquals(first.getJson(), gzip.readAllBytes());
+        }
+
+        releaseCache.onReleaseChanged(ReleaseChangedEvent.builder().releaseId("release-1").origin("other").build());
+        releaseCache.getCompleted("release-1", this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getCompleted_ShouldNotCache_WhenReleaseIsNotCompleted() {
+        assertNull(releaseCache.getCompleted("release-1", id -> null));
+        assertNull(releaseCache.getCompleted("release-1", id -> null));
+
+        EncodedRelease encoded = releaseCache.encode(load("release-1"), false);
+        assertNull(encoded.getGzip());
+    }
+
+    @Test
+    void encode_ShouldWriteOnlySelectedFields() {
+        ReleaseFields fields = ReleaseFields.parse("tasks.status, title,tasks.id");
+        Release release = load("release-1");
+        release.getTasks().get(0).setDescription("Long description");
+
+        String json = new String(releaseCache.encode(release, fields).getJson(), StandardCharsets.UTF_8);
+
+        assertEquals("{\"title\":\"Release 1.0\",\"tasks\":[{\"id\":\"task-1\",\"status\":\"TODO\"}]}", json);
+        assertArrayEquals(new String[]{"version", "taskStorage", "title", "tasks._id", "tasks.status"}, fields.releaseProjection());
+    }
+
+    @Test
+    void encodeChanges_ShouldWriteOnlySelectedTaskFields() {
+        ReleaseFields fields = ReleaseFields.parse("tasks.id,tasks.status");
+        ReleaseChanges changes = ReleaseChanges.builder()
+                .releaseId("release-1")
+                .since(2)
+                .version(3)
+                .isCompleted(false)
+                .tasks(load("release-1").getTasks())
+                .build();
+
+        String json = new String(releaseCache.encodeChanges(changes, fields), StandardCharsets.UTF_8);
+
+        assertEquals("{\"releaseId\":\"release-1\",\"since\":2,\"version\":3,\"isCompleted\":false,\"resync\":false,"
+                + "\"tasks\":[{\"id\":\"task-1\",\"status\":\"TODO\"}]}", json);
+        assertTrue(fields.selectsOnlyTasks());
+        assertFalse(ReleaseFields.parse("title,tasks.id").selectsOnlyTasks());
+    }
+
+    @Test
+    void encode_ShouldRejectUnknownFields() {
+        assertThrows(BadRequestException.class, () -> ReleaseFields.parse("title,outbox"));
+        assertThrows(BadRequestException.class, () -> ReleaseFields.parse("tasks.secret"));
+        assertThrows(BadRequestException.class, () -> ReleaseFields.parse(" , "));
+    }
+
+    private Release load(String id) {
+        loads.incrementAndGet();
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(Task.builder().id("task-1").status(TaskStatus.TODO).build());
+        return Release.builder().id(id).title("Release 1.0").version(0L).tasks(tasks).build();
+    }
+}
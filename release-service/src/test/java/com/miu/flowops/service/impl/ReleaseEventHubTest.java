@@ -0,0 +1,158 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.ReleaseEventsConfig;
+import com.miu.flowops.dto.ReleaseTaskChangesEvent;
+import com.miu.flowops.dto.TaskDelta;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.service.KafkaProducerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReleaseEventHubTest {
+
+    @Mock
+    private KafkaProducerService kafkaProducerService;
+
+    private final ReleaseEventsConfig config = new ReleaseEventsConfig();
+    private CountDownLatch sending;
+    private ReleaseEventHub hub;
+
+    @BeforeEach
+    void setUp() {
+        config.setBufferSize(2);
+        config.setHistorySize(3);
+        sending = new CountDownLatch(0);
+        hub = new ReleaseEventHub(config, kafkaProducerService) {
+            @Override
+            SseEmitter createEmitter() {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    @Test
+    void publish_ShouldFanOutToSubscribersAndNotifyOtherInstances() throws Exception {
+        RecordingEmitter first = (RecordingEmitter) hub.subscribe("release-1", null, 1L);
+        RecordingEmitter second = (RecordingEmitter) hub.subscribe("release-1", null, 1L);
+        RecordingEmitter other = (RecordingEmitter) hub.subscribe("release-2", null, 1L);
+
+        hub.publish(change("release-1", 2L));
+
+        assertTrue(first.next().contains("id:2"));
+        assertTrue(second.next().contains("event:change"));
+        assertNull(other.frames.poll(100, TimeUnit.MILLISECONDS));
+        verify(kafkaProducerService, times(1)).sendReleaseTaskChangesEvent(any());
+    }
+
+    @Test
+    void subscribe_ShouldReplayEventsAfterLastEventId() throws Exception {
+        hub.publish(change("release-1", 2L));
+        hub.publish(change("release-1", 4L));
+        hub.publish(change("release-1", 5L));
+
+        RecordingEmitter emitter = (RecordingEmitter) hub.subscribe("release-1", 3L, 5L);
+
+        assertTrue(emitter.next().contains("id:4"));
+        assertTrue(emitter.next().contains("id:5"));
+    }
+
+    @Test
+    void subscribe_ShouldAskForResync_WhenHistoryDoesNotReachBack() throws Exception {
+        for (long version = 2; version <= 6; version++) {
+            hub.publish(change("release-1", version));
+        }
+
+        RecordingEmitter emitter = (RecordingEmitter) hub.subscribe("release-1", 2L, 6L);
+
+        String frame = emitter.next();
+        assertTrue(frame.contains("event:resync"));
+        assertTrue(frame.contains("id:6"));
+    }
+
+    @Test
+    void publish_ShouldDisconnectSubscriber_WhenItsBufferIsFull() throws Exception {
+        sending = new CountDownLatch(1);
+        RecordingEmitter slow = (RecordingEmitter) hub.subscribe("release-1", null, 1L);
+
+        for (long version = 2; version <= 6; version++) {
+            hub.publish(change("release-1", version));
+        }
+
+        assertEquals(0, hub.subscriberCount("release-1"));
+        sending.countDown();
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void onReleaseTaskChanges_ShouldDeliverOnlyEventsOfOtherInstances() throws Exception {
+        RecordingEmitter emitter = (RecordingEmitter) hub.subscribe("release-1", null, 1L);
+        hub.publish(change("release-1", 2L));
+        emitter.next();
+        ArgumentCaptor<ReleaseTaskChangesEvent> own = ArgumentCaptor.forClass(ReleaseTaskChangesEvent.class);
+        verify(kafkaProducerService).sendReleaseTaskChangesEvent(own.capture());
+
+        hub.onReleaseTaskChanges(own.getValue());
+        ReleaseTaskChangesEvent remote = change("release-1", 3L);
+        remote.setOrigin("other");
+        hub.onReleaseTaskChanges(remote);
+
+        assertTrue(emitter.next().contains("id:3"));
+        assertNull(emitter.frames.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    private static ReleaseTaskChangesEvent change(String releaseId, long version) {
+        return ReleaseTaskChangesEvent.builder()
+                .releaseId(releaseId)
+                .version(version)
+                .tasks(List.of(TaskDelta.builder().taskId("task-" + version).status(TaskStatus.COMPLETED).build()))
+                .build();
+    }
+
+    // Records the frames instead of writing them to a response, heartbeats are skipped
+    private class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            String frame = builder.build().stream()
+                    .map(data -> String.valueOf(data.getData()))
+                    .collect(Collectors.joining());
+            try {
+                sending.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!frame.startsWith(":")) {
+                frames.add(frame);
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        String next() throws InterruptedException {
+            String frame = frames.poll(5, TimeUnit.SECONDS);
+            assertNotNull(frame);
+            return frame;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.ForecastConfig;
+import com.miu.flowops.dto.ReleaseForecast;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReleaseForecastServiceTest {
+
+    @Mock
+    private ReleaseService releaseService;
+
+    private final ForecastConfig config = new ForecastConfig();
+    private ReleaseForecastService releaseForecastService;
+
+    private final LocalDateTime start = LocalDateTime.now().minusDays(30);
+
+    @BeforeEach
+    void setUp() {
+        config.setTrials(20_000);
+        releaseForecastService = new ReleaseForecastService(releaseService, config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseForecastService.shutdown();
+    }
+
+    @Test
+    void getForecast_ShouldSumCycleTimesOfRemainingTasks() {
+        List<Task> tasks = completedChain(5, 3600);
+        tasks.add(todo("task-6"));
+        tasks.add(todo("task-7"));
+        tasks.add(todo("task-8"));
+        when(releaseService.getRelease("release-1")).thenReturn(release(tasks));
+
+        ReleaseForecast forecast = releaseForecastService.getForecast("release-1");
+
+        assertEquals(3, forecast.getRemainingTasks());
+        assertEquals(5, forecast.getSampleSize());
+        assertEquals(3 * 3600, forecast.getP50Seconds());
+        assertEquals(3 * 3600, forecast.getP95Seconds());
+        assertEquals(forecast.getComputedAt().plusSeconds(3 * 3600), forecast.getP95FinishAt());
+    }
+
+    @Test
+    void getForecast_ShouldOnlyDrawLongerCycleTimes_ForTaskInProcess() {
+        List<Task> tasks = new ArrayList<>();
+        LocalDateTime at = start;
+        for (int i = 1; i <= 5; i++) {
+            tasks.add(Task.builder().id("task-" + i).status(TaskStatus.COMPLETED)
+                    .startedAt(at).completedAt(at.plusHours(i)).build());
+            at = at.plusHours(i);
+        }
+        tasks.add(Task.builder().id("task-6").status(TaskStatus.IN_PROCESS)
+                .startedAt(LocalDateTime.now().minusMinutes(150)).build());
+        when(releaseService.getRelease("release-1")).thenReturn(release(tasks));
+
+        ReleaseForecast forecast = releaseForecastService.getForecast("release-1");
+
+        // Drawn among the 3h, 4h and 5h tasks, minus the 2.5h already spent
+        assertEquals(1, forecast.getRemainingTasks());
+        assertTrue(forecast.getP50Seconds() >= 1700 && forecast.getP95Seconds() <= 9000);
+        assertTrue(forecast.getP50Seconds() <= forecast.getP85Seconds());
+        assertTrue(forecast.getP85Seconds() <= forecast.getP95Seconds());
+    }
+
+    @Test
+    void getForecast_ShouldApproximateLongChains() {
+        config.setExactTaskLimit(10);
+        List<Task> tasks = completedChain(5, 60);
+        for (int i = 0; i < 1000; i++) {
+            tasks.add(todo("todo-" + i));
+        }
+        when(releaseService.getRelease("release-1")).thenReturn(release(tasks));
+
+        ReleaseForecast forecast = releaseForecastService.getForecast("release-1");
+
+        assertEquals(60_000, forecast.getP50Seconds());
+    }
+
+    @Test
+    void getForecast_ShouldBeCachedPerVersion() {
+        List<Task> tasks = completedChain(5, 3600);
+        tasks.add(todo("task-6"));
+        when(releaseService.getRelease("release-1")).thenReturn(release(tasks));
+
+        ReleaseForecast first = releaseForecastService.getForecast("release-1");
+        ReleaseForecast second = releaseForecastService.getForecast("release-1");
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void getForecast_ShouldReject_WhenTooFewCompletedTasks() {
+        List<Task> tasks = completedChain(2, 3600);
+        tasks.add(todo("task-3"));
+        when(releaseService.getRelease("release-1")).thenReturn(release(tasks));
+
+        assertThrows(BadRequestException.class, () -> releaseForecastService.getForecast("release-1"));
+    }
+
+    @Test
+    void getForecast_ShouldReturnLastCompletion_WhenNothingRemains() {
+        List<Task> tasks = completedChain(2, 3600);
+        when(releaseService.getRelease("release-1")).thenReturn(release(tasks));
+
+        ReleaseForecast forecast = releaseForecastService.getForecast("release-1");
+
+        assertEquals(0, forecast.getRemainingTasks());
+        assertEquals(tasks.get(1).getCompletedAt(), forecast.getP95FinishAt());
+    }
+
+    // Tasks done back to back, each taking the given time
+    private List<Task> completedChain(int count, long seconds) {
+        List<Task> tasks = new ArrayList<>();
+        LocalDateTime at = start;
+        for (int i = 1; i <= count; i++) {
+            tasks.add(Task.builder().id("task-" + i).status(TaskStatus.COMPLETED)
+                    .startedAt(at).completedAt(at.plusSeconds(seconds)).build());
+            at = at.plusSeconds(seconds);
+        }
+        return tasks;
+    }
+
+    private static Task todo(String id) {
+        return Task.builder().id(id).status(TaskStatus.TODO).build();
+    }
+
+    private static Release release(List<Task> tasks) {
+        return Release.builder().id("release-1").version(7L).isCompleted(false).tasks(tasks).build();
+    }
+}
@@ -1,27 +1,42 @@
 package com.miu.flowops.service.impl;
 
+import com.miu.flowops.dto.CursorPage;
+import com.miu.flowops.dto.EncodedRelease;
+import com.miu.flowops.dto.ReleaseChanges;
+import com.miu.flowops.dto.ReleaseSummary;
 import com.miu.flowops.dto.TaskAssignedEvent;
+import com.miu.flowops.exceptions.BadRequestException;
 import com.miu.flowops.exceptions.ResourceNotFoundException;
 import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseChange;
+import com.miu.flowops.model.ReleaseProgress;
 import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskEvent;
 import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.model.TaskStorage;
 import com.miu.flowops.model.User;
+import com.miu.flowops.repository.DeveloperWorkloadRepository;
+import com.miu.flowops.repository.ReleaseProgressRepository;
 import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.ReleaseTaskBucketStore;
 import com.miu.flowops.repository.UserRepository;
-import com.miu.flowops.service.KafkaProducerService;
+import com.miu.flowops.util.ReleaseFields;
+import com.miu.flowops.util.TaskOrder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,7 +49,22 @@ class ReleaseServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private KafkaProducerService kafkaProducerService;
+    private ReleaseProgressRepository releaseProgressRepository;
+
+    @Mock
+    private ReleaseCache releaseCache;
+
+    @Mock
+    private ReleaseEventHub releaseEventHub;
+
+    @Mock
+    private TaskHistoryService taskHistoryService;
+
+    @Mock
+    private ReleaseTaskBucketStore bucketStore;
+
+    @Mock
+    private DeveloperWorkloadRepository developerWorkloadRepository;
 
     @InjectMocks
     private ReleaseService releaseService;
@@ -66,6 +96,10 @@ class ReleaseServiceTest {
                 .id("user-1")
                 .email("test@example.com")
                 .build();
+
+        // The cache is bypassed, every read goes to the repository
+        lenient().when(releaseCache.get(anyString(), any())).thenAnswer(invocation ->
+                invocation.<Function<String, Release>>getArgument(1).apply(invocation.getArgument(0)));
     }
 
     @Test
@@ -77,6 +111,22 @@ class ReleaseServiceTest {
         assertNotNull(createdRelease);
         assertEquals(release.getId(), createdRelease.getId());
         verify(releaseRepository, times(1)).save(any(Release.class));
+        verify(releaseProgressRepository, times(1)).save(argThat((ReleaseProgress progress) -> progress.getTodo() == 1 && progress.getNextOrderIndex() == TaskOrder.keyAt(0)));
+    }
+
+    @Test
+    void createRelease_ShouldIgnoreClientTaskStorageAndTail() {
+        release.setTaskStorage(TaskStorage.BUCKETED);
+        release.setTailOrderIndex(5);
+        Release empty = Release.builder().title("Release 2.0").tailOrderIndex(7).build();
+        when(releaseRepository.save(any(Release.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Release created = releaseService.createRelease(release);
+        Release createdEmpty = releaseService.createRelease(empty);
+
+        assertNull(created.getTaskStorage());
+        assertEquals(TaskOrder.keyAt(0), created.getTailOrderIndex());
+        assertNull(createdEmpty.getTailOrderIndex());
     }
 
     @Test
@@ -96,45 +146,211 @@ class ReleaseServiceTest {
         assertThrows(ResourceNotFoundException.class, () -> releaseService.getRelease("invalid-id"));
     }
 
+    @Test
+    void getEncodedRelease_ShouldServeCachedBody_WhenReleaseIsCompleted() {
+        release.setIsCompleted(true);
+        EncodedRelease cached = new EncodedRelease(3, new byte[]{'{', '}'}, null);
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
+        when(releaseCache.getCompleted(eq("release-1"), any())).thenAnswer(invocation ->
+                invocation.<Function<String, Release>>getArgument(1).apply("release-1") != null ? cached : null);
+
+        assertSame(cached, releaseService.getEncodedRelease("release-1", version -> false));
+        verify(releaseCache, never()).encode(any(), anyBoolean());
+    }
+
+    @Test
+    void getEncodedRelease_ShouldEncodeWithoutCaching_WhenReleaseIsNotCompleted() {
+        EncodedRelease encoded = new EncodedRelease(0, new byte[]{'{', '}'}, null);
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
+        when(releaseCache.getCompleted(eq("release-1"), any())).thenAnswer(invocation ->
+                invocation.<Function<String, Release>>getArgument(1).apply("release-1"));
+        when(releaseCache.encode(release, false)).thenReturn(encoded);
+
+        assertSame(encoded, releaseService.getEncodedRelease("release-1", version -> false));
+    }
+
+    @Test
+    void getEncodedRelease_ShouldNotEncode_WhenClientHasVersion() {
+        release.setVersion(4L);
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
+        when(releaseCache.getCompleted(eq("release-1"), any())).thenAnswer(invocation ->
+                invocation.<Function<String, Release>>getArgument(1).apply("release-1"));
+
+        assertNull(releaseService.getEncodedRelease("release-1", version -> version == 4L));
+        verify(releaseCache, never()).encode(any(), anyBoolean());
+    }
+
+    @Test
+    void getEncodedRelease_ShouldReadOnlySelectedFields() {
+        ReleaseFields fields = ReleaseFields.parse("title,tasks.status");
+        EncodedRelease encoded = new EncodedRelease(0, new byte[]{'{', '}'}, null);
+        when(releaseRepository.findWithFields("release-1", fields)).thenReturn(Optional.of(release));
+        when(releaseCache.encode(release, fields)).thenReturn(encoded);
+
+        assertSame(encoded, releaseService.getEncodedRelease("release-1", fields, version -> false));
+        verify(releaseRepository, never()).findById(any());
+    }
+
+    @Test
+    void getEncodedRelease_ShouldNotEncodeSelectedFields_WhenClientHasVersion() {
+        ReleaseFields fields = ReleaseFields.parse("title");
+        release.setVersion(4L);
+        when(releaseRepository.findWithFields("release-1", fields)).thenReturn(Optional.of(release));
+
+        assertNull(releaseService.getEncodedRelease("release-1", fields, version -> version == 4L));
+        verify(releaseCache, never()).encode(any(), any(ReleaseFields.class));
+    }
+
+    @Test
+    void getEncodedChanges_ShouldRejectReleaseFields() {
+        assertThrows(BadRequestException.class,
+                () -> releaseService.getEncodedChanges("release-1", 0, ReleaseFields.parse("title,tasks.id")));
+        verifyNoInteractions(releaseCache);
+    }
+
+    @Test
+    void getEncodedRelease_ShouldThrow_WhenSparseReleaseNotFound() {
+        ReleaseFields fields = ReleaseFields.parse("title");
+        when(releaseRepository.findWithFields("invalid-id", fields)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> releaseService.getEncodedRelease("invalid-id", fields, version -> false));
+    }
+
+    @Test
+    void listReleases_ShouldReturnNextCursor_WhenMoreResultsExist() {
+        when(releaseRepository.findSummaries(false, null, 3)).thenReturn(List.of(
+                ReleaseSummary.builder().id("release-1").build(),
+                ReleaseSummary.builder().id("release-2").build(),
+                ReleaseSummary.builder().id("release-3").build()));
+
+        CursorPage<ReleaseSummary> page = releaseService.listReleases(false, null, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals("release-2", page.getNextCursor());
+    }
+
+    @Test
+    void listReleases_ShouldThrowException_WhenLimitOutOfRange() {
+        assertThrows(BadRequestException.class, () -> releaseService.listReleases(null, null, 0));
+    }
+
     @Test
     void assignDeveloper_ShouldAssignDeveloperAndPublishEvent() {
+        task.setDeveloperId("user-1");
         when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
         when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
-        when(releaseRepository.save(any(Release.class))).thenReturn(release);
+        when(releaseRepository.assignTaskDeveloper(eq("release-1"), eq("task-1"), eq("user-1"), anyList(), anyList()))
+                .thenReturn(Optional.of(release));
 
         Task assignedTask = releaseService.assignDeveloper("release-1", "task-1", "user-1");
 
         assertNotNull(assignedTask);
         assertEquals("user-1", assignedTask.getDeveloperId());
-        verify(kafkaProducerService, times(1)).sendTaskAssignedEvent(any(TaskAssignedEvent.class));
-        verify(releaseRepository, times(1)).save(any(Release.class));
+        verify(releaseRepository).assignTaskDeveloper(eq("release-1"), eq("task-1"), eq("user-1"),
+                argThat(events -> events.size() == 1 && events.get(0).getPayload() instanceof TaskAssignedEvent),
+                argThat(history -> history.size() == 1 && "user-1".equals(history.get(0).getDeveloperId())));
+        verify(releaseRepository, never()).save(any(Release.class));
+    }
+
+    @Test
+    void assignDeveloper_ShouldThrowException_WhenTaskNotFound() {
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
+
+        assertThrows(ResourceNotFoundException.class, () -> releaseService.assignDeveloper("release-1", "task-x", "user-1"));
+        verify(releaseRepository, never()).assignTaskDeveloper(any(), any(), any(), any(), any());
     }
 
     @Test
-    void addHotfixTask_ShouldAddTaskAndReopenRelease() {
+    void assignDeveloper_ShouldThrowException_WhenTaskAlreadyStarted() {
+        task.setStatus(TaskStatus.IN_PROCESS);
+        task.setDeveloperId("user-2");
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
+
+        assertThrows(BadRequestException.class, () -> releaseService.assignDeveloper("release-1", "task-1", "user-1"));
+        verify(releaseRepository, never()).assignTaskDeveloper(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void addHotfixTask_ShouldAppendAfterTailAndReopenRelease() {
         release.setIsCompleted(true);
+        release.setTailOrderIndex(2048);
         Task hotfixTask = Task.builder().title("Hotfix").build();
 
         when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
-        when(releaseRepository.save(any(Release.class))).thenReturn(release);
+        when(releaseRepository.insertTask(eq("release-1"), eq(hotfixTask), isNull(), anyList(), anyList())).thenReturn(Optional.of(release));
 
-        releaseService.addHotfixTask("release-1", hotfixTask);
+        releaseService.addHotfixTask("release-1", hotfixTask, null);
 
         assertFalse(release.getIsCompleted());
-        assertEquals(2, release.getTasks().size());
-        verify(releaseRepository, times(1)).save(any(Release.class));
+        assertEquals(2048 + TaskOrder.GAP, hotfixTask.getOrderIndex());
+        verify(releaseProgressRepository, times(1)).recordTaskAdded("release-1", 2048 + TaskOrder.GAP);
+        verify(releaseRepository, never()).save(any(Release.class));
+    }
+
+    @Test
+    void addHotfixTask_ShouldInsertBetweenNeighbours() {
+        task.setOrderIndex(TaskOrder.keyAt(0));
+        Task next = Task.builder().id("task-2").title("Next").status(TaskStatus.TODO).orderIndex(TaskOrder.keyAt(1)).build();
+        release.getTasks().add(next);
+        Task hotfixTask = Task.builder().title("Hotfix").build();
+
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
+        when(releaseRepository.insertTask(eq("release-1"), eq(hotfixTask), eq("task-2"), anyList(), anyList())).thenReturn(Optional.of(release));
+
+        releaseService.addHotfixTask("release-1", hotfixTask, "task-2");
+
+        assertEquals(TaskOrder.keyAt(0) + TaskOrder.GAP / 2, hotfixTask.getOrderIndex());
+        verify(releaseRepository, never()).replaceTasks(any(), any(), any(), any(), anyBoolean(), any(), any());
+    }
+
+    @Test
+    void addHotfixTask_ShouldRenumber_WhenNoKeyLeftBetweenNeighbours() {
+        Task next = Task.builder().id("task-2").title("Next").status(TaskStatus.TODO).orderIndex(2).build();
+        release.getTasks().add(next);
+        release.setVersion(4L);
+        Task hotfixTask = Task.builder().title("Hotfix").build();
+
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
+        when(releaseRepository.replaceTasks(eq("release-1"), eq(4L), anyList(), isNull(), eq(false), anyList(), anyList())).thenReturn(Optional.of(release));
+
+        releaseService.addHotfixTask("release-1", hotfixTask, "task-2");
+
+        assertEquals(TaskOrder.keyAt(1), hotfixTask.getOrderIndex());
+        assertEquals(TaskOrder.keyAt(2), next.getOrderIndex());
+        verify(releaseRepository, never()).insertTask(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void addHotfixTask_ShouldThrowException_WhenTargetTaskStarted() {
+        task.setStatus(TaskStatus.IN_PROCESS);
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
+
+        assertThrows(BadRequestException.class,
+                () -> releaseService.addHotfixTask("release-1", Task.builder().title("Hotfix").build(), "task-1"));
     }
 
     @Test
     void completeRelease_ShouldComplete_WhenAllTasksDone() {
         task.setStatus(TaskStatus.COMPLETED);
         when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
-        when(releaseRepository.save(any(Release.class))).thenReturn(release);
+        when(releaseRepository.markCompletedIfAllTasksDone(eq("release-1"), anyList())).thenReturn(true);
 
         Release completedRelease = releaseService.completeRelease("release-1");
 
         assertTrue(completedRelease.getIsCompleted());
-        verify(releaseRepository, times(1)).save(any(Release.class));
+        verify(releaseRepository, never()).save(any(Release.class));
+    }
+
+    @Test
+    void completeRelease_ShouldUseProgressCounters() {
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
+        when(releaseProgressRepository.findById("release-1"))
+                .thenReturn(Optional.of(ReleaseProgress.builder().releaseId("release-1").inProcess(1).build()));
+
+        assertThrows(IllegalStateException.class, () -> releaseService.completeRelease("release-1"));
+        verify(releaseRepository, never()).markCompletedIfAllTasksDone(any(), any());
     }
 
     @Test
@@ -145,6 +361,45 @@ class ReleaseServiceTest {
         assertThrows(IllegalStateException.class, () -> releaseService.completeRelease("release-1"));
     }
 
+    @Test
+    void getChanges_ShouldReturnOnlyTasksChangedSinceVersion() {
+        Task other = Task.builder().id("task-2").status(TaskStatus.TODO).orderIndex(2).build();
+        release.getTasks().add(other);
+        release.setVersion(7L);
+        release.setChanges(List.of(
+                ReleaseChange.ofTasks(List.of("task-2")),
+                ReleaseChange.ofTasks(List.of("task-1")),
+                ReleaseChange.ofRelease()));
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
+
+        ReleaseChanges changes = releaseService.getChanges("release-1", 5L);
+
+        assertFalse(changes.isResync());
+        assertEquals(7L, changes.getVersion());
+        assertEquals(List.of(task), changes.getTasks());
+        assertTrue(releaseService.getChanges("release-1", 7L).getTasks().isEmpty());
+    }
+
+    @Test
+    void getChanges_ShouldAskForResync_WhenVersionIsOlderThanTheLog() {
+        release.setVersion(7L);
+        release.setChanges(List.of(ReleaseChange.ofTasks(List.of("task-1")), ReleaseChange.ofRelease()));
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
+
+        assertTrue(releaseService.getChanges("release-1", 4L).isResync());
+        assertFalse(releaseService.getChanges("release-1", 5L).isResync());
+    }
+
+    @Test
+    void getChanges_ShouldAskForResync_WhenTasksWereRenumbered() {
+        release.setVersion(3L);
+        release.setChanges(List.of(ReleaseChange.ofAllTasks(), ReleaseChange.ofTasks(List.of("task-1"))));
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(release));
+
+        assertTrue(releaseService.getChanges("release-1", 1L).isResync());
+        assertEquals(List.of(task), releaseService.getChanges("release-1", 2L).getTasks());
+    }
+
     @Test
     void deleteRelease_ShouldDelete_WhenExists() {
         when(releaseRepository.existsById("release-1")).thenReturn(true);
@@ -152,6 +407,21 @@ class ReleaseServiceTest {
         releaseService.deleteRelease("release-1");
 
         verify(releaseRepository, times(1)).deleteById("release-1");
+        verify(bucketStore, times(1)).deleteTasks("release-1");
+        verify(developerWorkloadRepository, times(1)).deleteByReleaseId("release-1");
+        verify(releaseCache, times(1)).evict("release-1");
+    }
+
+    @Test
+    void deleteRelease_ShouldDiscardHistoryEntry_WhenDeleteFails() {
+        TaskEvent deleted = TaskEvent.ofRelease("release-1", TaskEvent.Type.RELEASE_DELETED);
+        when(releaseRepository.existsById("release-1")).thenReturn(true);
+        when(taskHistoryService.recordDeleted("release-1")).thenReturn(deleted);
+        doThrow(new DataAccessResourceFailureException("down")).when(releaseRepository).deleteById("release-1");
+
+        assertThrows(DataAccessResourceFailureException.class, () -> releaseService.deleteRelease("release-1"));
+        verify(taskHistoryService, times(1)).discard(deleted);
+        verify(bucketStore, never()).deleteTasks(any());
     }
 
     @Test
@@ -0,0 +1,207 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.ReleaseTransferConfig;
+import com.miu.flowops.dto.ReleaseImportResult;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.model.DeveloperWorkload;
+import com.miu.flowops.model.ReleaseProgress;
+import com.miu.flowops.repository.ReleaseProgressRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReleaseTransferServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private ReleaseProgressRepository releaseProgressRepository;
+
+    @Mock
+    private ReleaseService releaseService;
+
+    @Spy
+    private ReleaseTransferConfig config = new ReleaseTransferConfig();
+
+    @InjectMocks
+    private ReleaseTransferService releaseTransferService;
+
+    @Mock
+    private MongoCollection<Document> releases;
+
+    @Mock
+    private MongoCollection<Document> buckets;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(mongoTemplate.getCollection("releases")).thenReturn(releases);
+        lenient().when(mongoTemplate.getCollection("release_tasks")).thenReturn(buckets);
+    }
+
+    @Test
+    void importFrom_ShouldWriteBatchesAndRebuildProgress() throws Exception {
+        config.setImportBatchSize(2);
+        String body = """
+                {"_id": "release-1", "title": "1.0", "outbox": [{"_id": "e1"}], "tasks": [{"_id": "t1", "status": "COMPLETED", "orderIndex": 1024}, {"_id": "t2", "status": "TODO", "orderIndex": 2048}]}
+
+                {"_id": "release-2", "title": "2.0", "taskStorage": "BUCKETED"}
+                {"_id": "release-2:0", "releaseId": "release-2", "bucketNo": 0, "tasks": [{"_id": "t3", "status": "TODO", "orderIndex": 1024}]}
+                """;
+
+        ReleaseImportResult result = releaseTransferService.importFrom(stream(body), ReleaseTransferService.ImportMode.UPSERT);
+
+        assertEquals(2, result.getReleases());
+        assertEquals(1, result.getTaskBuckets());
+        assertEquals(0, result.getSkipped());
+        verify(releases, times(1)).bulkWrite(argThat(models -> models.size() == 2), any(BulkWriteOptions.class));
+        verify(buckets, times(1)).bulkWrite(argThat(models -> models.size() == 1), any(BulkWriteOptions.class));
+        verify(releaseService, times(1)).releaseChanged("release-1");
+        verify(releaseService, times(2)).releaseChanged("release-2");
+
+        // Saved per batch, the counters of release-2 again once its bucket is read
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ReleaseProgress>> saved = ArgumentCaptor.forClass(List.class);
+        verify(releaseProgressRepository, times(2)).saveAll(saved.capture());
+        ReleaseProgress first = saved.getAllValues().get(0).stream().filter(p -> p.getReleaseId().equals("release-1")).findFirst().orElseThrow();
+        assertEquals(1, first.getCompleted());
+        assertEquals(1, first.getTodo());
+        assertEquals(2048, first.getNextOrderIndex());
+        ReleaseProgress second = saved.getAllValues().get(1).get(0);
+        assertEquals("release-2", second.getReleaseId());
+        assertEquals(1, second.getTodo());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importFrom_ShouldResetReplacedRelease_WhenUpserting() throws Exception {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("releases")))
+                .thenReturn(List.of(new Document("_id", "release-1").append("version", 7L)));
+        String body = """
+                {"_id": "release-1", "version": 3, "changes": [{"taskIds": ["t1"]}], "tasks": [{"_id": "t1", "status": "TODO", "orderIndex": 1024}]}
+                {"_id": "release-2", "version": 3, "tasks": []}
+                """;
+
+        releaseTransferService.importFrom(stream(body), ReleaseTransferService.ImportMode.UPSERT);
+
+        ArgumentCaptor<List<WriteModel<Document>>> written = ArgumentCaptor.forClass(List.class);
+        verify(releases).bulkWrite(written.capture(), any(BulkWriteOptions.class));
+        Document replaced = ((ReplaceOneModel<Document>) written.getValue().get(0)).getReplacement();
+        assertEquals(8L, replaced.get("version"));
+        assertEquals(List.of(new Document("taskIds", List.of()).append("resync", true)), replaced.get("changes"));
+        Document inserted = ((ReplaceOneModel<Document>) written.getValue().get(1)).getReplacement();
+        assertEquals(3, inserted.get("version"));
+
+        ArgumentCaptor<Query> claims = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(claims.capture(), eq(DeveloperWorkload.class));
+        assertEquals(new Document("releaseId", new Document("$in", List.of("release-1"))), claims.getValue().getQueryObject());
+        verify(mongoTemplate).remove(any(Query.class), eq("release_tasks"));
+    }
+
+    @Test
+    void importFrom_ShouldKeepImportedBuckets_WhenReleaseLineFollowsThem() throws Exception {
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("releases")))
+                .thenReturn(List.of(new Document("_id", "release-1").append("version", 7L)));
+        config.setImportBatchSize(1);
+        String body = """
+                {"_id": "release-1:0", "releaseId": "release-1", "bucketNo": 0, "tasks": []}
+                {"_id": "release-1", "taskStorage": "BUCKETED"}
+                """;
+
+        releaseTransferService.importFrom(stream(body), ReleaseTransferService.ImportMode.UPSERT);
+
+        verify(mongoTemplate).remove(any(Query.class), eq(DeveloperWorkload.class));
+        verify(mongoTemplate, never()).remove(any(Query.class), eq("release_tasks"));
+    }
+
+    @Test
+    void importFrom_ShouldSkipExistingDocuments_WhenInserting() throws Exception {
+        doThrow(new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0)), null,
+                new ServerAddress(), Set.of()))
+                .when(releases).insertMany(anyList(), any(InsertManyOptions.class));
+
+        ReleaseImportResult result = releaseTransferService.importFrom(stream("""
+                {"_id": "release-1", "tasks": []}
+                {"_id": "release-2", "tasks": []}
+                """), ReleaseTransferService.ImportMode.INSERT);
+
+        assertEquals(1, result.getReleases());
+        assertEquals(1, result.getSkipped());
+        verify(releaseService, never()).releaseChanged("release-1");
+        verify(releaseService, times(1)).releaseChanged("release-2");
+    }
+
+    @Test
+    void importFrom_ShouldImportPreviousLinesAndReject_WhenLineIsMalformed() {
+        String body = """
+                {"_id": "release-1", "tasks": []}
+                {"_id": "release-2",
+                """;
+
+        BadRequestException e = assertThrows(BadRequestException.class,
+                () -> releaseTransferService.importFrom(stream(body), ReleaseTransferService.ImportMode.UPSERT));
+
+        assertTrue(e.getMessage().startsWith("Line 2"));
+        verify(releases, times(1)).bulkWrite(argThat(models -> models.size() == 1), any(BulkWriteOptions.class));
+    }
+
+    @Test
+    void importFrom_ShouldRejectAndKeepPreviousProgress_WhenTaskStatusIsUnknown() {
+        String body = """
+                {"_id": "release-1", "tasks": [{"_id": "t1", "status": "TODO", "orderIndex": 1024}]}
+                {"_id": "release-2", "tasks": [{"_id": "t2", "status": "BLOCKED", "orderIndex": 1024}]}
+                """;
+
+        BadRequestException e = assertThrows(BadRequestException.class,
+                () -> releaseTransferService.importFrom(stream(body), ReleaseTransferService.ImportMode.UPSERT));
+
+        assertTrue(e.getMessage().startsWith("Line 2"));
+        verify(releases, times(1)).bulkWrite(argThat(models -> models.size() == 1), any(BulkWriteOptions.class));
+        verify(releaseProgressRepository).saveAll(argThat((List<ReleaseProgress> progress) -> progress.size() == 1
+                && progress.get(0).getReleaseId().equals("release-1") && progress.get(0).getTodo() == 1));
+    }
+
+    @Test
+    void importFrom_ShouldReject_WhenLineIsTooLong() {
+        config.setMaxLineLength(16);
+
+        assertThrows(BadRequestException.class, () -> releaseTransferService.importFrom(
+                stream("{\"_id\": \"release-1\", \"title\": \"much longer than allowed\"}\n"),
+                ReleaseTransferService.ImportMode.UPSERT));
+        verifyNoInteractions(releases);
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,120 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.dto.CycleTimeStats;
+import com.miu.flowops.dto.TaskCompletedEvent;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.model.CycleTimeRollup;
+import com.miu.flowops.model.ProcessedTaskCompletion;
+import com.miu.flowops.repository.CycleTimeRollupRepository;
+import com.miu.flowops.repository.ProcessedTaskCompletionRepository;
+import com.miu.flowops.util.CycleTimeSketch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskAnalyticsServiceTest {
+
+    @Mock
+    private CycleTimeRollupRepository cycleTimeRollupRepository;
+
+    @Mock
+    private ProcessedTaskCompletionRepository processedTaskCompletionRepository;
+
+    @InjectMocks
+    private TaskAnalyticsService taskAnalyticsService;
+
+    private final LocalDateTime startedAt = LocalDateTime.of(2026, 3, 2, 9, 0);
+
+    @Test
+    void onTaskCompleted_ShouldRecordCycleTimeForDeveloperAndRelease() {
+        taskAnalyticsService.onTaskCompleted(completion(startedAt.plusHours(2)));
+
+        verify(cycleTimeRollupRepository).record(CycleTimeRollup.Scope.DEVELOPER, "user-1", 7200, LocalDate.of(2026, 3, 2));
+        verify(cycleTimeRollupRepository).record(CycleTimeRollup.Scope.RELEASE, "release-1", 7200, LocalDate.of(2026, 3, 2));
+    }
+
+    @Test
+    void onTaskCompleted_ShouldSkipRedeliveredEvent() {
+        when(processedTaskCompletionRepository.insert(any(ProcessedTaskCompletion.class)))
+                .thenThrow(new DuplicateKeyException("task-1"));
+
+        taskAnalyticsService.onTaskCompleted(completion(startedAt.plusHours(2)));
+
+        verifyNoInteractions(cycleTimeRollupRepository);
+    }
+
+    @Test
+    void onTaskCompleted_ShouldSkipEventWithoutTimestamps() {
+        taskAnalyticsService.onTaskCompleted(completion(null));
+
+        verifyNoInteractions(processedTaskCompletionRepository, cycleTimeRollupRepository);
+    }
+
+    @Test
+    void getDeveloperStats_ShouldReadPercentilesAndThroughputFromRollup() {
+        Map<String, Long> sketch = new HashMap<>();
+        sketch.merge(String.valueOf(CycleTimeSketch.indexOf(60)), 90L, Long::sum);
+        sketch.merge(String.valueOf(CycleTimeSketch.indexOf(3600)), 10L, Long::sum);
+        String today = LocalDate.now().toString();
+        when(cycleTimeRollupRepository.findById("DEVELOPER:user-1")).thenReturn(Optional.of(CycleTimeRollup.builder()
+                .scope(CycleTimeRollup.Scope.DEVELOPER)
+                .key("user-1")
+                .count(100)
+                .totalSeconds(90 * 60 + 10 * 3600)
+                .maxSeconds(3600)
+                .sketch(sketch)
+                .daily(Map.of(today, 4L))
+                .build()));
+
+        CycleTimeStats stats = taskAnalyticsService.getDeveloperStats("user-1", 7);
+
+        assertEquals(100, stats.getCompletedTasks());
+        assertEquals(414, stats.getMeanSeconds());
+        assertEquals(60, stats.getP50Seconds(), 60 * CycleTimeSketch.RELATIVE_ACCURACY);
+        assertEquals(3600, stats.getP99Seconds(), 3600 * CycleTimeSketch.RELATIVE_ACCURACY);
+        assertEquals(7, stats.getThroughput().size());
+        assertEquals(4, stats.getThroughput().get(6).getCompleted());
+        assertEquals(0, stats.getThroughput().get(0).getCompleted());
+    }
+
+    @Test
+    void getReleaseStats_ShouldReturnEmptyStats_WhenNothingCompleted() {
+        when(cycleTimeRollupRepository.findById("RELEASE:release-1")).thenReturn(Optional.empty());
+
+        CycleTimeStats stats = taskAnalyticsService.getReleaseStats("release-1", 30);
+
+        assertEquals(0, stats.getCompletedTasks());
+        assertNull(stats.getP90Seconds());
+        assertNull(stats.getMeanSeconds());
+        assertEquals(30, stats.getThroughput().size());
+    }
+
+    @Test
+    void getReleaseStats_ShouldRejectTooManyDays() {
+        assertThrows(BadRequestException.class, () -> taskAnalyticsService.getReleaseStats("release-1", 1000));
+    }
+
+    private TaskCompletedEvent completion(LocalDateTime completedAt) {
+        return TaskCompletedEvent.builder()
+                .developerId("user-1")
+                .releaseId("release-1")
+                .taskId("task-1")
+                .startedAt(completedAt != null ? startedAt : null)
+                .completedAt(completedAt)
+                .build();
+    }
+}
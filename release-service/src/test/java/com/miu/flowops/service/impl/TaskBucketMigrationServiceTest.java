@@ -0,0 +1,81 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.TaskStorageConfig;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.exceptions.ConflictException;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.TaskStorage;
+import com.miu.flowops.repository.ReleaseTaskBucketStore;
+import com.miu.flowops.repository.SchedulerLockRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskBucketMigrationServiceTest {
+
+    @Mock
+    private ReleaseTaskBucketStore bucketStore;
+
+    @Mock
+    private SchedulerLockRepository schedulerLockRepository;
+
+    @Spy
+    private TaskStorageConfig taskStorageConfig = new TaskStorageConfig();
+
+    @Mock
+    private ReleaseService releaseService;
+
+    @InjectMocks
+    private TaskBucketMigrationService taskBucketMigrationService;
+
+    @Test
+    void migrate_ShouldThrowException_WhenAlreadyBucketed() {
+        when(releaseService.getRelease("release-1"))
+                .thenReturn(Release.builder().id("release-1").taskStorage(TaskStorage.BUCKETED).build());
+
+        assertThrows(BadRequestException.class, () -> taskBucketMigrationService.migrate("release-1"));
+        verify(bucketStore, never()).migrate(any());
+    }
+
+    @Test
+    void migrate_ShouldThrowException_WhenReleaseChangedConcurrently() {
+        when(releaseService.getRelease("release-1")).thenReturn(Release.builder().id("release-1").build());
+        when(bucketStore.migrate("release-1")).thenReturn(false);
+
+        assertThrows(ConflictException.class, () -> taskBucketMigrationService.migrate("release-1"));
+        verify(releaseService, never()).releaseChanged(any());
+    }
+
+    @Test
+    void migrateLargeReleases_ShouldDoNothing_WhenDisabled() {
+        taskBucketMigrationService.migrateLargeReleases();
+
+        verifyNoInteractions(schedulerLockRepository, bucketStore);
+    }
+
+    @Test
+    void migrateLargeReleases_ShouldMigrateCandidatesUnderLease() {
+        taskStorageConfig.setMigrationEnabled(true);
+        when(schedulerLockRepository.tryAcquire(anyString(), anyString(), any(), any())).thenReturn(true);
+        when(bucketStore.findMigrationCandidates(eq(taskStorageConfig.getMigrateAbove()), anyInt()))
+                .thenReturn(List.of("release-1", "release-2"));
+        when(bucketStore.migrate("release-1")).thenReturn(true);
+        when(bucketStore.migrate("release-2")).thenReturn(false);
+
+        taskBucketMigrationService.migrateLargeReleases();
+
+        verify(releaseService, times(1)).releaseChanged("release-1");
+        verify(releaseService, never()).releaseChanged("release-2");
+        verify(schedulerLockRepository, times(1)).release(anyString(), anyString(), any());
+    }
+}
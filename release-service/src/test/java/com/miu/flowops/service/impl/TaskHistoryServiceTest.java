@@ -0,0 +1,202 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.TaskHistoryConfig;
+import com.miu.flowops.exceptions.ResourceNotFoundException;
+import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseSnapshot;
+import com.miu.flowops.model.Task;
+import com.miu.flowops.model.TaskEvent;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.ReleaseSnapshotRepository;
+import com.miu.flowops.repository.SchedulerLockRepository;
+import com.miu.flowops.repository.TaskEventRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskHistoryServiceTest {
+
+    @Mock
+    private TaskEventRepository taskEventRepository;
+
+    @Mock
+    private ReleaseSnapshotRepository releaseSnapshotRepository;
+
+    @Mock
+    private ReleaseRepository releaseRepository;
+
+    @Mock
+    private SchedulerLockRepository schedulerLockRepository;
+
+    @Spy
+    private TaskHistoryConfig config = new TaskHistoryConfig();
+
+    @InjectMocks
+    private TaskHistoryService taskHistoryService;
+
+    private final LocalDateTime snapshotAt = LocalDateTime.of(2026, 3, 2, 9, 0);
+
+    @Test
+    void written_ShouldMoveEntriesWithVersion() {
+        List<TaskEvent> entries = List.of(
+                TaskEvent.taskChanged("release-1", task("task-1", 1024)),
+                TaskEvent.ofRelease("release-1", TaskEvent.Type.RELEASE_COMPLETED));
+
+        taskHistoryService.written("release-1", 7L, entries);
+
+        verify(taskEventRepository).saveAll(entries);
+        assertTrue(entries.stream().allMatch(entry -> entry.getVersion() == 7L));
+        verify(releaseRepository).removeHistoryEntries(
+                Map.of("release-1", List.of(entries.get(0).getId(), entries.get(1).getId())));
+        verifyNoInteractions(releaseSnapshotRepository);
+    }
+
+    @Test
+    void written_ShouldSnapshot_EverySnapshotEveryVersions() {
+        config.setSnapshotEvery(2);
+        config.setChunkSize(2);
+        when(releaseRepository.findById("release-1")).thenReturn(Optional.of(Release.builder()
+                .id("release-1")
+                .title("1.0")
+                .isCompleted(false)
+                .version(4L)
+                .tasks(List.of(task("task-1", 1024), task("task-2", 2048), task("task-3", 3072)))
+                .build()));
+
+        taskHistoryService.written("release-1", 4L, List.of(TaskEvent.taskChanged("release-1", task("task-1", 1024))));
+
+        ArgumentCaptor<ReleaseSnapshot> saved = ArgumentCaptor.forClass(ReleaseSnapshot.class);
+        verify(releaseSnapshotRepository, timeout(1000).times(2)).save(saved.capture());
+        assertEquals(List.of("release-1:4:1", "release-1:4:0"), saved.getAllValues().stream().map(ReleaseSnapshot::getId).toList());
+        assertEquals(2, saved.getAllValues().get(1).getTasks().size());
+        assertEquals(2, saved.getAllValues().get(1).getChunks());
+    }
+
+    @Test
+    void written_ShouldLeaveEntriesPending_WhenMoveFails() {
+        when(taskEventRepository.saveAll(anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertDoesNotThrow(() -> taskHistoryService.written("release-1", 3L,
+                List.of(TaskEvent.taskChanged("release-1", task("task-1", 1024)))));
+        verify(releaseRepository, never()).removeHistoryEntries(any());
+    }
+
+    @Test
+    void relay_ShouldMoveMissingEntriesAndRemoveAllOlderOnes() {
+        LocalDateTime old = LocalDateTime.now().minusMinutes(5);
+        TaskEvent stored = TaskEvent.builder().id("entry-1").releaseId("release-1").at(old).build();
+        TaskEvent missing = TaskEvent.builder().id("entry-2").releaseId("release-1").at(old).build();
+        TaskEvent recent = TaskEvent.builder().id("entry-3").releaseId("release-1").at(LocalDateTime.now()).build();
+        when(schedulerLockRepository.tryAcquire(eq("task-history-relay"), anyString(), any(), any())).thenReturn(true);
+        when(releaseRepository.findWithPendingHistory(any(), anyInt())).thenReturn(List.of(Release.builder()
+                .id("release-1")
+                .history(List.of(stored, missing, recent))
+                .build()));
+        when(taskEventRepository.findAllById(List.of("entry-1", "entry-2"))).thenReturn(List.of(stored));
+
+        taskHistoryService.relay();
+
+        verify(taskEventRepository).insert(List.of(missing));
+        verify(releaseRepository).removeHistoryEntries(Map.of("release-1", List.of("entry-1", "entry-2")));
+    }
+
+    @Test
+    void relay_ShouldSkip_WhenLockHeldElsewhere() {
+        when(schedulerLockRepository.tryAcquire(eq("task-history-relay"), anyString(), any(), any())).thenReturn(false);
+
+        taskHistoryService.relay();
+
+        verifyNoInteractions(releaseRepository, taskEventRepository);
+    }
+
+    @Test
+    void getReleaseAsOf_ShouldReplayEntriesAfterSnapshot() {
+        LocalDateTime at = snapshotAt.plusHours(3);
+        stubSnapshot();
+        when(taskEventRepository.findReplayTail(eq("release-1"), eq(10L), eq(snapshotAt), eq(at), any()))
+                .thenReturn(List.of(
+                        TaskEvent.builder().version(11L).type(TaskEvent.Type.TASK_CHANGED).taskId("task-1")
+                                .status(TaskStatus.IN_PROCESS).developerId("user-1").orderIndex(1024).build(),
+                        TaskEvent.builder().version(12L).type(TaskEvent.Type.TASK_ADDED).taskId("task-3")
+                                .title("Hotfix").status(TaskStatus.TODO).orderIndex(1536).build()));
+
+        Release release = taskHistoryService.getReleaseAsOf("release-1", at);
+
+        assertEquals(12L, release.getVersion());
+        assertFalse(release.getIsCompleted());
+        assertEquals(List.of("task-1", "task-3", "task-2"), release.getTasks().stream().map(Task::getId).toList());
+        assertEquals(TaskStatus.IN_PROCESS, release.getTasks().get(0).getStatus());
+        assertEquals("user-1", release.getTasks().get(0).getDeveloperId());
+        assertEquals("Hotfix", release.getTasks().get(1).getTitle());
+    }
+
+    @Test
+    void getReleaseAsOf_ShouldRenumber_WhenTaskWasAddedWithRenumbering() {
+        LocalDateTime at = snapshotAt.plusHours(3);
+        stubSnapshot();
+        Task hotfix = Task.builder().id("task-3").title("Hotfix").status(TaskStatus.TODO).orderIndex(2 * 1024).build();
+        when(taskEventRepository.findReplayTail(eq("release-1"), eq(10L), eq(snapshotAt), eq(at), any()))
+                .thenReturn(List.of(TaskEvent.taskAdded("release-1", hotfix, true)));
+
+        Release release = taskHistoryService.getReleaseAsOf("release-1", at);
+
+        assertEquals(List.of("task-1", "task-3", "task-2"), release.getTasks().stream().map(Task::getId).toList());
+        assertEquals(List.of(1024, 2048, 3072), release.getTasks().stream().map(Task::getOrderIndex).toList());
+    }
+
+    @Test
+    void getReleaseAsOf_ShouldThrow_WhenReleaseWasDeleted() {
+        LocalDateTime at = snapshotAt.plusHours(3);
+        stubSnapshot();
+        when(taskEventRepository.findReplayTail(eq("release-1"), eq(10L), eq(snapshotAt), eq(at), any()))
+                .thenReturn(List.of(TaskEvent.builder().type(TaskEvent.Type.RELEASE_DELETED).at(snapshotAt.plusHours(1)).build()));
+
+        assertThrows(ResourceNotFoundException.class, () -> taskHistoryService.getReleaseAsOf("release-1", at));
+    }
+
+    @Test
+    void getReleaseAsOf_ShouldThrow_WhenNoSnapshotBefore() {
+        when(releaseSnapshotRepository.findFirstByReleaseIdAndChunkNoAndTakenAtLessThanEqualOrderByTakenAtDesc(
+                "release-1", 0, snapshotAt)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> taskHistoryService.getReleaseAsOf("release-1", snapshotAt));
+    }
+
+    private void stubSnapshot() {
+        ReleaseSnapshot head = ReleaseSnapshot.builder()
+                .id(ReleaseSnapshot.idOf("release-1", 10, 0))
+                .releaseId("release-1")
+                .version(10)
+                .takenAt(snapshotAt)
+                .chunkNo(0)
+                .chunks(1)
+                .title("1.0")
+                .isCompleted(true)
+                .tasks(new ArrayList<>(List.of(task("task-1", 1024), task("task-2", 2048))))
+                .build();
+        when(releaseSnapshotRepository.findFirstByReleaseIdAndChunkNoAndTakenAtLessThanEqualOrderByTakenAtDesc(
+                eq("release-1"), eq(0), any())).thenReturn(Optional.of(head));
+        when(releaseSnapshotRepository.findByReleaseIdAndVersionOrderByChunkNoAsc("release-1", 10L)).thenReturn(List.of(head));
+    }
+
+    private static Task task(String id, int orderIndex) {
+        return Task.builder().id(id).title(id).status(TaskStatus.TODO).orderIndex(orderIndex).build();
+    }
+}
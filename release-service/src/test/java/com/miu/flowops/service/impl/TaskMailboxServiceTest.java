@@ -0,0 +1,132 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.config.TaskMailboxConfig;
+import com.miu.flowops.dto.TaskBatchResponse;
+import com.miu.flowops.dto.TaskCommand;
+import com.miu.flowops.dto.TaskCommandResult;
+import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.exceptions.ResourceNotFoundException;
+import com.miu.flowops.model.Release;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskMailboxServiceTest {
+
+    @Mock
+    private TaskService taskService;
+
+    @Mock
+    private ReleaseService releaseService;
+
+    @Spy
+    private TaskMailboxConfig taskMailboxConfig = new TaskMailboxConfig();
+
+    @InjectMocks
+    private TaskMailboxService taskMailboxService;
+
+    private final Release release = Release.builder().id("release-1").version(1L).build();
+
+    // Every command succeeds and the release is written
+    private static TaskService.AppliedBatch applied(Release release, List<TaskCommand> commands) {
+        List<TaskCommandResult> results = new ArrayList<>();
+        for (int i = 0; i < commands.size(); i++) {
+            results.add(TaskCommandResult.builder().index(i).taskId(commands.get(i).getTaskId()).success(true).build());
+        }
+        return new TaskService.AppliedBatch(TaskBatchResponse.builder().results(results).build(), release);
+    }
+
+    private static TaskCommandResult rejected(RuntimeException error) {
+        return TaskCommandResult.builder().success(false).message(error.getMessage()).error(error).build();
+    }
+
+    @Test
+    void startTask_ShouldReloadAndApplyAgain_WhenReleaseChangedOutsideMailbox() {
+        when(releaseService.getRelease("release-1")).thenReturn(release);
+        when(taskService.applyCommands(eq(release), anyList()))
+                .thenReturn(new TaskService.AppliedBatch(null, null))
+                .thenAnswer(invocation -> applied(release, invocation.getArgument(1)));
+
+        taskMailboxService.startTask("release-1", "task-1", "user-1");
+
+        verify(releaseService, times(2)).getRelease("release-1");
+        verify(taskService, times(2)).applyCommands(eq(release), anyList());
+    }
+
+    @Test
+    void startTask_ShouldThrowException_WhenCommandRejected() {
+        when(releaseService.getRelease("release-1")).thenReturn(release);
+        when(taskService.applyCommands(eq(release), anyList())).thenReturn(new TaskService.AppliedBatch(
+                TaskBatchResponse.builder().results(List.of(rejected(new BadRequestException("Task must be in TODO state to start."))))
+                        .build(),
+                release));
+
+        BadRequestException e = assertThrows(BadRequestException.class,
+                () -> taskMailboxService.startTask("release-1", "task-1", "user-1"));
+        assertEquals("Task must be in TODO state to start.", e.getMessage());
+    }
+
+    @Test
+    void completeTask_ShouldThrowNotFound_WhenTaskIsMissing() {
+        when(releaseService.getRelease("release-1")).thenReturn(release);
+        when(taskService.applyCommands(eq(release), anyList())).thenReturn(new TaskService.AppliedBatch(
+                TaskBatchResponse.builder().results(List.of(rejected(new ResourceNotFoundException("Task not found in release"))))
+                        .build(),
+                release));
+
+        assertThrows(ResourceNotFoundException.class, () -> taskMailboxService.completeTask("release-1", "task-x", "user-1"));
+    }
+
+    @Test
+    void startTask_ShouldGroupCommitQueuedCommands() throws Exception {
+        CountDownLatch firstWrite = new CountDownLatch(1);
+        CountDownLatch queued = new CountDownLatch(1);
+        AtomicInteger writes = new AtomicInteger();
+        AtomicInteger commandsWritten = new AtomicInteger();
+        when(releaseService.getRelease("release-1")).thenReturn(release);
+        when(taskService.applyCommands(any(), anyList())).thenAnswer(invocation -> {
+            if (writes.incrementAndGet() == 1) {
+                firstWrite.countDown();
+                queued.await(5, TimeUnit.SECONDS);
+            }
+            List<TaskCommand> commands = invocation.getArgument(1);
+            commandsWritten.addAndGet(commands.size());
+            return applied(release, commands);
+        });
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(
+                () -> taskMailboxService.startTask("release-1", "task-0", "user-0"));
+        assertTrue(firstWrite.await(5, TimeUnit.SECONDS));
+        List<CompletableFuture<Void>> others = IntStream.range(1, 11)
+                .mapToObj(i -> CompletableFuture.runAsync(
+                        () -> taskMailboxService.completeTask("release-1", "task-" + i, "user-" + i)))
+                .toList();
+        // Let the submissions reach the mailbox while the first write is still running
+        Thread.sleep(200);
+        queued.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<Void> other : others) {
+            other.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(11, commandsWritten.get());
+        assertTrue(writes.get() < 11);
+        verify(releaseService, times(1)).getRelease("release-1");
+    }
+}
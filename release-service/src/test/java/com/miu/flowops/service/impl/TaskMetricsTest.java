@@ -0,0 +1,66 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.model.DeveloperWorkload;
+import com.miu.flowops.repository.DeveloperWorkloadRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskMetricsTest {
+
+    @Mock
+    private DeveloperWorkloadRepository developerWorkloadRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TaskMetrics taskMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        taskMetrics = new TaskMetrics(developerWorkloadRepository, meterRegistry);
+    }
+
+    private double ageGauge(String bucket) {
+        return meterRegistry.get("release.tasks.in.process.age").tag("le", bucket).gauge().value();
+    }
+
+    @Test
+    void refresh_ShouldCountInProcessTasksByAge() {
+        LocalDateTime now = LocalDateTime.now();
+        when(developerWorkloadRepository.findAll()).thenReturn(List.of(
+                DeveloperWorkload.builder().developerId("user-1").claimedAt(now.minusMinutes(10)).build(),
+                DeveloperWorkload.builder().developerId("user-2").claimedAt(now.minusHours(2)).build(),
+                DeveloperWorkload.builder().developerId("user-3").claimedAt(now.minusDays(10)).build()));
+
+        taskMetrics.refresh();
+
+        assertEquals(3, meterRegistry.get("release.tasks.in.process").gauge().value());
+        assertEquals(1, ageGauge(Duration.ofHours(1).toString()));
+        assertEquals(1, ageGauge(Duration.ofHours(8).toString()));
+        assertEquals(0, ageGauge(Duration.ofDays(1).toString()));
+        assertEquals(1, ageGauge("+Inf"));
+    }
+
+    @Test
+    void recordInProcessTime_ShouldSkipTasksWithoutStart() {
+        LocalDateTime now = LocalDateTime.now();
+
+        taskMetrics.recordInProcessTime(null, now);
+        taskMetrics.recordInProcessTime(now.minusHours(1), now);
+
+        assertEquals(1, meterRegistry.get("release.task.time.in.state").timer().count());
+        assertEquals(1, meterRegistry.get("release.task.time.in.state").timer().totalTime(TimeUnit.HOURS), 0.001);
+    }
+}
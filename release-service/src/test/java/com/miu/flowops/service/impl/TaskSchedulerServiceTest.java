@@ -0,0 +1,85 @@
+package com.miu.flowops.service.impl;
+
+import com.miu.flowops.dto.StaleTaskCandidate;
+import com.miu.flowops.dto.StaleTaskDetectedEvent;
+import com.miu.flowops.model.StaleTaskReminder;
+import com.miu.flowops.model.TaskStatus;
+import com.miu.flowops.model.User;
+import com.miu.flowops.repository.ReleaseRepository;
+import com.miu.flowops.repository.ReleaseTaskBucketRepository;
+import com.miu.flowops.repository.SchedulerLockRepository;
+import com.miu.flowops.repository.StaleTaskReminderRepository;
+import com.miu.flowops.repository.UserRepository;
+import com.miu.flowops.service.KafkaProducerService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskSchedulerServiceTest {
+
+    @Mock
+    private ReleaseRepository releaseRepository;
+
+    @Mock
+    private ReleaseTaskBucketRepository releaseTaskBucketRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SchedulerLockRepository schedulerLockRepository;
+
+    @Mock
+    private StaleTaskReminderRepository staleTaskReminderRepository;
+
+    @Mock
+    private KafkaProducerService kafkaProducerService;
+
+    @InjectMocks
+    private TaskSchedulerService taskSchedulerService;
+
+    @Test
+    void checkStaleTasks_ShouldSkip_WhenLeaseHeldByAnotherInstance() {
+        when(schedulerLockRepository.tryAcquire(anyString(), anyString(), any(), any())).thenReturn(false);
+
+        taskSchedulerService.checkStaleTasks();
+
+        verifyNoInteractions(releaseRepository, kafkaProducerService);
+    }
+
+    @Test
+    void checkStaleTasks_ShouldRemindOnlyNewTasks() {
+        LocalDateTime startedAt = LocalDateTime.now().minusDays(3);
+        StaleTaskCandidate reminded = new StaleTaskCandidate("release-1", "task-1", "Old", "user-1", startedAt);
+        StaleTaskCandidate fresh = new StaleTaskCandidate("release-1", "task-2", "New", "user-2", startedAt);
+
+        when(schedulerLockRepository.tryAcquire(anyString(), anyString(), any(), any())).thenReturn(true);
+        when(releaseRepository.streamTasksByStatusAndStartedBefore(eq(TaskStatus.IN_PROCESS), any(LocalDateTime.class)))
+                .thenReturn(Stream.of(reminded, fresh));
+        when(staleTaskReminderRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(StaleTaskReminder.builder().id("release-1:task-1").build()));
+        when(userRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(User.builder().id("user-2").email("dev@example.com").build()));
+
+        taskSchedulerService.checkStaleTasks();
+
+        ArgumentCaptor<StaleTaskDetectedEvent> event = ArgumentCaptor.forClass(StaleTaskDetectedEvent.class);
+        verify(kafkaProducerService, times(1)).sendStaleTaskDetectedEvent(event.capture());
+        assertEquals("task-2", event.getValue().getTaskId());
+        assertEquals("dev@example.com", event.getValue().getEmail());
+        verify(staleTaskReminderRepository, times(1)).saveAll(anyList());
+        verify(schedulerLockRepository, times(1)).release(anyString(), anyString(), any());
+    }
+}
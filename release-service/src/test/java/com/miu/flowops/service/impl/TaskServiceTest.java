@@ -1,28 +1,34 @@
 package com.miu.flowops.service.impl;
 
-import com.miu.flowops.dto.TaskAssignedEvent;
-import com.miu.flowops.dto.TaskCompletedEvent;
+import com.miu.flowops.dto.*;
 import com.miu.flowops.exceptions.BadRequestException;
+import com.miu.flowops.exceptions.ConflictException;
+import com.miu.flowops.exceptions.ResourceNotFoundException;
+import com.miu.flowops.model.DeveloperWorkload;
 import com.miu.flowops.model.Release;
+import com.miu.flowops.model.ReleaseProgress;
 import com.miu.flowops.model.Task;
 import com.miu.flowops.model.TaskStatus;
 import com.miu.flowops.model.User;
+import com.miu.flowops.repository.DeveloperWorkloadRepository;
+import com.miu.flowops.repository.ReleaseProgressRepository;
 import com.miu.flowops.repository.ReleaseRepository;
 import com.miu.flowops.repository.UserRepository;
-import com.miu.flowops.service.KafkaProducerService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,11 +40,23 @@ class TaskServiceTest {
     @Mock
     private ReleaseRepository releaseRepository;
 
+    @Mock
+    private DeveloperWorkloadRepository developerWorkloadRepository;
+
+    @Mock
+    private ReleaseProgressRepository releaseProgressRepository;
+
     @Mock
     private ReleaseService releaseService;
 
     @Mock
-    private KafkaProducerService kafkaProducerService;
+    private TaskMetrics taskMetrics;
+
+    @Mock
+    private ReleaseEventHub releaseEventHub;
+
+    @Mock
+    private TaskHistoryService taskHistoryService;
 
     @InjectMocks
     private TaskService taskService;
@@ -75,31 +93,50 @@ class TaskServiceTest {
     @Test
     void startTask_ShouldStartTask_WhenValid() {
         when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
-        when(releaseRepository.existsByDeveloperIdAndTaskStatus("user-1", TaskStatus.IN_PROCESS)).thenReturn(false);
         when(releaseService.getRelease("release-1")).thenReturn(release);
         when(releaseService.findTask(release, "task-1")).thenReturn(task);
 
+        when(releaseRepository.startTask(eq("release-1"), eq("task-1"), eq("user-1"), isNull(), any(LocalDateTime.class), anyList(), anyList()))
+                .thenReturn(Optional.of(release));
+
         taskService.startTask("release-1", "task-1", "user-1");
 
-        assertEquals(TaskStatus.IN_PROCESS, task.getStatus());
-        assertEquals("user-1", task.getDeveloperId());
-        verify(releaseRepository, times(1)).save(release);
-        verify(kafkaProducerService, times(1)).sendTaskAssignedEvent(any(TaskAssignedEvent.class));
+        verify(developerWorkloadRepository, times(1)).insert(any(DeveloperWorkload.class));
+        verify(releaseRepository, never()).save(any(Release.class));
+        verify(releaseRepository).startTask(eq("release-1"), eq("task-1"), eq("user-1"), isNull(), any(LocalDateTime.class),
+                argThat(events -> events.size() == 1 && events.get(0).getPayload() instanceof TaskAssignedEvent),
+                argThat(history -> history.size() == 1 && history.get(0).getStatus() == TaskStatus.IN_PROCESS
+                        && "user-1".equals(history.get(0).getDeveloperId())));
+    }
+
+    @Test
+    void startTask_ShouldThrowException_WhenTaskChangedConcurrently() {
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+        when(releaseService.getRelease("release-1")).thenReturn(release);
+        when(releaseService.findTask(release, "task-1")).thenReturn(task);
+        when(releaseRepository.startTask(eq("release-1"), eq("task-1"), eq("user-1"), isNull(), any(LocalDateTime.class), anyList(), anyList()))
+                .thenReturn(Optional.empty());
+
+        assertThrows(ConflictException.class, () -> taskService.startTask("release-1", "task-1", "user-1"));
+        verify(developerWorkloadRepository, times(1)).deleteByDeveloperIdAndTaskId("user-1", "task-1");
     }
 
     @Test
     void startTask_ShouldThrowException_WhenDeveloperHasActiveTask() {
         when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
-        when(releaseRepository.existsByDeveloperIdAndTaskStatus("user-1", TaskStatus.IN_PROCESS)).thenReturn(true);
+        when(releaseService.getRelease("release-1")).thenReturn(release);
+        when(releaseService.findTask(release, "task-1")).thenReturn(task);
+        when(developerWorkloadRepository.insert(any(DeveloperWorkload.class)))
+                .thenThrow(new DuplicateKeyException("duplicate developerId"));
 
         assertThrows(BadRequestException.class, () -> taskService.startTask("release-1", "task-1", "user-1"));
+        verify(releaseRepository, never()).startTask(any(), any(), any(), any(), any(), any(), any());
     }
 
     @Test
     void startTask_ShouldThrowException_WhenTaskNotTodo() {
         task.setStatus(TaskStatus.IN_PROCESS);
         when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
-        when(releaseRepository.existsByDeveloperIdAndTaskStatus("user-1", TaskStatus.IN_PROCESS)).thenReturn(false);
         when(releaseService.getRelease("release-1")).thenReturn(release);
         when(releaseService.findTask(release, "task-1")).thenReturn(task);
 
@@ -114,12 +151,21 @@ class TaskServiceTest {
         when(releaseService.getRelease("release-1")).thenReturn(release);
         when(releaseService.findTask(release, "task-1")).thenReturn(task);
         when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+        when(releaseRepository.completeTask(eq("release-1"), eq("task-1"), eq("user-1"), any(LocalDateTime.class), anyList(), anyList()))
+                .thenReturn(Optional.of(release));
+        when(releaseProgressRepository.applyTransitions(eq("release-1"), anyMap(), any()))
+                .thenReturn(Optional.of(ReleaseProgress.builder().releaseId("release-1").completed(1).build()));
 
         taskService.completeTask("release-1", "task-1", "user-1");
 
-        assertEquals(TaskStatus.COMPLETED, task.getStatus());
-        verify(releaseRepository, times(1)).save(release);
-        verify(kafkaProducerService, times(1)).sendTaskCompletedEvent(any(TaskCompletedEvent.class));
+        verify(releaseRepository, never()).save(any(Release.class));
+        verify(releaseRepository, times(1)).markCompletedIfAllTasksDone(eq("release-1"), anyList());
+        verify(releaseService, never()).checkAndCompleteRelease(any());
+        verify(developerWorkloadRepository, times(1)).deleteByDeveloperIdAndTaskId("user-1", "task-1");
+        verify(taskMetrics, times(1)).recordInProcessTime(any(), any(LocalDateTime.class));
+        verify(releaseRepository).completeTask(eq("release-1"), eq("task-1"), eq("user-1"), any(LocalDateTime.class),
+                argThat(events -> events.size() == 1 && events.get(0).getPayload() instanceof TaskCompletedEvent),
+                argThat(history -> history.size() == 1 && history.get(0).getStatus() == TaskStatus.COMPLETED));
     }
 
     @Test
@@ -143,4 +189,75 @@ class TaskServiceTest {
 
         assertThrows(BadRequestException.class, () -> taskService.completeTask("release-1", "task-1", "user-1"));
     }
+
+    @Test
+    void applyBatch_ShouldApplyValidOperationsInSingleWrite() {
+        release.setVersion(3L);
+        TaskBatchRequest request = TaskBatchRequest.builder()
+                .operations(List.of(
+                        TaskCommand.builder().type(TaskCommand.Type.START).taskId("task-1").developerId("user-1").build(),
+                        TaskCommand.builder().type(TaskCommand.Type.COMPLETE).taskId("task-x").developerId("user-1").build()))
+                .build();
+
+        when(releaseService.getRelease("release-1")).thenReturn(release);
+        when(userRepository.findAllById(anyIterable())).thenReturn(List.of(user));
+        when(releaseService.findTask(release, "task-1")).thenReturn(task);
+        when(releaseService.findTask(release, "task-x")).thenThrow(new ResourceNotFoundException("Task not found in release"));
+        when(releaseRepository.replaceTasks(eq("release-1"), eq(3L), anyList(), eq(List.of("task-1")), eq(false), anyList(), anyList()))
+                .thenReturn(Optional.of(release));
+
+        TaskBatchResponse response = taskService.applyBatch("release-1", request);
+
+        assertEquals(1, response.getApplied());
+        assertTrue(response.getResults().get(0).isSuccess());
+        assertFalse(response.getResults().get(1).isSuccess());
+        assertEquals(TaskStatus.IN_PROCESS, task.getStatus());
+        verify(releaseProgressRepository, times(1)).applyTransitions(eq("release-1"),
+                argThat(deltas -> deltas.get(TaskStatus.TODO) == -1 && deltas.get(TaskStatus.IN_PROCESS) == 1), eq(1));
+        verify(releaseRepository, times(1)).replaceTasks(eq("release-1"), eq(3L), anyList(), eq(List.of("task-1")), eq(false),
+                argThat(events -> events.size() == 1),
+                argThat(history -> history.size() == 1 && history.get(0).getStatus() == TaskStatus.IN_PROCESS));
+        verify(taskHistoryService).written(eq("release-1"), eq(3L), anyList());
+        verify(releaseEventHub, times(1)).publish(argThat(event -> event.getVersion() == 3L
+                && event.getTasks().size() == 1
+                && event.getTasks().get(0).getStatus() == TaskStatus.IN_PROCESS));
+    }
+
+    @Test
+    void applyBatch_ShouldReleaseClaims_WhenReleaseChangedConcurrently() {
+        TaskBatchRequest request = TaskBatchRequest.builder()
+                .operations(List.of(
+                        TaskCommand.builder().type(TaskCommand.Type.START).taskId("task-1").developerId("user-1").build()))
+                .build();
+
+        when(releaseService.getRelease("release-1")).thenReturn(release);
+        when(userRepository.findAllById(anyIterable())).thenReturn(List.of(user));
+        when(releaseService.findTask(release, "task-1")).thenReturn(task);
+        when(releaseRepository.replaceTasks(eq("release-1"), isNull(), anyList(), anyList(), eq(false), anyList(), anyList()))
+                .thenReturn(Optional.empty());
+
+        assertThrows(ConflictException.class, () -> taskService.applyBatch("release-1", request));
+        verify(developerWorkloadRepository, times(1)).deleteByDeveloperIdAndTaskId("user-1", "task-1");
+    }
+
+    @Test
+    void applyBatch_ShouldRejectAssign_WhenTaskAlreadyStarted() {
+        task.setStatus(TaskStatus.IN_PROCESS);
+        task.setDeveloperId("user-2");
+        TaskBatchRequest request = TaskBatchRequest.builder()
+                .operations(List.of(
+                        TaskCommand.builder().type(TaskCommand.Type.ASSIGN).taskId("task-1").developerId("user-1").build()))
+                .build();
+
+        when(releaseService.getRelease("release-1")).thenReturn(release);
+        when(userRepository.findAllById(anyIterable())).thenReturn(List.of(user));
+        when(releaseService.findTask(release, "task-1")).thenReturn(task);
+
+        TaskBatchResponse response = taskService.applyBatch("release-1", request);
+
+        assertEquals(0, response.getApplied());
+        assertFalse(response.getResults().get(0).isSuccess());
+        assertEquals("user-2", task.getDeveloperId());
+        verify(releaseRepository, never()).replaceTasks(any(), any(), anyList(), anyList(), anyBoolean(), anyList(), anyList());
+    }
 }